@@ -0,0 +1,131 @@
+package com.example.steppowergenerator.history;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.steppowergenerator.StepCounts;
+import com.example.steppowergenerator.StepType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented test of the StepHistoryDatabase on the SQLite of the device: steps are inserted in several
+ * transactions, so rollup rows are created by the first one and updated by the later ones,
+ * and countSteps must always give the same counts as counting the raw steps.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StepHistoryDatabaseTest {
+
+    private static final TimeZone BERLIN = TimeZone.getTimeZone("Europe/Berlin");
+
+    private StepHistoryDatabase database;
+    private long[] times;
+    private byte[] stepTypes;
+
+    @Before
+    public void setUp() {
+        database = new StepHistoryDatabase(InstrumentationRegistry.getInstrumentation().getTargetContext(), null, BERLIN);
+
+        // a step every 7 seconds from Saturday noon over the change to summer time until Tuesday morning
+        long start = localTime(2026, Calendar.MARCH, 28, 12, 0) + 3500;
+        long end = localTime(2026, Calendar.MARCH, 31, 9, 0);
+        int count = (int) ((end - start) / 7000);
+        times = new long[count];
+        stepTypes = new byte[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = start + i * 7000L;
+            stepTypes[i] = (byte) (i % 5 == 0 ? StepType.RUNNING.ordinal() : i % 3 == 0 ? StepType.JOGGING.ordinal()
+                    : StepType.WALKING.ordinal());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void countStepsMatchesRawStepsAfterSeveralInserts() {
+        insertInBatches(1000);
+
+        long[] ranges = {
+                times[0], times[times.length - 1] + 1,
+                localTime(2026, Calendar.MARCH, 28, 12, 34) + 56789, localTime(2026, Calendar.MARCH, 31, 0, 0) + 30000,
+                localTime(2026, Calendar.MARCH, 29, 1, 59), localTime(2026, Calendar.MARCH, 29, 3, 1),
+                localTime(2026, Calendar.MARCH, 30, 17, 0) + 1, localTime(2026, Calendar.MARCH, 30, 17, 0) + 20000,
+        };
+        for (int i = 0; i < ranges.length; i += 2) {
+            assertCounts(ranges[i], ranges[i + 1]);
+        }
+    }
+
+    @Test
+    public void queryBucketsReturnsUpdatedRollups() {
+        // batches end within a minute, so the rollup rows of that minute are updated by the next batch
+        insertInBatches(5);
+
+        long dayStart = localTime(2026, Calendar.MARCH, 29, 0, 0);
+        long dayEnd = localTime(2026, Calendar.MARCH, 30, 0, 0);
+        List<StepBucket> days = database.queryBuckets(RollupResolution.DAY, dayStart, dayEnd);
+        assertEquals(1, days.size());
+        assertEquals(dayStart, days.get(0).getStartMillis());
+        assertEquals(rawCount(dayStart, dayEnd, null), days.get(0).getAmountOfSteps());
+
+        List<StepBucket> hours = database.queryBuckets(RollupResolution.HOUR, dayStart, dayEnd);
+        assertEquals(23, hours.size());
+        int steps = 0;
+        for (StepBucket hour : hours) {
+            assertEquals(rawCount(hour.getStartMillis(), hour.getStartMillis() + RollupResolution.HOUR.getDurationMillis(),
+                    StepType.JOGGING), hour.getJoggingSteps());
+            steps += hour.getAmountOfSteps();
+        }
+        assertEquals(days.get(0).getAmountOfSteps(), steps);
+    }
+
+    private void insertInBatches(int batchSize) {
+        long[] batchTimes = new long[batchSize];
+        byte[] batchStepTypes = new byte[batchSize];
+        for (int from = 0; from < times.length; from += batchSize) {
+            int count = Math.min(batchSize, times.length - from);
+            System.arraycopy(times, from, batchTimes, 0, count);
+            System.arraycopy(stepTypes, from, batchStepTypes, 0, count);
+            database.insertSteps(batchTimes, batchStepTypes, count);
+        }
+    }
+
+    private void assertCounts(long fromMillis, long toMillis) {
+        StepCounts counts = database.countSteps(fromMillis, toMillis);
+        assertEquals(rawCount(fromMillis, toMillis, StepType.WALKING), counts.getWalkingSteps());
+        assertEquals(rawCount(fromMillis, toMillis, StepType.JOGGING), counts.getJoggingSteps());
+        assertEquals(rawCount(fromMillis, toMillis, StepType.RUNNING), counts.getRunningSteps());
+    }
+
+    /**
+     * Counts the inserted steps of the given type (or of all types if null) within the range.
+     */
+    private int rawCount(long fromMillis, long toMillis, StepType stepType) {
+        int count = 0;
+        for (int i = 0; i < times.length; i++) {
+            if (times[i] >= fromMillis && times[i] < toMillis && (stepType == null || stepTypes[i] == stepType.ordinal())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long localTime(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(BERLIN);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.steppowergenerator;
+
+import android.os.SystemClock;
+
+/**
+ * The AndroidClock class implements the Clock interface with android.os.SystemClock,
+ * whose elapsed realtime is the time base of the sensor timestamps.
+ */
+public class AndroidClock implements Clock {
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public long elapsedRealtimeNanos() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+}
@@ -0,0 +1,744 @@
+package com.example.steppowergenerator;
+
+import android.Manifest;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener2;
+import android.hardware.SensorManager;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.core.app.NotificationCompat;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.steppowergenerator.history.StepHistoryDatabase;
+import com.example.steppowergenerator.history.StepHistoryRecorder;
+import com.example.steppowergenerator.metrics.DetectorMetrics;
+import com.example.steppowergenerator.session.SessionExporter;
+import com.example.steppowergenerator.session.SessionLogFormat;
+import com.example.steppowergenerator.session.SessionRecorder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ The StepCounterService class owns everything needed for counting steps: the registration in the
+ SensorManager, the StepDetector, the SamplingRateController, the session recorder and the StepStatistics.
+ At the start of every measurement the StepSource is chosen from the sensors of the device: the hardware step
+ detector or step counter (processed by the HardwareStepSource, optionally with the gyroscope for the step type)
+ if available, otherwise the acceleration sensor with the StepDetector.
+ The UI binds to the service and only observes the StepStatistics and the counting state, so a
+ configuration change or a recreated fragment neither re-registers the sensor nor loses records.
+ While counting, the service is started and runs in the foreground, so it also survives when no
+ activity is bound. Sensor events, step detection and recording run on the sensor thread of the service.
+ */
+public class StepCounterService extends Service
+        implements SensorEventListener2, StepListener, MagnitudeListener, SamplingRateListener {
+
+    private static final String TAG = "StepCounterService";
+
+    private static final String NOTIFICATION_CHANNEL_ID = "step_counting";
+    // The calibration of the step thresholds is kept in its own preferences, separately for every Android user.
+    private static final String PREFERENCES_CALIBRATION = "threshold_calibration";
+    private static final String PREFERENCE_GAIN = "gain";
+    private static final String PREFERENCE_WINDOW_COUNT = "window_count";
+    private static final int NOTIFICATION_ID = 1;
+
+    // Only the newest session logs and export files are kept, so the raw data do not fill the storage.
+    private static final int MAX_KEPT_FILES = 10;
+    private static final String EXPORT_DIRECTORY = "exports";
+    private static final String EXPORT_EXTENSION = ".spgx";
+
+    // In low power mode the sensor may keep events in its hardware FIFO for up to 10 seconds.
+    private static final int LOW_POWER_MAX_REPORT_LATENCY_US = 10 * 1000 * 1000;
+
+    // The live chart shows the last 10 seconds in 256 columns.
+    private static final long CHART_WINDOW_NS = 10 * 1000 * 1000000L;
+    private static final int CHART_COLUMNS = 256;
+
+    // The gyroscope is only needed for the mean angular rate of the hardware steps, 10 Hz are enough.
+    private static final int GYROSCOPE_PERIOD_US = SamplingRate.MODERATE.getPeriodUs();
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private SensorManager sensorManager;
+    private Sensor accelerationSensor;
+    private Sensor stepDetectorSensor;
+    private Sensor stepCounterSensor;
+    private Sensor gyroscopeSensor;
+
+    // Sensor events, step detection and recording run on this thread instead of the UI thread.
+    private HandlerThread sensorThread;
+    private Handler sensorHandler;
+
+    private StepDetector stepDetector;
+    // Adapts the thresholds of the StepDetector to the user; used on the sensor thread after onCreate.
+    private ThresholdCalibrator thresholdCalibrator;
+    private HardwareStepSource hardwareStepSource;
+    // Source of the current or last measurement, chosen in startCounting
+    private volatile StepSource stepSource;
+    // Chooses the sensor rate from the detected activity; used on the sensor thread.
+    private final SamplingRateController samplingRateController = new SamplingRateController();
+    // Schreibt alle Rohdaten der aktuellen Messung in eine Datei, z.B. für eine spätere Neuauswertung
+    private volatile SessionRecorder sessionRecorder;
+    // Exports the records and the steps of the current measurement as compressed columns for analysis.
+    // Used on the sensor thread only; chunks are written on the exporter's own background thread.
+    private SessionExporter sessionExporter;
+    // Stores every step for the history; add and flush are called on the sensor thread.
+    private StepHistoryDatabase stepHistoryDatabase;
+    private StepHistoryRecorder stepHistoryRecorder;
+
+    // Written on the sensor thread, observed on the UI thread.
+    private StepStatistics stepStatistics;
+    // Distance, moving time, calories and power, updated with every step on the sensor thread.
+    private final SessionMetrics sessionMetrics = new SessionMetrics();
+    // Energy harvested by the steps as time series, bounded for sessions of up to 24 hours.
+    private final PowerHarvestingModel powerHarvestingModel = new PowerHarvestingModel();
+    // Metrics of the StepDetector, only collected in debug builds (otherwise null).
+    private final DetectorMetrics detectorMetrics = BuildConfig.DEBUG ? new DetectorMetrics() : null;
+    // Total acceleration and step peaks of the last seconds for the live chart.
+    private final MagnitudeChartBuffer magnitudeChartBuffer = new MagnitudeChartBuffer(CHART_WINDOW_NS, CHART_COLUMNS);
+    private final MutableLiveData<Boolean> countingSteps = new MutableLiveData<>(false);
+
+    // Also read on the sensor thread when the sampling rate changes.
+    private volatile boolean isCountingSteps;
+    private boolean isSensorRegistered;
+    // Set on the UI thread when registering, reused when the sampling rate changes.
+    private volatile int maxReportLatencyUs;
+
+    /**
+     * Binder returned to clients in the same process, gives direct access to the service.
+     */
+    public class LocalBinder extends Binder {
+        public StepCounterService getService() {
+            return StepCounterService.this;
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        sensorManager = (SensorManager) getSystemService(SENSOR_SERVICE);
+        if (sensorManager != null) {
+            accelerationSensor = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+            stepDetectorSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
+            stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+            gyroscopeSensor = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+        }
+        sensorThread = new HandlerThread("SensorProcessing", Process.THREAD_PRIORITY_MORE_FAVORABLE);
+        sensorThread.start();
+        sensorHandler = new Handler(sensorThread.getLooper());
+
+        stepStatistics = new StepStatistics();
+        stepHistoryDatabase = new StepHistoryDatabase(this);
+        stepHistoryRecorder = new StepHistoryRecorder(stepHistoryDatabase, sensorHandler);
+        stepDetector = new StepDetector(DetectionMode.STREAMING, new AndroidClock());
+        stepDetector.registerStepListener(this);
+        stepDetector.registerMagnitudeListener(this);
+        stepDetector.setMetrics(detectorMetrics);
+        ThresholdStepClassifier stepClassifier = new ThresholdStepClassifier();
+        stepDetector.setStepClassifier(stepClassifier);
+        thresholdCalibrator = new ThresholdCalibrator(stepDetector, stepClassifier);
+        restoreCalibration();
+        hardwareStepSource = new HardwareStepSource(new AndroidClock());
+        hardwareStepSource.registerStepListener(this);
+        samplingRateController.registerSamplingRateListener(this);
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    /**
+     * The service is only started by itself in startCounting. If the system kills it,
+     * it is not restarted, since the state of the measurement is lost anyway.
+     */
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        return START_NOT_STICKY;
+    }
+
+    /**
+     * Determines which sensors can be used for counting steps. On Android 10 and later the hardware
+     * step sensors need the ACTIVITY_RECOGNITION permission; without it they are treated as missing.
+     *
+     * @return sensors of the device for StepSource.select
+     */
+    public SensorCapabilities getSensorCapabilities() {
+        boolean stepSensorsAllowed = Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                || checkSelfPermission(Manifest.permission.ACTIVITY_RECOGNITION) == PackageManager.PERMISSION_GRANTED;
+        return new SensorCapabilities(accelerationSensor != null,
+                stepSensorsAllowed && stepDetectorSensor != null,
+                stepSensorsAllowed && stepCounterSensor != null,
+                gyroscopeSensor != null);
+    }
+
+    /**
+     * Starts a new measurement: the service is started and moved to the foreground, the StepStatistics are reset,
+     * the cheapest StepSource of the device is chosen and its sensors are registered.
+     *
+     * @param lowPowerMode  true if the sensor should collect events in its hardware FIFO
+     * @param exportSession true if the records and steps should also be written to an export file for analysis
+     */
+    @MainThread
+    public void startCounting(boolean lowPowerMode, final boolean exportSession) {
+        if (isCountingSteps) {
+            return;
+        }
+        final StepSource source = StepSource.select(getSensorCapabilities(), lowPowerMode);
+        if (source == null) {
+            Log.e(TAG, "No sensor for counting steps");
+            return;
+        }
+        stepSource = source;
+        Log.d(TAG, "Counting steps with " + source);
+        startService(new Intent(this, StepCounterService.class));
+        startForeground(NOTIFICATION_ID, createNotification());
+
+        stepStatistics.reset();
+        final File sessionDirectory = new File(getFilesDir(), "sessions");
+        final File exportDirectory = new File(getFilesDir(), EXPORT_DIRECTORY);
+        // Runs on the sensor thread before the first sensor event of the new measurement.
+        sensorHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                stepDetector.resetSession();
+                hardwareStepSource.resetSession();
+                sessionMetrics.reset();
+                powerHarvestingModel.reset();
+                magnitudeChartBuffer.clear();
+                if (detectorMetrics != null) {
+                    detectorMetrics.reset();
+                }
+                // Only the data records of the acceleration sensor can be recorded and replayed.
+                if (source == StepSource.ACCELEROMETER) {
+                    startRecording(sessionDirectory);
+                }
+                if (exportSession) {
+                    startExport(exportDirectory);
+                }
+            }
+        });
+        // The sensor is not registered yet, so the controller is not used on the sensor thread.
+        samplingRateController.reset();
+        maxReportLatencyUs = lowPowerMode ? LOW_POWER_MAX_REPORT_LATENCY_US : 0;
+        isCountingSteps = true;
+        if (source == StepSource.ACCELEROMETER) {
+            if (detectorMetrics != null) {
+                detectorMetrics.setNominalSamplePeriod(samplingRateController.getSamplingRate().getPeriodUs() * 1000L);
+            }
+            registerAccelerationSensor(samplingRateController.getSamplingRate());
+        } else {
+            registerStepSensors(source == StepSource.STEP_DETECTOR ? stepDetectorSensor : stepCounterSensor,
+                    !lowPowerMode);
+        }
+        isSensorRegistered = true;
+        countingSteps.setValue(true);
+    }
+
+    /**
+     * Stops the measurement. In low power mode the events still in the hardware FIFO are requested first,
+     * and the measurement is finished in onFlushCompleted.
+     */
+    @MainThread
+    public void stopCounting() {
+        if (!isCountingSteps) {
+            return;
+        }
+        isCountingSteps = false;
+        // The last remaining data is also processed
+        if (maxReportLatencyUs == 0 || !sensorManager.flush(this)) {
+            finishCounting();
+        }
+    }
+
+    /**
+     * Finishes the measurement: The service is not registered in the SensorManager any more,
+     * the session log and the export file are closed and the service leaves the foreground.
+     */
+    @MainThread
+    private void finishCounting() {
+        if (!isSensorRegistered) {
+            return;
+        }
+        sensorManager.unregisterListener(this);
+        isSensorRegistered = false;
+        // Runs on the sensor thread after the sensor events still waiting there.
+        sensorHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                closeSessionRecorder();
+                closeSessionExporter();
+                saveCalibration();
+                stepHistoryRecorder.flush();
+                dumpMetrics();
+                Log.d(TAG, "Step latency (ms) avg: " + stepDetector.getAverageStepLatencyNanos() / 1000000L
+                        + ", max: " + stepDetector.getMaxStepLatencyNanos() / 1000000L);
+            }
+        });
+        countingSteps.setValue(false);
+        stopForeground(true);
+        // The service keeps running while clients are bound.
+        stopSelf();
+    }
+
+    @MainThread
+    private void registerAccelerationSensor(SamplingRate samplingRate) {
+        sensorManager.registerListener(this, accelerationSensor,
+                samplingRate.getPeriodUs(), maxReportLatencyUs, sensorHandler);
+    }
+
+    /**
+     * Registers a hardware step sensor and, if wanted and available, the gyroscope for the step types.
+     * Step events are reported on change, so no sampling period applies to them.
+     *
+     * @param stepSensor   step detector or step counter
+     * @param useGyroscope true to register the gyroscope as well
+     */
+    private void registerStepSensors(Sensor stepSensor, boolean useGyroscope) {
+        sensorManager.registerListener(this, stepSensor,
+                SensorManager.SENSOR_DELAY_NORMAL, maxReportLatencyUs, sensorHandler);
+        if (useGyroscope && gyroscopeSensor != null) {
+            sensorManager.registerListener(this, gyroscopeSensor,
+                    GYROSCOPE_PERIOD_US, maxReportLatencyUs, sensorHandler);
+        }
+    }
+
+    /**
+     * Creates the notification shown while the service runs in the foreground.
+     * Tapping it opens the app again.
+     *
+     * @return Notification of the running measurement
+     */
+    private Notification createNotification() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(NOTIFICATION_CHANNEL_ID,
+                    getText(R.string.notification_channel_step_counting), NotificationManager.IMPORTANCE_LOW);
+            NotificationManager notificationManager = getSystemService(NotificationManager.class);
+            if (notificationManager != null) {
+                notificationManager.createNotificationChannel(channel);
+            }
+        }
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class), PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        return new NotificationCompat.Builder(this, NOTIFICATION_CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_directions_walk_black_24dp)
+                .setContentTitle(getText(R.string.pedometer_running))
+                .setContentText(getText(R.string.notification_step_counting_text))
+                .setContentIntent(contentIntent)
+                .setOngoing(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .build();
+    }
+
+    /**
+     * Opens a new session log file in the app directory "sessions", in which all raw data of
+     * the measurement are recorded. If this fails, steps are still counted, just not recorded.
+     * Runs on the sensor thread.
+     *
+     * @param sessionDirectory directory of the session log files
+     */
+    private void startRecording(File sessionDirectory) {
+        if (!sessionDirectory.isDirectory() && !sessionDirectory.mkdirs()) {
+            Log.e(TAG, "Cannot create " + sessionDirectory);
+            return;
+        }
+        pruneFiles(sessionDirectory);
+        File sessionFile = new File(sessionDirectory, "session-" + System.currentTimeMillis() + ".spg");
+        try {
+            sessionRecorder = new SessionRecorder(sessionFile, SessionLogFormat.COMPACT, stepDetector.getTimeOffsetToUnix(),
+                    stepDetector.getWalkingThreshold());
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot record the session to " + sessionFile, e);
+        }
+    }
+
+    /**
+     * Writes the remaining records of the current session log and closes the file.
+     */
+    private void closeSessionRecorder() {
+        if (sessionRecorder != null) {
+            try {
+                sessionRecorder.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot close " + sessionRecorder.getFile(), e);
+            }
+            sessionRecorder = null;
+        }
+    }
+
+    /**
+     * Opens a new export file in the app directory "exports" for the records and steps of the measurement.
+     * With a hardware step sensor the file only contains steps. If this fails, steps are still counted, just not exported.
+     * Runs on the sensor thread.
+     *
+     * @param exportDirectory directory of the export files
+     */
+    private void startExport(File exportDirectory) {
+        if (!exportDirectory.isDirectory() && !exportDirectory.mkdirs()) {
+            Log.e(TAG, "Cannot create " + exportDirectory);
+            return;
+        }
+        pruneFiles(exportDirectory);
+        File exportFile = new File(exportDirectory, "session-" + System.currentTimeMillis() + EXPORT_EXTENSION);
+        try {
+            sessionExporter = new SessionExporter(exportFile, stepDetector.getTimeOffsetToUnix());
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot export the session to " + exportFile, e);
+        }
+    }
+
+    /**
+     * Deletes the oldest files of a directory, so that a new file can be added without exceeding MAX_KEPT_FILES.
+     * Runs on the sensor thread.
+     *
+     * @param directory directory of the session log or export files
+     */
+    private static void pruneFiles(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null || files.length < MAX_KEPT_FILES) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                return Long.compare(file1.lastModified(), file2.lastModified());
+            }
+        });
+        for (int i = 0; i <= files.length - MAX_KEPT_FILES; i++) {
+            if (!files[i].delete()) {
+                Log.e(TAG, "Cannot delete " + files[i]);
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining records and steps of the current export file and closes it.
+     * Runs on the sensor thread.
+     */
+    private void closeSessionExporter() {
+        if (sessionExporter != null) {
+            try {
+                sessionExporter.close();
+                if (sessionExporter.getDroppedSamples() > 0) {
+                    Log.e(TAG, sessionExporter.getDroppedSamples() + " records not exported to " + sessionExporter.getFile());
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot write " + sessionExporter.getFile(), e);
+            }
+            sessionExporter = null;
+        }
+    }
+
+    /**
+     * Applies the calibration of the step thresholds saved after the last measurement, so the first steps
+     * are already detected with them. Without a saved calibration the nominal thresholds are used.
+     */
+    private void restoreCalibration() {
+        SharedPreferences preferences = getSharedPreferences(PREFERENCES_CALIBRATION, MODE_PRIVATE);
+        if (preferences.contains(PREFERENCE_GAIN)) {
+            thresholdCalibrator.restore(preferences.getFloat(PREFERENCE_GAIN, 1),
+                    preferences.getInt(PREFERENCE_WINDOW_COUNT, 0));
+            Log.d(TAG, "Walking threshold calibrated to " + thresholdCalibrator.getWalkingThreshold());
+        }
+    }
+
+    /**
+     * Saves the calibration of the step thresholds for the next measurement. Runs on the sensor thread.
+     */
+    private void saveCalibration() {
+        if (thresholdCalibrator.getWindowCount() == 0) {
+            return;
+        }
+        getSharedPreferences(PREFERENCES_CALIBRATION, MODE_PRIVATE).edit()
+                .putFloat(PREFERENCE_GAIN, (float) thresholdCalibrator.getGain())
+                .putInt(PREFERENCE_WINDOW_COUNT, thresholdCalibrator.getWindowCount())
+                .apply();
+    }
+
+    /**
+     * Writes the DetectorMetrics of the finished measurement to a text file in the metrics directory.
+     * Runs on the sensor thread.
+     */
+    private void dumpMetrics() {
+        if (detectorMetrics == null) {
+            return;
+        }
+        File metricsDirectory = new File(getFilesDir(), "metrics");
+        if (!metricsDirectory.isDirectory() && !metricsDirectory.mkdirs()) {
+            Log.e(TAG, "Cannot create " + metricsDirectory);
+            return;
+        }
+        File metricsFile = new File(metricsDirectory, "metrics-" + System.currentTimeMillis() + ".txt");
+        try (Writer writer = new FileWriter(metricsFile)) {
+            detectorMetrics.dump(writer);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write " + metricsFile, e);
+        }
+    }
+
+    /**
+     * Is called when the measured values of a registered sensor change. Events of the hardware step sensors
+     * and the gyroscope go to the HardwareStepSource, events of the acceleration sensor to the StepDetector.
+     * Runs on the sensor thread of the service, not on the UI thread.
+     *
+     * @param sensorEvent SensorEvent with all new measured values, time stamp and origin
+     */
+    @Override
+    public void onSensorChanged(SensorEvent sensorEvent) {
+        switch (sensorEvent.sensor.getType()) {
+            case Sensor.TYPE_STEP_DETECTOR:
+                hardwareStepSource.addStepEvent(sensorEvent.timestamp);
+                return;
+            case Sensor.TYPE_STEP_COUNTER:
+                hardwareStepSource.addStepCount(sensorEvent.timestamp, (long) sensorEvent.values[0]);
+                return;
+            case Sensor.TYPE_GYROSCOPE:
+                hardwareStepSource.addRotation(sensorEvent.timestamp,
+                        sensorEvent.values[0], sensorEvent.values[1], sensorEvent.values[2]);
+                return;
+        }
+
+        stepDetector.addSample(sensorEvent.timestamp,
+                sensorEvent.values[0], sensorEvent.values[1], sensorEvent.values[2]);
+
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder != null) {
+            try {
+                recorder.append(sensorEvent.timestamp,
+                        sensorEvent.values[0], sensorEvent.values[1], sensorEvent.values[2]);
+            } catch (IOException e) {
+                Log.e(TAG, "Recording the session failed", e);
+                closeSessionRecorder();
+            }
+        }
+        if (sessionExporter != null) {
+            sessionExporter.accept(sensorEvent.timestamp,
+                    sensorEvent.values[0], sensorEvent.values[1], sensorEvent.values[2]);
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int i) {
+
+    }
+
+    /**
+     * Called on the sensor thread when all events that were still in the hardware FIFO
+     * at the time of SensorManager.flush have been delivered. Only then the measurement is finished.
+     * The flush of the gyroscope is ignored, the measurement waits for the step sensor.
+     *
+     * @param sensor Sensor that has been flushed.
+     */
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        if (sensor.getType() == Sensor.TYPE_GYROSCOPE) {
+            return;
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isCountingSteps) {
+                    finishCounting();
+                }
+            }
+        });
+    }
+
+    /**
+     * Is called when a step has been recognized in the StepDetector or the HardwareStepSource.
+     * Adds the step to the SessionMetrics, the PowerHarvestingModel, the live chart and the StepStatistics,
+     * which publish it to the UI at a limited rate, to the step history and to the export file. Runs on the sensor thread.
+     *
+     * @param accelerationData AccelerationData: A data record of the acceleration sensor, which stands for a step.
+     * @param stepType Enum StepType: One of the three step types from the Enum StepType.
+     */
+    @Override
+    public void step(AccelerationData accelerationData, StepType stepType) {
+        samplingRateController.step(accelerationData, stepType);
+        sessionMetrics.step(accelerationData, stepType);
+        powerHarvestingModel.step(accelerationData, stepType);
+        magnitudeChartBuffer.step(accelerationData, stepType);
+        stepStatistics.addStep(stepType);
+        stepHistoryRecorder.add(accelerationData.getTime(), stepType);
+        if (sessionExporter != null) {
+            sessionExporter.step(accelerationData, stepType);
+        }
+    }
+
+    /**
+     * Is called by the StepDetector with the total acceleration of every data record, on the sensor thread.
+     * Passes it on to the SamplingRateController, the ThresholdCalibrator and the live chart.
+     *
+     * @param timestampNs timestamp of the sensor event
+     * @param value       total acceleration
+     */
+    @Override
+    public void magnitude(long timestampNs, double value) {
+        samplingRateController.magnitude(timestampNs, value);
+        thresholdCalibrator.magnitude(timestampNs, value);
+        magnitudeChartBuffer.magnitude(timestampNs, value);
+    }
+
+    /**
+     * Called on the sensor thread when the SamplingRateController has chosen a new rate
+     * (higher when jogging or running, lower when standing still). The sensor is registered again with this rate
+     * on the UI thread, where the measurement is finished, so it cannot stay registered after the measurement.
+     *
+     * @param samplingRate new sampling rate
+     */
+    @Override
+    public void samplingRateChanged(final SamplingRate samplingRate) {
+        if (!isCountingSteps || stepSource != StepSource.ACCELEROMETER) {
+            return;
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // The measurement may have been stopped in the meantime.
+                if (!isCountingSteps || !isSensorRegistered || stepSource != StepSource.ACCELEROMETER) {
+                    return;
+                }
+                sensorManager.unregisterListener(StepCounterService.this);
+                registerAccelerationSensor(samplingRate);
+                if (detectorMetrics != null) {
+                    // Runs after the records of the old rate still waiting on the sensor thread,
+                    // otherwise they would be counted as dropped.
+                    sensorHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            detectorMetrics.setNominalSamplePeriod(samplingRate.getPeriodUs() * 1000L);
+                        }
+                    });
+                }
+                Log.d(TAG, "Sampling rate changed to " + samplingRate);
+            }
+        });
+    }
+
+    @Override
+    public void onDestroy() {
+        if (sensorManager != null) {
+            sensorManager.unregisterListener(this);
+        }
+        isCountingSteps = false;
+        stepStatistics.dispose();
+        // The recorder is closed on the sensor thread after the events still waiting there.
+        sensorHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                closeSessionRecorder();
+                closeSessionExporter();
+                stepHistoryRecorder.close();
+            }
+        });
+        sensorThread.quitSafely();
+        super.onDestroy();
+    }
+
+    public StepStatistics getStepStatistics() {
+        return stepStatistics;
+    }
+
+    /**
+     * @return results of the current or last measurement, can be read on the UI thread while counting
+     */
+    public SessionMetrics getSessionMetrics() {
+        return sessionMetrics;
+    }
+
+    /**
+     * @return harvested energy and power series of the current or last measurement
+     */
+    public PowerHarvestingModel getPowerHarvestingModel() {
+        return powerHarvestingModel;
+    }
+
+    /**
+     * Returns the newest export file, e.g. to share it. While counting with export, this is the file
+     * still being written.
+     *
+     * @return newest export file, or null if no measurement was exported
+     */
+    public File getLatestExportFile() {
+        File[] files = new File(getFilesDir(), EXPORT_DIRECTORY).listFiles();
+        File latest = null;
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(EXPORT_EXTENSION) && (latest == null || file.lastModified() > latest.lastModified())) {
+                    latest = file;
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * @return total acceleration and step peaks of the last seconds, for the live chart
+     */
+    public MagnitudeChartBuffer getMagnitudeChartBuffer() {
+        return magnitudeChartBuffer;
+    }
+
+    /**
+     * @return metrics of the StepDetector, null in release builds
+     */
+    public DetectorMetrics getDetectorMetrics() {
+        return detectorMetrics;
+    }
+
+    /**
+     * @return database with all counted steps and their rollups, must only be queried off the UI thread
+     */
+    public StepHistoryDatabase getStepHistoryDatabase() {
+        return stepHistoryDatabase;
+    }
+
+    /**
+     * @return LiveData which is true while a measurement is running (until the FIFO has been flushed)
+     */
+    public LiveData<Boolean> getCountingSteps() {
+        return countingSteps;
+    }
+
+    public boolean isCountingSteps() {
+        return isCountingSteps;
+    }
+
+    /**
+     * @return source of the current or last measurement, null before the first one
+     */
+    public StepSource getStepSource() {
+        return stepSource;
+    }
+
+    /**
+     * @return true if the acceleration sensor or the step counter has a hardware FIFO, so the low power mode can be used
+     */
+    public boolean hasSensorFifo() {
+        return (accelerationSensor != null && accelerationSensor.getFifoMaxEventCount() > 0)
+                || (stepCounterSensor != null && stepCounterSensor.getFifoMaxEventCount() > 0);
+    }
+}
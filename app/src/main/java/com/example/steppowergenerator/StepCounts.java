@@ -0,0 +1,63 @@
+package com.example.steppowergenerator;
+
+/**
+ * The StepCounts class is an unchangeable snapshot of the step values of a measurement,
+ * as published by StepStatistics.
+ */
+public final class StepCounts {
+
+    public static final StepCounts EMPTY = new StepCounts(0, 0, 0, null);
+
+    private final int walkingSteps;
+    private final int joggingSteps;
+    private final int runningSteps;
+    private final StepType lastStepType;
+
+    public StepCounts(int walkingSteps, int joggingSteps, int runningSteps, StepType lastStepType) {
+        this.walkingSteps = walkingSteps;
+        this.joggingSteps = joggingSteps;
+        this.runningSteps = runningSteps;
+        this.lastStepType = lastStepType;
+    }
+
+    public int getAmountOfSteps() {
+        return walkingSteps + joggingSteps + runningSteps;
+    }
+
+    public int getWalkingSteps() {
+        return walkingSteps;
+    }
+
+    public int getJoggingSteps() {
+        return joggingSteps;
+    }
+
+    public int getRunningSteps() {
+        return runningSteps;
+    }
+
+    /**
+     * @return StepType of the last step, or null if there was no step yet.
+     */
+    public StepType getLastStepType() {
+        return lastStepType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StepCounts)) return false;
+        StepCounts other = (StepCounts) o;
+        return walkingSteps == other.walkingSteps && joggingSteps == other.joggingSteps
+                && runningSteps == other.runningSteps && lastStepType == other.lastStepType;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = walkingSteps;
+        result = 31 * result + joggingSteps;
+        result = 31 * result + runningSteps;
+        result = 31 * result + (lastStepType != null ? lastStepType.hashCode() : 0);
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.steppowergenerator;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ The StepStatistics class counts the steps of a measurement. Steps can be added from any thread
+ without locks; the UI observes the counts as LiveData. A new StepCounts snapshot is published
+ at most once per frame and at most every 100 milliseconds, and only if a value has changed,
+ so the UI does not have to redraw for every single step.
+ */
+public class StepStatistics {
+
+    private static final long MIN_PUBLISH_INTERVAL_NS = 100 * 1000000L;
+
+    private final AtomicInteger walkingSteps = new AtomicInteger();
+    private final AtomicInteger joggingSteps = new AtomicInteger();
+    private final AtomicInteger runningSteps = new AtomicInteger();
+    private volatile StepType lastStepType;
+
+    private final MutableLiveData<StepCounts> stepCounts = new MutableLiveData<>(StepCounts.EMPTY);
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean publishPending = new AtomicBoolean();
+    private long lastPublishNanos; // only used on the UI thread
+
+    private final Choreographer.FrameCallback publishFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            long waitNanos = lastPublishNanos + MIN_PUBLISH_INTERVAL_NS - frameTimeNanos;
+            if (waitNanos > 0) {
+                Choreographer.getInstance().postFrameCallbackDelayed(this, waitNanos / 1000000L + 1);
+                return;
+            }
+            // Reset first, so a step arriving now schedules the next update.
+            publishPending.set(false);
+            lastPublishNanos = frameTimeNanos;
+            StepCounts counts = getCounts();
+            if (!counts.equals(stepCounts.getValue())) {
+                stepCounts.setValue(counts);
+            }
+        }
+    };
+    private final Runnable schedulePublish = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(publishFrameCallback);
+        }
+    };
+
+    /**
+     * Counts a step. Can be called from any thread.
+     *
+     * @param stepType type of the step
+     */
+    public void addStep(StepType stepType) {
+        if (stepType == StepType.WALKING) {
+            walkingSteps.incrementAndGet();
+        } else if (stepType == StepType.JOGGING) {
+            joggingSteps.incrementAndGet();
+        } else {
+            runningSteps.incrementAndGet();
+        }
+        lastStepType = stepType;
+        publish();
+    }
+
+    /**
+     * Sets all counts back to 0. Can be called from any thread.
+     */
+    public void reset() {
+        walkingSteps.set(0);
+        joggingSteps.set(0);
+        runningSteps.set(0);
+        lastStepType = null;
+        publish();
+    }
+
+    /**
+     * Requests a new snapshot for the observers. Calls before the snapshot is published are combined.
+     */
+    private void publish() {
+        if (publishPending.compareAndSet(false, true)) {
+            mainHandler.post(schedulePublish);
+        }
+    }
+
+    /**
+     * @return StepCounts: The current counts, read directly from the counters.
+     */
+    public StepCounts getCounts() {
+        return new StepCounts(walkingSteps.get(), joggingSteps.get(), runningSteps.get(), lastStepType);
+    }
+
+    /**
+     * @return LiveData with the counts, updated at a limited rate.
+     */
+    public LiveData<StepCounts> getStepCounts() {
+        return stepCounts;
+    }
+
+    /**
+     * Removes pending updates. Must be called on the UI thread when the statistics are no longer used.
+     */
+    public void dispose() {
+        mainHandler.removeCallbacks(schedulePublish);
+        Choreographer.getInstance().removeFrameCallback(publishFrameCallback);
+    }
+}
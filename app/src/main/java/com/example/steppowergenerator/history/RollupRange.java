@@ -0,0 +1,82 @@
+package com.example.steppowergenerator.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * The RollupRange class is one part of a range of time as counted by StepHistoryDatabase.countSteps:
+ * either whole buckets of one RollupResolution, or a rest at the edges that is read from the raw steps.
+ */
+final class RollupRange {
+
+    private static final RollupResolution[] RESOLUTIONS = RollupResolution.values();
+
+    private final RollupResolution resolution;
+    private final long fromMillis;
+    private final long toMillis;
+
+    RollupRange(RollupResolution resolution, long fromMillis, long toMillis) {
+        this.resolution = resolution;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    /**
+     * Splits a range into whole days, the remaining whole hours at the edges, and so on down to the
+     * parts of the edges shorter than a minute.
+     *
+     * @param fromMillis start of the range (inclusive)
+     * @param toMillis   end of the range (exclusive)
+     * @param timeZone   time zone of the buckets
+     * @return parts of the range, coarsest first, without empty parts
+     */
+    static List<RollupRange> decompose(long fromMillis, long toMillis, TimeZone timeZone) {
+        List<RollupRange> ranges = new ArrayList<>();
+        decompose(fromMillis, toMillis, RESOLUTIONS.length - 1, timeZone, ranges);
+        return ranges;
+    }
+
+    private static void decompose(long fromMillis, long toMillis, int resolutionIndex, TimeZone timeZone,
+                                  List<RollupRange> ranges) {
+        if (fromMillis >= toMillis) {
+            return;
+        }
+        if (resolutionIndex < 0) {
+            ranges.add(new RollupRange(null, fromMillis, toMillis));
+            return;
+        }
+
+        RollupResolution resolution = RESOLUTIONS[resolutionIndex];
+        long firstBucketStart = resolution.ceilBucketStart(fromMillis, timeZone);
+        long endBucketStart = resolution.bucketStart(toMillis, timeZone);
+        if (firstBucketStart >= endBucketStart) {
+            decompose(fromMillis, toMillis, resolutionIndex - 1, timeZone, ranges);
+            return;
+        }
+        ranges.add(new RollupRange(resolution, firstBucketStart, endBucketStart));
+        decompose(fromMillis, firstBucketStart, resolutionIndex - 1, timeZone, ranges);
+        decompose(endBucketStart, toMillis, resolutionIndex - 1, timeZone, ranges);
+    }
+
+    /**
+     * @return resolution of the buckets, or null if the range is read from the raw steps
+     */
+    RollupResolution getResolution() {
+        return resolution;
+    }
+
+    /**
+     * @return start of the range; for rollups the start of its first bucket
+     */
+    long getFromMillis() {
+        return fromMillis;
+    }
+
+    /**
+     * @return end of the range (exclusive); for rollups the start of the bucket after the last one
+     */
+    long getToMillis() {
+        return toMillis;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.steppowergenerator.history;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * The RollupResolution enum contains the sizes of the time buckets in which the StepHistoryDatabase
+ * sums up the steps. The buckets start at full local minutes, hours and days.
+ */
+public enum RollupResolution {
+        MINUTE(60 * 1000L),
+        HOUR(60 * 60 * 1000L),
+        DAY(24 * 60 * 60 * 1000L);
+
+        private final long durationMillis;
+
+        RollupResolution(long durationMillis) {
+                this.durationMillis = durationMillis;
+        }
+
+        public long getDurationMillis() {
+                return durationMillis;
+        }
+
+        /**
+         * Returns the start of the bucket containing the given time, in local time of the given zone.
+         * MINUTE and HOUR buckets are truncated with the offset at the given time. A DAY bucket starts at local
+         * midnight of the calendar day, with the offset at midnight, so on days with a daylight saving time
+         * change it is 23 or 25 hours long.
+         *
+         * @param timeMillis Unix time in milliseconds
+         * @param timeZone   time zone of the buckets
+         * @return Unix time of the bucket start in milliseconds
+         */
+        public long bucketStart(long timeMillis, TimeZone timeZone) {
+                if (this == DAY) {
+                        Calendar calendar = Calendar.getInstance(timeZone);
+                        calendar.setTimeInMillis(timeMillis);
+                        calendar.set(Calendar.HOUR_OF_DAY, 0);
+                        calendar.set(Calendar.MINUTE, 0);
+                        calendar.set(Calendar.SECOND, 0);
+                        calendar.set(Calendar.MILLISECOND, 0);
+                        return calendar.getTimeInMillis();
+                }
+                long offset = timeZone.getOffset(timeMillis);
+                long localTime = timeMillis + offset;
+                return localTime - Math.floorMod(localTime, durationMillis) - offset;
+        }
+
+        /**
+         * Returns the start of the bucket after the one starting at bucketStart.
+         * Days with a daylight saving time change are 23 or 25 hours long, so for DAY the start is searched.
+         */
+        public long nextBucketStart(long bucketStart, TimeZone timeZone) {
+                if (this == DAY) {
+                        long twoHours = 2 * HOUR.durationMillis;
+                        return bucketStart(bucketStart + durationMillis + twoHours, timeZone);
+                }
+                return bucketStart + durationMillis;
+        }
+
+        /**
+         * Returns the start of the first bucket starting at or after timeMillis.
+         */
+        public long ceilBucketStart(long timeMillis, TimeZone timeZone) {
+                long bucketStart = bucketStart(timeMillis, timeZone);
+                return bucketStart == timeMillis ? bucketStart : nextBucketStart(bucketStart, timeZone);
+        }
+}
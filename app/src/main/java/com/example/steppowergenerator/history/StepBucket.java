@@ -0,0 +1,46 @@
+package com.example.steppowergenerator.history;
+
+/**
+ * The StepBucket class is an unchangeable row of the rollup table: the steps per step type
+ * within one time bucket of a RollupResolution.
+ */
+public final class StepBucket {
+
+    private final RollupResolution resolution;
+    private final long startMillis;
+    private final int walkingSteps;
+    private final int joggingSteps;
+    private final int runningSteps;
+
+    public StepBucket(RollupResolution resolution, long startMillis, int walkingSteps, int joggingSteps, int runningSteps) {
+        this.resolution = resolution;
+        this.startMillis = startMillis;
+        this.walkingSteps = walkingSteps;
+        this.joggingSteps = joggingSteps;
+        this.runningSteps = runningSteps;
+    }
+
+    public RollupResolution getResolution() {
+        return resolution;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public int getWalkingSteps() {
+        return walkingSteps;
+    }
+
+    public int getJoggingSteps() {
+        return joggingSteps;
+    }
+
+    public int getRunningSteps() {
+        return runningSteps;
+    }
+
+    public int getAmountOfSteps() {
+        return walkingSteps + joggingSteps + runningSteps;
+    }
+}
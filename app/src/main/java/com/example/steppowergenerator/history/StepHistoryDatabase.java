@@ -0,0 +1,208 @@
+package com.example.steppowergenerator.history;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.WorkerThread;
+
+import com.example.steppowergenerator.StepCounts;
+import com.example.steppowergenerator.StepType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ The StepHistoryDatabase class stores every counted step and keeps per minute, per hour and per day
+ rollups of the steps. The rollups are updated in the same transaction as the steps are inserted,
+ so they always match the raw steps. Queries over long ranges are answered from the coarsest rollups
+ that fit into the range; only the edges of the range are read from finer rollups or from the raw steps.
+ All methods access the database and must not be called on the UI thread.
+ */
+public class StepHistoryDatabase extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "step_history.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_STEPS = "steps";
+    private static final String TABLE_ROLLUPS = "step_rollups";
+
+    // from fine to coarse
+    private static final RollupResolution[] RESOLUTIONS = RollupResolution.values();
+    private static final StepType[] STEP_TYPES = StepType.values();
+
+    private final TimeZone timeZone;
+
+    public StepHistoryDatabase(Context context) {
+        this(context, TimeZone.getDefault());
+    }
+
+    /**
+     * @param context  context of the app
+     * @param timeZone time zone in which the hour and day buckets start
+     */
+    public StepHistoryDatabase(Context context, TimeZone timeZone) {
+        this(context, DATABASE_NAME, timeZone);
+    }
+
+    /**
+     * @param context  context of the app
+     * @param name     file name of the database, or null for a database in memory (for tests)
+     * @param timeZone time zone in which the hour and day buckets start
+     */
+    StepHistoryDatabase(Context context, String name, TimeZone timeZone) {
+        super(context, name, null, DATABASE_VERSION);
+        this.timeZone = timeZone;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_STEPS + " (time INTEGER NOT NULL, step_type INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX steps_time ON " + TABLE_STEPS + " (time)");
+        db.execSQL("CREATE TABLE " + TABLE_ROLLUPS + " (resolution INTEGER NOT NULL, bucket_start INTEGER NOT NULL,"
+                + " walking INTEGER NOT NULL, jogging INTEGER NOT NULL, running INTEGER NOT NULL,"
+                + " PRIMARY KEY (resolution, bucket_start)) WITHOUT ROWID");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // There is only version 1 so far.
+    }
+
+    /**
+     * Inserts steps and adds them to all rollups in a single transaction.
+     * The steps must be in chronological order.
+     *
+     * @param times     Unix times of the steps in milliseconds
+     * @param stepTypes StepType ordinals of the steps
+     * @param count     number of steps to insert from the start of the arrays
+     */
+    @WorkerThread
+    public void insertSteps(long[] times, byte[] stepTypes, int count) {
+        if (count == 0) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement insertStep = db.compileStatement(
+                    "INSERT INTO " + TABLE_STEPS + " (time, step_type) VALUES (?, ?)");
+            for (int i = 0; i < count; i++) {
+                insertStep.bindLong(1, times[i]);
+                insertStep.bindLong(2, stepTypes[i]);
+                insertStep.executeInsert();
+            }
+
+            SQLiteStatement insertBucket = db.compileStatement(
+                    "INSERT OR IGNORE INTO " + TABLE_ROLLUPS + " VALUES (?, ?, 0, 0, 0)");
+            SQLiteStatement updateBucket = db.compileStatement(
+                    "UPDATE " + TABLE_ROLLUPS + " SET walking = walking + ?, jogging = jogging + ?, running = running + ?"
+                            + " WHERE resolution = ? AND bucket_start = ?");
+            int[] stepsPerType = new int[STEP_TYPES.length];
+            for (RollupResolution resolution : RESOLUTIONS) {
+                // Since the steps are in order, each bucket is one run of steps.
+                long bucketStart = resolution.bucketStart(times[0], timeZone);
+                long nextBucketStart = resolution.nextBucketStart(bucketStart, timeZone);
+                for (int i = 0; i < count; i++) {
+                    if (times[i] >= nextBucketStart) {
+                        addToBucket(insertBucket, updateBucket, resolution, bucketStart, stepsPerType);
+                        bucketStart = resolution.bucketStart(times[i], timeZone);
+                        nextBucketStart = resolution.nextBucketStart(bucketStart, timeZone);
+                    }
+                    stepsPerType[stepTypes[i]]++;
+                }
+                addToBucket(insertBucket, updateBucket, resolution, bucketStart, stepsPerType);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Adds the counted steps to a rollup row, creating it if necessary, and sets the counts back to 0.
+     */
+    private static void addToBucket(SQLiteStatement insertBucket, SQLiteStatement updateBucket,
+                                    RollupResolution resolution, long bucketStart, int[] stepsPerType) {
+        insertBucket.bindLong(1, resolution.ordinal());
+        insertBucket.bindLong(2, bucketStart);
+        insertBucket.executeInsert();
+
+        updateBucket.bindLong(1, stepsPerType[StepType.WALKING.ordinal()]);
+        updateBucket.bindLong(2, stepsPerType[StepType.JOGGING.ordinal()]);
+        updateBucket.bindLong(3, stepsPerType[StepType.RUNNING.ordinal()]);
+        updateBucket.bindLong(4, resolution.ordinal());
+        updateBucket.bindLong(5, bucketStart);
+        updateBucket.executeUpdateDelete();
+
+        for (int i = 0; i < stepsPerType.length; i++) {
+            stepsPerType[i] = 0;
+        }
+    }
+
+    /**
+     * Returns the rollup rows of one resolution whose buckets start within the given range,
+     * in chronological order. Buckets without steps are not returned.
+     *
+     * @param resolution size of the buckets
+     * @param fromMillis start of the range (inclusive)
+     * @param toMillis   end of the range (exclusive)
+     * @return rollup rows, e.g. for a chart of the steps per day
+     */
+    @WorkerThread
+    public List<StepBucket> queryBuckets(RollupResolution resolution, long fromMillis, long toMillis) {
+        List<StepBucket> buckets = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT bucket_start, walking, jogging, running FROM " + TABLE_ROLLUPS
+                        + " WHERE resolution = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start",
+                new String[]{String.valueOf(resolution.ordinal()), String.valueOf(fromMillis), String.valueOf(toMillis)})) {
+            while (cursor.moveToNext()) {
+                buckets.add(new StepBucket(resolution, cursor.getLong(0), cursor.getInt(1), cursor.getInt(2), cursor.getInt(3)));
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Counts the steps within the given range. Whole days are read from the day rollups, the remaining
+     * whole hours at the edges from the hour rollups, and so on; only the parts of the edges shorter
+     * than a minute are read from the raw steps. So even a range of several months needs only a few
+     * indexed queries.
+     *
+     * @param fromMillis start of the range (inclusive)
+     * @param toMillis   end of the range (exclusive)
+     * @return StepCounts of the range, without last step type
+     */
+    @WorkerThread
+    public StepCounts countSteps(long fromMillis, long toMillis) {
+        int[] stepsPerType = new int[STEP_TYPES.length];
+        SQLiteDatabase db = getReadableDatabase();
+        for (RollupRange range : RollupRange.decompose(fromMillis, toMillis, timeZone)) {
+            String from = String.valueOf(range.getFromMillis());
+            String to = String.valueOf(range.getToMillis());
+            if (range.getResolution() == null) {
+                try (Cursor cursor = db.rawQuery("SELECT step_type, COUNT(*) FROM " + TABLE_STEPS
+                        + " WHERE time >= ? AND time < ? GROUP BY step_type", new String[]{from, to})) {
+                    while (cursor.moveToNext()) {
+                        stepsPerType[cursor.getInt(0)] += cursor.getInt(1);
+                    }
+                }
+                continue;
+            }
+            try (Cursor cursor = db.rawQuery("SELECT SUM(walking), SUM(jogging), SUM(running) FROM " + TABLE_ROLLUPS
+                            + " WHERE resolution = ? AND bucket_start >= ? AND bucket_start < ?",
+                    new String[]{String.valueOf(range.getResolution().ordinal()), from, to})) {
+                if (cursor.moveToFirst()) {
+                    stepsPerType[StepType.WALKING.ordinal()] += cursor.getInt(0);
+                    stepsPerType[StepType.JOGGING.ordinal()] += cursor.getInt(1);
+                    stepsPerType[StepType.RUNNING.ordinal()] += cursor.getInt(2);
+                }
+            }
+        }
+        return new StepCounts(stepsPerType[StepType.WALKING.ordinal()], stepsPerType[StepType.JOGGING.ordinal()],
+                stepsPerType[StepType.RUNNING.ordinal()], null);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.steppowergenerator.history;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.database.SQLException;
+import android.util.Log;
+
+import com.example.steppowergenerator.StepType;
+
+/**
+ The StepHistoryRecorder class collects counted steps in primitive arrays and writes them to the
+ StepHistoryDatabase in batches, each in one transaction, on its own background thread.
+ A batch is written when BATCH_SIZE steps are collected, MAX_BATCH_AGE_MILLIS after its first step was added
+ (even if no further step follows), and on flush. add, flush and close must always be called on the thread
+ of the handler given to the constructor (the sensor thread of the StepCounterService).
+ */
+public class StepHistoryRecorder {
+
+    private static final String TAG = "StepHistoryRecorder";
+
+    private static final int BATCH_SIZE = 256;
+    private static final long MAX_BATCH_AGE_MILLIS = 60 * 1000L;
+
+    private final StepHistoryDatabase database;
+    private final HandlerThread writeThread;
+    private final Handler writeHandler;
+    private final Handler callerHandler;
+    private final Runnable ageFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    // Schritte des aktuellen Stapels
+    private long[] times = new long[BATCH_SIZE];
+    private byte[] stepTypes = new byte[BATCH_SIZE];
+    private int count;
+
+    /**
+     * @param database      database to write the steps to
+     * @param callerHandler handler of the thread which calls add, flush and close; writes old batches on it
+     */
+    public StepHistoryRecorder(StepHistoryDatabase database, Handler callerHandler) {
+        this.database = database;
+        this.callerHandler = callerHandler;
+        writeThread = new HandlerThread("StepHistory", Process.THREAD_PRIORITY_BACKGROUND);
+        writeThread.start();
+        writeHandler = new Handler(writeThread.getLooper());
+    }
+
+    /**
+     * Adds a step to the current batch and writes the batch if it is full.
+     * The first step of a batch schedules writing it after MAX_BATCH_AGE_MILLIS.
+     *
+     * @param timeMillis Unix time of the step in milliseconds
+     * @param stepType   type of the step
+     */
+    public void add(long timeMillis, StepType stepType) {
+        times[count] = timeMillis;
+        stepTypes[count] = (byte) stepType.ordinal();
+        count++;
+        if (count == 1) {
+            callerHandler.postDelayed(ageFlush, MAX_BATCH_AGE_MILLIS);
+        }
+        if (count == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Hands the current batch to the write thread and starts a new one.
+     */
+    public void flush() {
+        if (count == 0) {
+            return;
+        }
+        callerHandler.removeCallbacks(ageFlush);
+        final long[] batchTimes = times;
+        final byte[] batchStepTypes = stepTypes;
+        final int batchCount = count;
+        // The write thread keeps the old arrays, so new ones are needed (once per batch, not per step).
+        times = new long[BATCH_SIZE];
+        stepTypes = new byte[BATCH_SIZE];
+        count = 0;
+        writeHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    database.insertSteps(batchTimes, batchStepTypes, batchCount);
+                } catch (SQLException e) {
+                    Log.e(TAG, "Cannot store " + batchCount + " steps", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the current batch, closes the database and ends the write thread after all batches are written.
+     */
+    public void close() {
+        flush();
+        writeHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                database.close();
+            }
+        });
+        writeThread.quitSafely();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.steppowergenerator.ui.pedometer;
+
+import com.jjoe64.graphview.series.DataPointInterface;
+
+/**
+ * Mutable point, so the points of a chart can be reused for every update.
+ */
+class ChartPoint implements DataPointInterface {
+    private double x;
+    private double y;
+
+    @Override
+    public double getX() {
+        return x;
+    }
+
+    @Override
+    public double getY() {
+        return y;
+    }
+
+    void set(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.steppowergenerator.ui.pedometer;
+
+import android.view.Choreographer;
+
+import com.example.steppowergenerator.MagnitudeChartBuffer;
+import com.jjoe64.graphview.GraphView;
+import com.jjoe64.graphview.Viewport;
+import com.jjoe64.graphview.series.LineGraphSeries;
+import com.jjoe64.graphview.series.PointsGraphSeries;
+
+/**
+ * Draws the total acceleration of the last seconds from a MagnitudeChartBuffer in a GraphView,
+ * with the peaks of the recognized steps as points. The chart is updated at most once per frame,
+ * and only if the buffer has changed, no matter how many data records arrived in between.
+ * Each column of the buffer becomes two points (its minimum and maximum, in the order they were recorded),
+ * so the number of points is fixed and all points are reused.
+ */
+class MagnitudeChart {
+
+    private static final double MIN_Y = 0;
+    private static final double MAX_Y = 40;
+    // Points of unused peak slots are placed far right of the visible window.
+    private static final double HIDDEN_X = 1e6;
+    private static final ChartPoint[] NO_POINTS = new ChartPoint[0];
+
+    private final GraphView graphView;
+    private final LineGraphSeries<ChartPoint> magnitudeSeries = new LineGraphSeries<>();
+    private final PointsGraphSeries<ChartPoint> peakSeries = new PointsGraphSeries<>();
+
+    private MagnitudeChartBuffer buffer;
+    private int columnCount;
+    private double columnSeconds;
+    private float[] minValues, maxValues, lastValues, peakValues;
+    private boolean[] minFirst;
+    private ChartPoint[] magnitudePoints, peakPoints;
+
+    private boolean started;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!started) {
+                return;
+            }
+            if (buffer != null && buffer.hasChanged()) {
+                update();
+            }
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    /**
+     * @param graphView  view to draw in
+     * @param lineColor  color of the total acceleration
+     * @param peakColor  color of the step peaks
+     */
+    MagnitudeChart(GraphView graphView, int lineColor, int peakColor) {
+        this.graphView = graphView;
+        magnitudeSeries.setColor(lineColor);
+        magnitudeSeries.setThickness(3);
+        peakSeries.setColor(peakColor);
+        peakSeries.setSize(8);
+        peakSeries.setShape(PointsGraphSeries.Shape.POINT);
+        graphView.addSeries(magnitudeSeries);
+        graphView.addSeries(peakSeries);
+
+        Viewport viewport = graphView.getViewport();
+        viewport.setYAxisBoundsManual(true);
+        viewport.setMinY(MIN_Y);
+        viewport.setMaxY(MAX_Y);
+        viewport.setXAxisBoundsManual(true);
+    }
+
+    /**
+     * Shows the given buffer. The arrays for copying the columns are only created when the number of columns changes.
+     *
+     * @param buffer buffer of the StepCounterService, or null while not connected
+     */
+    void setBuffer(MagnitudeChartBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer == null) {
+            magnitudeSeries.resetData(NO_POINTS);
+            peakSeries.resetData(NO_POINTS);
+            return;
+        }
+        if (buffer.getColumnCount() != columnCount) {
+            columnCount = buffer.getColumnCount();
+            minValues = new float[columnCount];
+            maxValues = new float[columnCount];
+            lastValues = new float[columnCount];
+            peakValues = new float[columnCount];
+            minFirst = new boolean[columnCount];
+            magnitudePoints = createPoints(2 * columnCount);
+            peakPoints = createPoints(columnCount);
+        }
+        columnSeconds = buffer.getColumnDuration() / 1e9;
+        Viewport viewport = graphView.getViewport();
+        viewport.setMinX(-(columnCount - 1) * columnSeconds);
+        viewport.setMaxX(columnSeconds);
+        update();
+    }
+
+    private static ChartPoint[] createPoints(int count) {
+        ChartPoint[] points = new ChartPoint[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = new ChartPoint();
+        }
+        return points;
+    }
+
+    /**
+     * Starts updating the chart with every frame. Must be called on the UI thread.
+     */
+    void start() {
+        if (!started) {
+            started = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Stops updating the chart, e.g. while the fragment is not visible.
+     */
+    void stop() {
+        started = false;
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+    }
+
+    /**
+     * Copies the columns of the buffer into the points of both series. The x axis is the time in seconds
+     * relative to the newest column. Empty columns keep the last value of the previous column,
+     * empty columns at the start the first value of the first column with data records.
+     */
+    private void update() {
+        if (buffer.copyColumns(minValues, maxValues, minFirst, lastValues, peakValues) < 0) {
+            magnitudeSeries.resetData(NO_POINTS);
+            peakSeries.resetData(NO_POINTS);
+            return;
+        }
+
+        float value = Float.NaN;
+        for (int i = 0; i < columnCount && Float.isNaN(value); i++) {
+            if (!Float.isNaN(minValues[i])) {
+                value = minFirst[i] ? minValues[i] : maxValues[i];
+            }
+        }
+
+        int peakCount = 0;
+        for (int i = 0; i < columnCount; i++) {
+            double x = (i - columnCount + 1) * columnSeconds;
+            if (Float.isNaN(minValues[i])) {
+                magnitudePoints[2 * i].set(x, value);
+                magnitudePoints[2 * i + 1].set(x + columnSeconds / 2, value);
+            } else {
+                magnitudePoints[2 * i].set(x, minFirst[i] ? minValues[i] : maxValues[i]);
+                magnitudePoints[2 * i + 1].set(x + columnSeconds / 2, minFirst[i] ? maxValues[i] : minValues[i]);
+                value = lastValues[i];
+            }
+            if (!Float.isNaN(peakValues[i])) {
+                peakPoints[peakCount++].set(x, peakValues[i]);
+            }
+        }
+        for (int i = peakCount; i < columnCount; i++) {
+            peakPoints[i].set(HIDDEN_X + i, MIN_Y);
+        }
+
+        magnitudeSeries.resetData(magnitudePoints);
+        peakSeries.resetData(peakPoints);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.steppowergenerator.ui.pedometer;
+
+import com.example.steppowergenerator.PowerHarvestingModel;
+import com.jjoe64.graphview.GraphView;
+import com.jjoe64.graphview.Viewport;
+import com.jjoe64.graphview.series.LineGraphSeries;
+
+import java.util.Arrays;
+
+/**
+ * Draws the power harvested in the measurement, from the start of the PowerHarvestingModel until now,
+ * in a GraphView. The power is downsampled to at most POINT_COUNT points of at least one second,
+ * so the chart costs the same for a short walk and a session of a whole day; all points are reused.
+ * The x axis is the time in minutes since the start of the model, the y axis the power in watts.
+ */
+class PowerChart {
+
+    private static final int POINT_COUNT = 60;
+    // Smallest upper bound of the y axis, so a few slow steps do not fill the whole chart.
+    private static final double MIN_MAX_Y = 1;
+    private static final ChartPoint[] NO_POINTS = new ChartPoint[0];
+
+    private final GraphView graphView;
+    private final LineGraphSeries<ChartPoint> powerSeries = new LineGraphSeries<>();
+    private final long[] times = new long[POINT_COUNT];
+    private final float[] powers = new float[POINT_COUNT];
+    private final ChartPoint[] allPoints = new ChartPoint[POINT_COUNT];
+    // Points shown, resetData takes the whole array; only created again when the number of points changes.
+    private ChartPoint[] points = NO_POINTS;
+
+    /**
+     * @param graphView view to draw in
+     * @param lineColor color of the power
+     */
+    PowerChart(GraphView graphView, int lineColor) {
+        this.graphView = graphView;
+        powerSeries.setColor(lineColor);
+        powerSeries.setThickness(3);
+        graphView.addSeries(powerSeries);
+
+        Viewport viewport = graphView.getViewport();
+        viewport.setYAxisBoundsManual(true);
+        viewport.setMinY(0);
+        viewport.setXAxisBoundsManual(true);
+        viewport.setMinX(0);
+
+        for (int i = 0; i < POINT_COUNT; i++) {
+            allPoints[i] = new ChartPoint();
+        }
+    }
+
+    /**
+     * Shows the power of the given model up to the given time. Must be called on the UI thread.
+     *
+     * @param model     model of the StepCounterService, or null to clear the chart
+     * @param nowMillis end of the chart (Unix time in milliseconds)
+     */
+    void update(PowerHarvestingModel model, long nowMillis) {
+        long startMillis = model != null ? model.getStartTime() : Long.MAX_VALUE;
+        if (startMillis >= nowMillis) {
+            powerSeries.resetData(NO_POINTS);
+            return;
+        }
+        long rangeMillis = nowMillis - startMillis;
+        int count = (int) Math.max(1, Math.min(POINT_COUNT, rangeMillis / PowerHarvestingModel.FINE_BIN_MS));
+        model.downsample(startMillis, nowMillis, count, times, powers);
+
+        if (points.length != count) {
+            points = Arrays.copyOf(allPoints, count);
+        }
+        double maxPower = MIN_MAX_Y;
+        for (int i = 0; i < count; i++) {
+            points[i].set((times[i] - startMillis) / 60000.0, powers[i]);
+            maxPower = Math.max(maxPower, powers[i]);
+        }
+        Viewport viewport = graphView.getViewport();
+        viewport.setMaxX(Math.max(points[count - 1].getX(), 1.0 / 60));
+        viewport.setMaxY(maxPower * 1.1);
+        powerSeries.resetData(points);
+    }
+}
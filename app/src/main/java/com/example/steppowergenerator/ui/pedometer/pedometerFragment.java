@@ -2,48 +2,82 @@ package com.example.steppowergenerator.ui.pedometer;
 
 import androidx.cardview.widget.CardView;
 
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
+import android.Manifest;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
 
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.CompoundButton;
+import android.widget.Switch;
 import android.widget.TextView;
 
-import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.BuildConfig;
 import com.example.steppowergenerator.R;
-import com.example.steppowergenerator.StepDetector;
-import com.example.steppowergenerator.StepListener;
+import com.example.steppowergenerator.SessionMetrics;
+import com.example.steppowergenerator.StepCounterService;
+import com.example.steppowergenerator.StepCounts;
 import com.example.steppowergenerator.StepType;
+import com.example.steppowergenerator.metrics.DetectorMetrics;
+import com.jjoe64.graphview.GraphView;
 
-import java.util.ArrayList;
-import java.util.Locale;
+import java.io.File;
 
-import static android.content.Context.SENSOR_SERVICE;
+/**
+ * Shows the steps counted by the StepCounterService and starts or stops the measurement.
+ * The fragment only observes the service, so it can be recreated while counting.
+ */
+public class pedometerFragment extends Fragment {
 
-public class pedometerFragment extends Fragment implements SensorEventListener, StepListener {
-
-    private static final String TAG = "PedometerFragment";
+    private static final String PREFERENCE_LOW_POWER_MODE = "low_power_mode";
+    private static final String PREFERENCE_EXPORT_SESSION = "export_session";
+    private static final String EXPORT_MIME_TYPE = "application/octet-stream";
+    private static final long[] DECIMAL_FACTORS = {1, 10, 100, 1000};
+    private static final long DEBUG_METRICS_INTERVAL_MS = 1000;
+    private static final int REQUEST_ACTIVITY_RECOGNITION = 1;
 
     private CardView cardViewToggleStepCounting;
     private TextView textView_amount_steps, textView_type_of_step,
             textView_pedometer_is_running, textView_pedometer_toggle_text;
+    private Switch switch_low_power, switch_export;
+    private Button button_share_export;
+    // Live chart of the total acceleration with the step peaks
+    private MagnitudeChart magnitudeChart;
+    // Chart of the harvested power over the measurement, in the results
+    private PowerChart powerChart;
+    // Debug overlay with the metrics of the StepDetector
+    private TextView textView_debug_metrics;
+    private final StringBuilder debugMetricsText = new StringBuilder();
 
     // Results - text views
     private TextView textview_results_total_steps, textview_results_walking_steps, textview_results_jogging_steps, textview_results_running_steps,
             textview_results_total_distance, textview_results_average_speed, textview_results_burned_calories, textview_results_power_generated;
 
-    // ViewModel - saves all relevant data here.
+    // ViewModel - keeps the connection to the StepCounterService.
     private pedometerViewModel mViewModel;
+    // Connected service, null while not connected.
+    private StepCounterService service;
+
+    // Labels of the step types, index = StepType.ordinal(). Loaded once instead of for every step.
+    private CharSequence[] stepTypeLabels;
+    // Step type currently shown, so the label is only set again when it changes.
+    private StepType shownStepType;
+    // Reused for the result texts, which are updated while counting.
+    private final StringBuilder resultText = new StringBuilder();
 
     /**
      * Returns a new instance of the step counter fragment.
@@ -72,7 +106,8 @@ public class pedometerFragment extends Fragment implements SensorEventListener,
         cardViewToggleStepCounting.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                if (mViewModel.isCountingSteps()) stopCounting();
+                if (service == null) return;
+                if (service.isCountingSteps()) service.stopCounting();
                 else startCounting();
             }
         });
@@ -91,209 +126,318 @@ public class pedometerFragment extends Fragment implements SensorEventListener,
         textview_results_burned_calories = view.findViewById(R.id.textview_results_burned_calories);
         textview_results_power_generated = view.findViewById(R.id.textview_results_power_generated);
 
-        if (mViewModel.getSensorManager() == null) {
-            mViewModel.setSensorManager((SensorManager) getActivity().getSystemService(SENSOR_SERVICE));
-        }
-        if (mViewModel.getAccelerationSensor() == null) {
-            if (mViewModel.getSensorManager().getDefaultSensor(Sensor.TYPE_ACCELEROMETER) != null) {
-                mViewModel.setAccelerationSensor(mViewModel.getSensorManager().getDefaultSensor(Sensor.TYPE_ACCELEROMETER));
+        stepTypeLabels = new CharSequence[StepType.values().length];
+        stepTypeLabels[StepType.WALKING.ordinal()] = getResources().getText(R.string.walking);
+        stepTypeLabels[StepType.JOGGING.ordinal()] = getResources().getText(R.string.jogging);
+        stepTypeLabels[StepType.RUNNING.ordinal()] = getResources().getText(R.string.running);
+        shownStepType = null;
+
+        switch_low_power = view.findViewById(R.id.switch_pedometer_low_power);
+        switch_low_power.setChecked(isLowPowerMode());
+        switch_low_power.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton compoundButton, boolean checked) {
+                getPreferences().edit().putBoolean(PREFERENCE_LOW_POWER_MODE, checked).apply();
             }
-        }
-        if (mViewModel.getStepDetector() == null) {
-            mViewModel.setStepDetector(new StepDetector());
-        }
-        mViewModel.getStepDetector().registerStepListener(this);
+        });
 
-        if (mViewModel.getAccelerationDataArrayList() == null) {
-            mViewModel.setAccelerationDataArrayList(new ArrayList<AccelerationData>());
-        }
+        switch_export = view.findViewById(R.id.switch_pedometer_export);
+        switch_export.setChecked(isExportSession());
+        switch_export.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton compoundButton, boolean checked) {
+                getPreferences().edit().putBoolean(PREFERENCE_EXPORT_SESSION, checked).apply();
+            }
+        });
+        button_share_export = view.findViewById(R.id.button_results_share_export);
+        button_share_export.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                shareExport();
+            }
+        });
+        updateControls();
+
+        GraphView graphView = view.findViewById(R.id.graph_pedometer_magnitude);
+        magnitudeChart = new MagnitudeChart(graphView, getResources().getColor(R.color.colorBar),
+                getResources().getColor(R.color.colorAccent));
+        powerChart = new PowerChart((GraphView) view.findViewById(R.id.graph_results_power),
+                getResources().getColor(R.color.colorBar));
+
+        textView_debug_metrics = view.findViewById(R.id.textview_debug_metrics);
 
-        if (mViewModel.isCountingSteps()) {
-            textView_pedometer_toggle_text.setText(getResources().getText(R.string.disable_pedometer));
-            textView_pedometer_is_running.setText(getResources().getText(R.string.pedometer_running));
-            textView_pedometer_is_running.setTextColor(getResources().getColor(R.color.green));
-            textView_amount_steps.setText(String.valueOf(mViewModel.getAmountOfSteps()));
-            mViewModel.getSensorManager().registerListener(this, mViewModel.getAccelerationSensor(), SensorManager.SENSOR_DELAY_NORMAL);
-        }
         return view;
     }
 
+    private SharedPreferences getPreferences() {
+        return requireActivity().getPreferences(Context.MODE_PRIVATE);
+    }
+
     /**
-     * Is called when the fragment is created. Initializes the ViewModel.
-     *
-     * @param savedInstanceState
+     * @return true if the acceleration sensor should collect events in its hardware FIFO
+     * and deliver them in bursts, so the processor does not wake up for every event.
      */
-    @Override
-    public void onCreate(@Nullable Bundle savedInstanceState) {
-        mViewModel = new ViewModelProvider(this).get(pedometerViewModel.class);
-        super.onCreate(savedInstanceState);
+    private boolean isLowPowerMode() {
+        return getPreferences().getBoolean(PREFERENCE_LOW_POWER_MODE, false);
     }
 
     /**
-     * Called before the fragment is destroyed.
+     * @return true if the raw data of the measurement should be written to an export file.
+     * Off by default, since the export file is as large as the session log again.
      */
-    @Override
-    public void onDetach() {
-        mViewModel.getSensorManager().unregisterListener(this);
-        super.onDetach();
+    private boolean isExportSession() {
+        return getPreferences().getBoolean(PREFERENCE_EXPORT_SESSION, false);
     }
 
     /**
-     * Is called when the measured values ​​of a sensor change.
-     * Since only the acceleration sensor is registered, values ​​only come from this.
+     * The low power mode can only be changed while the pedometer is stopped,
+     * and only if the acceleration sensor has a hardware FIFO. The same applies to the export,
+     * whose last file can only be shared when it is complete.
+     */
+    private void updateControls() {
+        boolean stopped = service != null && !service.isCountingSteps();
+        switch_low_power.setEnabled(stopped && service.hasSensorFifo());
+        switch_export.setEnabled(stopped);
+        button_share_export.setEnabled(stopped && service.getLatestExportFile() != null);
+    }
+
+    /**
+     * Offers the newest export file to other apps, e.g. to send it by mail or save it in the cloud.
+     * The file stays private to the app; the receiving app only gets read access through the FileProvider.
+     */
+    private void shareExport() {
+        File file = service != null ? service.getLatestExportFile() : null;
+        if (file == null) {
+            return;
+        }
+        Uri uri = FileProvider.getUriForFile(requireContext(), BuildConfig.APPLICATION_ID + ".fileprovider", file);
+        Intent intent = new Intent(Intent.ACTION_SEND)
+                .setType(EXPORT_MIME_TYPE)
+                .putExtra(Intent.EXTRA_STREAM, uri)
+                .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(intent, getText(R.string.share_export)));
+    }
+
+    /**
+     * Is called after onCreateView. Connects the view to the StepCounterService as soon as it is bound.
      *
-     * @param sensorEvent SensorEvent with all new measured values, time stamp and origin
+     * @param view
+     * @param savedInstanceState
      */
     @Override
-    public void onSensorChanged(SensorEvent sensorEvent) {
-        AccelerationData newAccelerationData = new AccelerationData();
-        newAccelerationData.setX(sensorEvent.values[0]);
-        newAccelerationData.setY(sensorEvent.values[1]);
-        newAccelerationData.setZ(sensorEvent.values[2]);
-        newAccelerationData.setTime(sensorEvent.timestamp);
-
-        mViewModel.getAccelerationDataArrayList().add(newAccelerationData);
-        mViewModel.getStepDetector().addAccelerationData(newAccelerationData);
-
-        // Previous version (now handled in StepDetector):
-        /*
-        // at 200 millisecond delay approx. 5 seconds
-        if (mViewModel.getAccelerationDataArrayList (). size ()> = 25) {
-            sendDataArray ();
-        } */
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        mViewModel.getService().observe(getViewLifecycleOwner(), new Observer<StepCounterService>() {
+            @Override
+            public void onChanged(StepCounterService stepCounterService) {
+                connectService(stepCounterService);
+            }
+        });
     }
 
-    /*
-    private void sendDataArray(){
-        mViewModel.getStepDetector().handleData(mViewModel.getAccelerationDataArrayList());
-        mViewModel.getAccelerationDataArrayList().clear();
-    }*/
+    private final Observer<StepCounts> stepCountsObserver = new Observer<StepCounts>() {
+        @Override
+        public void onChanged(StepCounts stepCounts) {
+            showSteps(stepCounts);
+        }
+    };
+
+    private final Observer<Boolean> countingStepsObserver = new Observer<Boolean>() {
+        @Override
+        public void onChanged(Boolean countingSteps) {
+            showCountingState(countingSteps);
+        }
+    };
 
     /**
-     * Called when the accuracy of the registered sensor changes.
+     * Observes the step values and the counting state of the given service instead of the previous one.
+     * A running measurement is shown immediately, without touching the sensor.
      *
-     * @param sensor Sensor of which the accuracy has changed.
-     * @param i new accuracy
+     * @param stepCounterService connected service or null
+     */
+    private void connectService(StepCounterService stepCounterService) {
+        if (service != null) {
+            service.getStepStatistics().getStepCounts().removeObserver(stepCountsObserver);
+            service.getCountingSteps().removeObserver(countingStepsObserver);
+        }
+        service = stepCounterService;
+        magnitudeChart.setBuffer(service != null ? service.getMagnitudeChartBuffer() : null);
+        if (service != null) {
+            service.getStepStatistics().getStepCounts().observe(getViewLifecycleOwner(), stepCountsObserver);
+            service.getCountingSteps().observe(getViewLifecycleOwner(), countingStepsObserver);
+        }
+        updateControls();
+    }
+
+    /**
+     * The live chart is only updated while the fragment is visible.
      */
     @Override
-    public void onAccuracyChanged(Sensor sensor, int i) {
+    public void onStart() {
+        super.onStart();
+        magnitudeChart.start();
+        if (BuildConfig.DEBUG) {
+            textView_debug_metrics.post(showDebugMetrics);
+        }
+    }
 
+    @Override
+    public void onStop() {
+        magnitudeChart.stop();
+        textView_debug_metrics.removeCallbacks(showDebugMetrics);
+        super.onStop();
     }
 
     /**
-     * Is called when a step has been recognized in the StepDetector. Saves the step in the ViewModel.
+     * Shows the metrics of the StepDetector in the debug overlay, once per second while the fragment is visible.
+     */
+    private final Runnable showDebugMetrics = new Runnable() {
+        @Override
+        public void run() {
+            DetectorMetrics metrics = service != null ? service.getDetectorMetrics() : null;
+            if (metrics != null) {
+                debugMetricsText.setLength(0);
+                metrics.appendSummary(debugMetricsText);
+                textView_debug_metrics.setText(debugMetricsText);
+                textView_debug_metrics.setVisibility(View.VISIBLE);
+            }
+            textView_debug_metrics.postDelayed(this, DEBUG_METRICS_INTERVAL_MS);
+        }
+    };
+
+    /**
+     * Is called when the fragment is created. Initializes the ViewModel.
      *
-     * @param accelerationData AccelerationData: A data record of the acceleration sensor, which stands for a step.
-     * @param stepType Enum StepType: One of the three step types from the Enum StepType.
+     * @param savedInstanceState
      */
     @Override
-    public void step(AccelerationData accelerationData, StepType stepType) {
-        // Step event coming back from StepDetector
-        mViewModel.setAmountOfSteps(mViewModel.getAmountOfSteps() + 1);
-        textView_amount_steps.setText(String.valueOf(mViewModel.getAmountOfSteps()));
-        if (stepType == StepType.WALKING) {
-            mViewModel.setWalkingSteps(mViewModel.getWalkingSteps() + 1);
-            textView_type_of_step.setText(getResources().getText(R.string.walking));
-        } else if (stepType == StepType.JOGGING) {
-            mViewModel.setJoggingSteps(mViewModel.getJoggingSteps() + 1);
-            textView_type_of_step.setText(getResources().getText(R.string.jogging));
-        } else {
-            mViewModel.setRunningSteps(mViewModel.getRunningSteps() + 1);
-            textView_type_of_step.setText(getResources().getText(R.string.running));
-        }
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        mViewModel = new ViewModelProvider(this).get(pedometerViewModel.class);
+        super.onCreate(savedInstanceState);
     }
 
     /**
-     * Calculates results of the last measurement. Estimates only.
-     * Are shown in the GUI.
+     * Shows the amount of steps and the type of the last step, and the running results while counting.
+     * Runs on the UI thread, only when the StepStatistics publish changed values.
+     *
+     * @param stepCounts step values published by the StepStatistics
      */
-    private void calculateResults() {
-        int totalSteps = mViewModel.getAmountOfSteps();
-        textview_results_total_steps.setText(String.valueOf(totalSteps));
-
-        int walkingSteps = mViewModel.getWalkingSteps();
-        int joggingSteps = mViewModel.getJoggingSteps();
-        int runningSteps = mViewModel.getRunningSteps();
-
-        textview_results_walking_steps.setText(String.valueOf(walkingSteps));
-        textview_results_jogging_steps.setText(String.valueOf(joggingSteps));
-        textview_results_running_steps.setText(String.valueOf(runningSteps));
-
-        float totalDistance = walkingSteps * 0.5f + joggingSteps * 1.0f + runningSteps * 1.5f;
-        String distance = totalDistance + " m";
-        textview_results_total_distance.setText(distance);
-
-        float totalDuration = walkingSteps * 1.0f + joggingSteps * 0.75f + runningSteps * 0.5f;
-        float hours = totalDuration / 3600;
-        float minutes = (totalDuration % 3600) / 60;
-        float seconds = totalDuration % 60;
-        String duration = String.format(Locale.ENGLISH, "%.0f", hours) + "h " +
-                String.format(Locale.ENGLISH, "%.0f", minutes) + "min " +
-                String.format(Locale.ENGLISH, "%.0f", seconds) + "s";
-
-        // Average speed:
-        String averageSpeed = String.format(Locale.ENGLISH, "%.2f", totalDistance / totalDuration) + " m/s";
-        textview_results_average_speed.setText(averageSpeed);
-
-        // Calories
-        float totalCaloriesBurned = walkingSteps * 0.05f + joggingSteps * 0.1f + runningSteps * 0.2f;
-        String totalCalories = String.format(Locale.ENGLISH, "%.0f", totalCaloriesBurned) + " Cal";
-        textview_results_burned_calories.setText(totalCalories);
-
-        //Power generated
-        float PowerGenerated = walkingSteps * 0.4542f + joggingSteps * 0.47f + runningSteps * 0.51f;
-        String totalPower = String.format(Locale.ENGLISH, "%.0f", PowerGenerated) + "W";
-        textview_results_power_generated.setText(totalPower);
+    private void showSteps(StepCounts stepCounts) {
+        textView_amount_steps.setText(String.valueOf(stepCounts.getAmountOfSteps()));
+        StepType stepType = stepCounts.getLastStepType();
+        if (stepType != null && stepType != shownStepType) {
+            textView_type_of_step.setText(stepTypeLabels[stepType.ordinal()]);
+            shownStepType = stepType;
+        }
+        if (service != null && service.isCountingSteps()) {
+            showResults(stepCounts);
+        }
     }
 
     /**
-     * Resets some data.
+     * Shows the results of the current or last measurement. Estimates only.
+     * The values are updated by the SessionMetrics with every step, so they only have to be read here.
+     * Runs on the UI thread at the rate of the StepStatistics; the text is built in a reused StringBuilder.
+     *
+     * @param stepCounts step values of the measurement
      */
-    private void resetUI() {
-        mViewModel.setAmountOfSteps(0);
-        mViewModel.setWalkingSteps(0);
-        mViewModel.setJoggingSteps(0);
-        mViewModel.setRunningSteps(0);
-        textView_amount_steps.setText(String.valueOf(mViewModel.getWalkingSteps()));
+    private void showResults(StepCounts stepCounts) {
+        textview_results_total_steps.setText(String.valueOf(stepCounts.getAmountOfSteps()));
+        textview_results_walking_steps.setText(String.valueOf(stepCounts.getWalkingSteps()));
+        textview_results_jogging_steps.setText(String.valueOf(stepCounts.getJoggingSteps()));
+        textview_results_running_steps.setText(String.valueOf(stepCounts.getRunningSteps()));
+
+        SessionMetrics metrics = service.getSessionMetrics();
+        resultText.setLength(0);
+        appendDecimal(resultText, metrics.getDistance(), 1).append(" m");
+        textview_results_total_distance.setText(resultText);
+
+        resultText.setLength(0);
+        appendDecimal(resultText, metrics.getAverageSpeed(), 2).append(" m/s");
+        textview_results_average_speed.setText(resultText);
+
+        resultText.setLength(0);
+        appendDecimal(resultText, metrics.getCalories(), 0).append(" Cal");
+        textview_results_burned_calories.setText(resultText);
+
+        // Harvested energy and its average power over the moving time
+        double energy = service.getPowerHarvestingModel().getTotalEnergy();
+        long movingTime = metrics.getMovingTime();
+        resultText.setLength(0);
+        appendDecimal(resultText, energy, 1).append(" J (");
+        appendDecimal(resultText, movingTime == 0 ? 0 : energy * 1000.0 / movingTime, 2).append(" W)");
+        textview_results_power_generated.setText(resultText);
+        powerChart.update(service.getPowerHarvestingModel(), System.currentTimeMillis());
     }
 
     /**
+     * Appends a non-negative value rounded to the given number of decimals, without String.format.
+     *
+     * @param builder  builder to append to
+     * @param value    value to append
+     * @param decimals number of decimals (0 to 3)
+     * @return the builder
+     */
+    private static StringBuilder appendDecimal(StringBuilder builder, double value, int decimals) {
+        long factor = DECIMAL_FACTORS[decimals];
+        long scaled = Math.round(value * factor);
+        builder.append(scaled / factor);
+        if (decimals > 0) {
+            builder.append('.');
+            long fraction = scaled % factor;
+            for (long digit = factor / 10; digit > 0; digit /= 10) {
+                builder.append((char) ('0' + fraction / digit % 10));
+            }
+        }
+        return builder;
+    }
 
-     * Starts step sensor. (The fragment is registered in the SensorManager)
+    /**
+     * Starts a new measurement in the StepCounterService. On Android 10 and later the hardware step sensors
+     * need the ACTIVITY_RECOGNITION permission, so it is requested first; the measurement starts in
+     * onRequestPermissionsResult, without the hardware step sensors if the permission was denied.
      */
     private void startCounting() {
-        if (!mViewModel.isCountingSteps()) {
-            try {
-                resetUI();
-                mViewModel.getSensorManager().registerListener(this, mViewModel.getAccelerationSensor(), SensorManager.SENSOR_DELAY_NORMAL);
-                mViewModel.setCountingSteps(true);
-                textView_pedometer_toggle_text.setText(getResources().getText(R.string.disable_pedometer));
-                textView_pedometer_is_running.setText(getResources().getText(R.string.pedometer_running));
-                textView_pedometer_is_running.setTextColor(getResources().getColor(R.color.green));
-            } catch (Exception e) {
-                Log.e(TAG, e.getMessage());
-            }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && requireContext().checkSelfPermission(Manifest.permission.ACTIVITY_RECOGNITION)
+                != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{Manifest.permission.ACTIVITY_RECOGNITION}, REQUEST_ACTIVITY_RECOGNITION);
+            return;
+        }
+        startMeasurement();
+    }
+
+    private void startMeasurement() {
+        textView_amount_steps.setText(String.valueOf(0));
+        service.startCounting(isLowPowerMode(), isExportSession());
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        if (requestCode == REQUEST_ACTIVITY_RECOGNITION && service != null && !service.isCountingSteps()) {
+            startMeasurement();
         }
     }
 
     /**
-     * Stops step sensor. (The fragment is not registered in the SensorManager)
+     * Shows whether the service is counting steps. When a measurement has finished, its results are shown.
+     *
+     * @param countingSteps true while the service is counting steps
      */
-    private void stopCounting() {
-        if (mViewModel.isCountingSteps()) {
-            try {
-                // The last remaining data is also processed
-                // sendDataArray ();
-
-                mViewModel.getSensorManager().unregisterListener(this);
-                mViewModel.setCountingSteps(false);
-                calculateResults();
-                textView_pedometer_toggle_text.setText(getResources().getText(R.string.acitvate_pedometer));
-                textView_pedometer_is_running.setText(getResources().getText(R.string.pedometer_not_running));
-                textView_pedometer_is_running.setTextColor(getResources().getColor(R.color.red));
-            } catch (Exception e) {
-                Log.d(TAG, e.getMessage());
+    private void showCountingState(boolean countingSteps) {
+        if (countingSteps) {
+            textView_pedometer_toggle_text.setText(getResources().getText(R.string.disable_pedometer));
+            textView_pedometer_is_running.setText(getResources().getText(R.string.pedometer_running));
+            textView_pedometer_is_running.setTextColor(getResources().getColor(R.color.green));
+        } else {
+            textView_pedometer_toggle_text.setText(getResources().getText(R.string.acitvate_pedometer));
+            textView_pedometer_is_running.setText(getResources().getText(R.string.pedometer_not_running));
+            textView_pedometer_is_running.setTextColor(getResources().getColor(R.color.red));
+            StepCounts stepCounts = service.getStepStatistics().getCounts();
+            if (stepCounts.getAmountOfSteps() > 0) {
+                showResults(stepCounts);
             }
         }
+        updateControls();
     }
 }
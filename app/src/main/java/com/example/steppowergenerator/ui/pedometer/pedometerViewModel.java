@@ -1,98 +1,56 @@
 package com.example.steppowergenerator.ui.pedometer;
 
-import android.hardware.Sensor;
-import android.hardware.SensorManager;
-
-import androidx.lifecycle.ViewModel;
-
-import com.example.steppowergenerator.AccelerationData;
-import com.example.steppowergenerator.StepDetector;
-
-import java.util.ArrayList;
-
-public class pedometerViewModel extends ViewModel {
-
-    private boolean isCountingSteps;
-    private SensorManager sensorManager;
-    private Sensor accelerationSensor;
-
-    private StepDetector stepDetector;
-    private ArrayList<AccelerationData> accelerationDataArrayList = new ArrayList<>();
-
-    private int amountOfSteps;
-    private int walkingSteps, joggingSteps, runningSteps;
-
-
-    public boolean isCountingSteps() {
-        return isCountingSteps;
-    }
-
-    public void setCountingSteps(boolean countingSteps) {
-        isCountingSteps = countingSteps;
-    }
-
-    public SensorManager getSensorManager() {
-        return sensorManager;
-    }
-
-    public void setSensorManager(SensorManager sensorManager) {
-        this.sensorManager = sensorManager;
-    }
-
-    public Sensor getAccelerationSensor() {
-        return accelerationSensor;
-    }
-
-    public void setAccelerationSensor(Sensor accelerationSensor) {
-        this.accelerationSensor = accelerationSensor;
-    }
-
-    public StepDetector getStepDetector() {
-        return stepDetector;
-    }
-
-    public void setStepDetector(StepDetector stepDetector) {
-        this.stepDetector = stepDetector;
-    }
-
-    public ArrayList<AccelerationData> getAccelerationDataArrayList() {
-        return accelerationDataArrayList;
-    }
-
-    public void setAccelerationDataArrayList(ArrayList<AccelerationData> accelerationDataArrayList) {
-        this.accelerationDataArrayList = accelerationDataArrayList;
-    }
-
-    public int getAmountOfSteps() {
-        return amountOfSteps;
-    }
-
-    public void setAmountOfSteps(int amountOfSteps) {
-        this.amountOfSteps = amountOfSteps;
-    }
-
-    public int getWalkingSteps() {
-        return walkingSteps;
-    }
-
-    public void setWalkingSteps(int walkingSteps) {
-        this.walkingSteps = walkingSteps;
-    }
-
-    public int getJoggingSteps() {
-        return joggingSteps;
-    }
-
-    public void setJoggingSteps(int joggingSteps) {
-        this.joggingSteps = joggingSteps;
-    }
-
-    public int getRunningSteps() {
-        return runningSteps;
-    }
-
-    public void setRunningSteps(int runningSteps) {
-        this.runningSteps = runningSteps;
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.IBinder;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.steppowergenerator.StepCounterService;
+
+/**
+ * Keeps the connection to the StepCounterService. The service is bound with the application context,
+ * so the binding survives configuration changes and the fragment reconnects without delay.
+ */
+public class pedometerViewModel extends AndroidViewModel {
+
+    private final MutableLiveData<StepCounterService> service = new MutableLiveData<>();
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName componentName, IBinder binder) {
+            service.setValue(((StepCounterService.LocalBinder) binder).getService());
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName componentName) {
+            service.setValue(null);
+        }
+    };
+
+    public pedometerViewModel(@NonNull Application application) {
+        super(application);
+        application.bindService(new Intent(application, StepCounterService.class), serviceConnection, Context.BIND_AUTO_CREATE);
+    }
+
+    /**
+     * @return LiveData with the connected StepCounterService, null while not connected
+     */
+    public LiveData<StepCounterService> getService() {
+        return service;
+    }
+
+    @Override
+    protected void onCleared() {
+        // A running measurement continues, the service was started in startCounting.
+        getApplication().unbindService(serviceConnection);
+        super.onCleared();
     }
 
 }
@@ -0,0 +1,84 @@
+package com.example.steppowergenerator.history;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TimeZone;
+
+import static com.example.steppowergenerator.history.RollupResolutionTest.localTime;
+import static org.junit.Assert.*;
+
+/**
+ * Tests how StepHistoryDatabase.countSteps splits a range into rollup buckets and raw steps.
+ */
+public class RollupRangeTest {
+
+    private static final TimeZone BERLIN = TimeZone.getTimeZone("Europe/Berlin");
+
+    @Test
+    public void rangeOverSpringForwardUsesLocalDays() {
+        long from = localTime(2026, Calendar.MARCH, 28, 12, 34) + 56789;
+        long to = localTime(2026, Calendar.MARCH, 31, 0, 0) + 30000;
+        List<RollupRange> ranges = RollupRange.decompose(from, to, BERLIN);
+
+        RollupRange days = ranges.get(0);
+        assertEquals(RollupResolution.DAY, days.getResolution());
+        assertEquals(localTime(2026, Calendar.MARCH, 29, 0, 0), days.getFromMillis());
+        assertEquals(localTime(2026, Calendar.MARCH, 31, 0, 0), days.getToMillis());
+        assertCoversRange(ranges, from, to);
+    }
+
+    @Test
+    public void rangeOverFallBackUsesLocalDays() {
+        long from = localTime(2026, Calendar.OCTOBER, 24, 0, 0);
+        long to = localTime(2026, Calendar.OCTOBER, 26, 0, 0);
+        List<RollupRange> ranges = RollupRange.decompose(from, to, BERLIN);
+
+        assertEquals(1, ranges.size());
+        assertEquals(RollupResolution.DAY, ranges.get(0).getResolution());
+        assertEquals(from, ranges.get(0).getFromMillis());
+        assertEquals(to, ranges.get(0).getToMillis());
+    }
+
+    @Test
+    public void shortRangeUsesFinerRollupsAndRawSteps() {
+        long from = localTime(2026, Calendar.OCTOBER, 25, 1, 59) + 1000;
+        long to = localTime(2026, Calendar.OCTOBER, 25, 4, 1) + 2000;
+        List<RollupRange> ranges = RollupRange.decompose(from, to, BERLIN);
+
+        for (RollupRange range : ranges) {
+            assertNotEquals(RollupResolution.DAY, range.getResolution());
+        }
+        assertCoversRange(ranges, from, to);
+        assertTrue(RollupRange.decompose(to, from, BERLIN).isEmpty());
+    }
+
+    /**
+     * Checks that the parts cover the range without gaps and overlaps, and that rollup parts lie on bucket boundaries.
+     */
+    private static void assertCoversRange(List<RollupRange> ranges, long from, long to) {
+        List<RollupRange> sorted = new ArrayList<>(ranges);
+        Collections.sort(sorted, new Comparator<RollupRange>() {
+            @Override
+            public int compare(RollupRange a, RollupRange b) {
+                return Long.compare(a.getFromMillis(), b.getFromMillis());
+            }
+        });
+        long end = from;
+        for (RollupRange range : sorted) {
+            assertEquals(end, range.getFromMillis());
+            assertTrue(range.getFromMillis() < range.getToMillis());
+            RollupResolution resolution = range.getResolution();
+            if (resolution != null) {
+                assertEquals(range.getFromMillis(), resolution.bucketStart(range.getFromMillis(), BERLIN));
+                assertEquals(range.getToMillis(), resolution.bucketStart(range.getToMillis(), BERLIN));
+            }
+            end = range.getToMillis();
+        }
+        assertEquals(to, end);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.steppowergenerator.history;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the bucket boundaries of the RollupResolution, especially on days with a daylight saving time change.
+ */
+public class RollupResolutionTest {
+
+    private static final TimeZone BERLIN = TimeZone.getTimeZone("Europe/Berlin");
+    private static final long HOUR = RollupResolution.HOUR.getDurationMillis();
+
+    @Test
+    public void dayStartsAtMidnightOnSpringForward() {
+        long time = localTime(2026, Calendar.MARCH, 29, 10, 0);
+        long start = RollupResolution.DAY.bucketStart(time, BERLIN);
+        // 2026-03-29 00:00+01:00
+        assertEquals(utc(2026, Calendar.MARCH, 28, 23, 0), start);
+        assertEquals(23 * HOUR, RollupResolution.DAY.nextBucketStart(start, BERLIN) - start);
+        assertEquals(start, RollupResolution.DAY.bucketStart(start + 23 * HOUR - 1, BERLIN));
+    }
+
+    @Test
+    public void dayStartsAtMidnightOnFallBack() {
+        long time = localTime(2026, Calendar.OCTOBER, 25, 10, 0);
+        long start = RollupResolution.DAY.bucketStart(time, BERLIN);
+        // 2026-10-25 00:00+02:00
+        assertEquals(utc(2026, Calendar.OCTOBER, 24, 22, 0), start);
+        assertEquals(25 * HOUR, RollupResolution.DAY.nextBucketStart(start, BERLIN) - start);
+        assertEquals(start, RollupResolution.DAY.bucketStart(start + 25 * HOUR - 1, BERLIN));
+    }
+
+    @Test
+    public void repeatedHourIsTwoBuckets() {
+        // 02:30 wird am 2026-10-25 zweimal durchlaufen, einmal um 00:30 und einmal um 01:30 UTC
+        long first = utc(2026, Calendar.OCTOBER, 25, 0, 30);
+        long second = utc(2026, Calendar.OCTOBER, 25, 1, 30);
+        assertEquals(first - HOUR / 2, RollupResolution.HOUR.bucketStart(first, BERLIN));
+        assertEquals(second - HOUR / 2, RollupResolution.HOUR.bucketStart(second, BERLIN));
+    }
+
+    @Test
+    public void ceilBucketStartKeepsBoundaries() {
+        long midnight = utc(2026, Calendar.MARCH, 28, 23, 0);
+        assertEquals(midnight, RollupResolution.DAY.ceilBucketStart(midnight, BERLIN));
+        assertEquals(midnight + 23 * HOUR, RollupResolution.DAY.ceilBucketStart(midnight + 1, BERLIN));
+        assertEquals(midnight + RollupResolution.MINUTE.getDurationMillis(),
+                RollupResolution.MINUTE.ceilBucketStart(midnight + 1, BERLIN));
+    }
+
+    static long localTime(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(BERLIN);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
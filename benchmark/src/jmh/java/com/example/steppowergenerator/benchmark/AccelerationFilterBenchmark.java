@@ -0,0 +1,61 @@
+package com.example.steppowergenerator.benchmark;
+
+import com.example.steppowergenerator.AccelerationFilter;
+import com.example.steppowergenerator.FilterMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the pre-processing stage of the StepDetector alone. One operation is one record
+ * filtered on all three axes, so the average time is reported in ns/sample.
+ * The cost of the whole pipeline with a filter is measured by StepDetectorBenchmark with -p filterMode=...
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccelerationFilterBenchmark {
+
+    @Param({"NONE", "GRAVITY_REMOVAL", "BAND_PASS"})
+    public FilterMode filterMode;
+
+    private AccelerationTrace trace;
+    private AccelerationFilter accelerationFilter;
+
+    private int position;
+    private long timeOffsetNs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        trace = AccelerationTrace.synthetic(Workload.JOGGING, StepDetectorBenchmark.SAMPLES_PER_INVOCATION,
+                StepDetectorBenchmark.SAMPLE_RATE_HZ, 42);
+        accelerationFilter = new AccelerationFilter(filterMode);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(StepDetectorBenchmark.SAMPLES_PER_INVOCATION)
+    public float filter() {
+        int size = trace.size();
+        float sum = 0;
+        for (int i = 0; i < StepDetectorBenchmark.SAMPLES_PER_INVOCATION; i++) {
+            accelerationFilter.filter(trace.getTime(position) + timeOffsetNs,
+                    trace.getX(position), trace.getY(position), trace.getZ(position));
+            sum += accelerationFilter.getY();
+            if (++position == size) {
+                position = 0;
+                timeOffsetNs += trace.durationNs();
+            }
+        }
+        return sum;
+    }
+}
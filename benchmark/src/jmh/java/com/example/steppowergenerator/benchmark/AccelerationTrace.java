@@ -0,0 +1,169 @@
+package com.example.steppowergenerator.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The AccelerationTrace class holds a sequence of acceleration sensor records in primitive arrays.
+ * Traces are either generated synthetically for a Workload or read from a recorded CSV file
+ * with the columns "timestamp (ns), x, y, z".
+ */
+public class AccelerationTrace {
+
+    private static final double GRAVITY = 9.81;
+    // Anteil der Schrittdauer, in dem der Fuß aufsetzt
+    private static final double IMPACT_FRACTION = 0.25;
+    private static final double NOISE = 0.3;
+
+    private final long[] times;
+    private final float[] xValues;
+    private final float[] yValues;
+    private final float[] zValues;
+
+    private AccelerationTrace(long[] pTimes, float[] pX, float[] pY, float[] pZ) {
+        times = pTimes;
+        xValues = pX;
+        yValues = pY;
+        zValues = pZ;
+    }
+
+    /**
+     * The synthetic method generates a trace for the given workload. Gravity points along y,
+     * every step adds a half sine impact which reaches the peak acceleration of the workload,
+     * and all axes get gaussian noise. The same seed always gives the same trace.
+     * @param pWorkload Movement pattern
+     * @param pSampleCount Number of records
+     * @param pSampleRateHz Records per second
+     * @param pSeed Seed of the noise
+     * @return AccelerationTrace: The generated trace.
+     */
+    public static AccelerationTrace synthetic(Workload pWorkload, int pSampleCount, int pSampleRateHz, long pSeed) {
+        return synthetic(pWorkload, pSampleCount, pSampleRateHz, pSeed, 0);
+    }
+
+    /**
+     * Like synthetic(Workload, int, int, long), but the impact of every step is scaled by a random factor
+     * with mean 1 and standard deviation pPeakJitter, so the peaks of a workload overlap with the neighbouring
+     * workloads as in real recordings. With pPeakJitter 0 the trace is the same as without jitter.
+     * @param pWorkload Movement pattern
+     * @param pSampleCount Number of records
+     * @param pSampleRateHz Records per second
+     * @param pSeed Seed of the noise and the jitter
+     * @param pPeakJitter Relative standard deviation of the impact of a step, e.g. 0.15
+     * @return AccelerationTrace: The generated trace.
+     */
+    public static AccelerationTrace synthetic(Workload pWorkload, int pSampleCount, int pSampleRateHz, long pSeed,
+                                              double pPeakJitter) {
+        Random random = new Random(pSeed);
+        // eigener Zufallsgenerator, damit das Rauschen mit und ohne Jitter gleich bleibt
+        Random stepRandom = new Random(pSeed + 1);
+        long currentStep = -1;
+        double stepScale = 1;
+        long[] times = new long[pSampleCount];
+        float[] x = new float[pSampleCount];
+        float[] y = new float[pSampleCount];
+        float[] z = new float[pSampleCount];
+
+        double stepDuration = 1.0 / pWorkload.getStepsPerSecond();
+        double impactDuration = stepDuration * IMPACT_FRACTION;
+        double impactAmplitude = pWorkload.getPeakAcceleration() - GRAVITY;
+        long sampleIntervalNs = 1000000000L / pSampleRateHz;
+
+        for (int i = 0; i < pSampleCount; i++) {
+            double t = (double) i / pSampleRateHz;
+            double phase = t % stepDuration;
+            long step = (long) (t / stepDuration);
+            if (step != currentStep) {
+                currentStep = step;
+                stepScale = pPeakJitter > 0 ? Math.max(0, 1 + stepRandom.nextGaussian() * pPeakJitter) : 1;
+            }
+            double impact = phase < impactDuration
+                    ? stepScale * impactAmplitude * Math.sin(Math.PI * phase / impactDuration) : 0;
+
+            times[i] = i * sampleIntervalNs;
+            x[i] = (float) (random.nextGaussian() * NOISE);
+            y[i] = (float) (GRAVITY + impact + random.nextGaussian() * NOISE);
+            z[i] = (float) (random.nextGaussian() * NOISE);
+        }
+        return new AccelerationTrace(times, x, y, z);
+    }
+
+    /**
+     * The fromCsv method reads a recorded trace. Each line contains the sensor timestamp in nanoseconds
+     * and the x, y and z values separated by commas. Empty lines and lines starting with # are skipped.
+     * @param pFile CSV file
+     * @return AccelerationTrace: The recorded trace.
+     * @throws IOException If the file cannot be read.
+     */
+    public static AccelerationTrace fromCsv(Path pFile) throws IOException {
+        long[] times = new long[1024];
+        float[] x = new float[1024];
+        float[] y = new float[1024];
+        float[] z = new float[1024];
+        int size = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(pFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split(",");
+                if (size == times.length) {
+                    times = Arrays.copyOf(times, size * 2);
+                    x = Arrays.copyOf(x, size * 2);
+                    y = Arrays.copyOf(y, size * 2);
+                    z = Arrays.copyOf(z, size * 2);
+                }
+                times[size] = Long.parseLong(columns[0].trim());
+                x[size] = Float.parseFloat(columns[1].trim());
+                y[size] = Float.parseFloat(columns[2].trim());
+                z[size] = Float.parseFloat(columns[3].trim());
+                size++;
+            }
+        }
+        if (size == 0) {
+            throw new IOException("No records in " + pFile);
+        }
+        return new AccelerationTrace(Arrays.copyOf(times, size), Arrays.copyOf(x, size),
+                Arrays.copyOf(y, size), Arrays.copyOf(z, size));
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * @return long: Time from the first to one interval after the last record, in nanoseconds.
+     * Replaying the trace again with this offset continues it without a gap.
+     */
+    public long durationNs() {
+        if (times.length < 2) {
+            return 1;
+        }
+        long last = times[times.length - 1] - times[0];
+        return last + last / (times.length - 1);
+    }
+
+    public long getTime(int pIndex) {
+        return times[pIndex];
+    }
+
+    public float getX(int pIndex) {
+        return xValues[pIndex];
+    }
+
+    public float getY(int pIndex) {
+        return yValues[pIndex];
+    }
+
+    public float getZ(int pIndex) {
+        return zValues[pIndex];
+    }
+}
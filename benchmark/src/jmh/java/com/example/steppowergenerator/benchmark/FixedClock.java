@@ -0,0 +1,41 @@
+package com.example.steppowergenerator.benchmark;
+
+import com.example.steppowergenerator.Clock;
+
+/**
+ * The FixedClock class is a Clock which returns the same times until the benchmark sets the time
+ * since device start, so the benchmark results do not depend on the clock of the machine.
+ */
+public class FixedClock implements Clock {
+
+    private final long currentTimeMillis;
+    private long elapsedRealtimeNanos;
+
+    public FixedClock(long pCurrentTimeMillis, long pElapsedRealtimeNanos) {
+        currentTimeMillis = pCurrentTimeMillis;
+        elapsedRealtimeNanos = pElapsedRealtimeNanos;
+    }
+
+    /**
+     * Sets the time since device start, e.g. to the timestamp of the record being processed,
+     * so the step latency is the time from the high point to the record that completes it.
+     */
+    public void setElapsedRealtimeNanos(long pElapsedRealtimeNanos) {
+        elapsedRealtimeNanos = pElapsedRealtimeNanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return elapsedRealtimeNanos / 1000000L;
+    }
+
+    @Override
+    public long elapsedRealtimeNanos() {
+        return elapsedRealtimeNanos;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.steppowergenerator.benchmark;
+
+import com.example.steppowergenerator.Clock;
+import com.example.steppowergenerator.DetectionMode;
+import com.example.steppowergenerator.metrics.Histogram;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LoadHarness class measures how many concurrent step streams one JVM can score.
+ * For every walker count it creates that many SimulatedWalkers (walking, jogging and running in turn,
+ * each with an own StepDetector) and runs them in rounds of one sensor batch: at the end of every batch
+ * window each walker scores the records measured in it, as a task of a fixed thread pool or a virtual thread
+ * (Java 21 and later). The next round starts when all walkers are done, so a walker is never scored by two
+ * threads at once.
+ *
+ * Paced (default), the rounds follow the wall clock like real phones, and the harness reports the step latency
+ * from the peak record to the StepListener (including the wait for the end of the batch); rounds finishing after
+ * the next batch was due count as late. Unpaced, the rounds run back to back and only the throughput counts.
+ * For each walker count one line is printed: offered and scored records per second, steps, latency percentiles,
+ * late rounds, retained heap per walker, peak heap and GC time.
+ *
+ * Options (--name=value): walkers (comma separated, default 1,10,100,1000,10000), threads (default: processors),
+ * executor (fixed or virtual), rate (Hz, default 50), batch-ms (default 100), duration-s (measured sensor time,
+ * default 10), warmup-s (default 2), mode (BATCH or STREAMING), paced (true or false).
+ */
+public class LoadHarness {
+
+    private static final long UNIX_START = 1600000000000L;
+    private static final int TRACE_SECONDS = 60;
+    private static final int TRACES_PER_WORKLOAD = 4;
+    private static final double PEAK_JITTER = 0.15;
+
+    private final int threads;
+    private final boolean virtualThreads;
+    private final int rateHz;
+    private final long batchNs;
+    private final long durationNs;
+    private final long warmupNs;
+    private final DetectionMode detectionMode;
+    private final boolean paced;
+
+    private final AccelerationTrace[] traces;
+    private final Histogram latencies = createLatencyHistogram();
+
+    // Zeitbasis der Walker: Nanosekunden seit dem Start eines Laufs
+    private volatile long startNs;
+    private final Clock clock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return UNIX_START;
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return elapsedRealtimeNanos() / 1000000L;
+        }
+
+        @Override
+        public long elapsedRealtimeNanos() {
+            return System.nanoTime() - startNs;
+        }
+    };
+
+    LoadHarness(Map<String, String> pOptions) {
+        threads = Integer.parseInt(option(pOptions, "threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        String executor = option(pOptions, "executor", "fixed");
+        if (!executor.equals("fixed") && !executor.equals("virtual")) {
+            throw new IllegalArgumentException("Unknown executor: " + executor);
+        }
+        virtualThreads = executor.equals("virtual");
+        rateHz = Integer.parseInt(option(pOptions, "rate", "50"));
+        batchNs = Long.parseLong(option(pOptions, "batch-ms", "100")) * 1000000L;
+        durationNs = Long.parseLong(option(pOptions, "duration-s", "10")) * 1000000000L;
+        warmupNs = Long.parseLong(option(pOptions, "warmup-s", "2")) * 1000000000L;
+        detectionMode = DetectionMode.valueOf(option(pOptions, "mode", "BATCH"));
+        paced = Boolean.parseBoolean(option(pOptions, "paced", "true"));
+
+        Workload[] workloads = Workload.values();
+        traces = new AccelerationTrace[workloads.length * TRACES_PER_WORKLOAD];
+        for (int i = 0; i < traces.length; i++) {
+            traces[i] = AccelerationTrace.synthetic(workloads[i % workloads.length], TRACE_SECONDS * rateHz, rateHz,
+                    42 + i, PEAK_JITTER);
+        }
+    }
+
+    public static void main(String[] pArgs) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : pArgs) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        LoadHarness harness = new LoadHarness(options);
+        System.out.println(harness.describe());
+        System.out.println(" walkers  offered/s   scored/s    steps  p50 ms  p99 ms  max ms  late  heap/walker  peak heap   gc ms");
+        for (String walkers : option(options, "walkers", "1,10,100,1000,10000").split(",")) {
+            System.out.println(harness.run(Integer.parseInt(walkers.trim())));
+        }
+    }
+
+    private static String option(Map<String, String> pOptions, String pName, String pDefault) {
+        String value = pOptions.get(pName);
+        return value != null ? value : pDefault;
+    }
+
+    private String describe() {
+        return String.format(Locale.ROOT, "%s threads, %d Hz, %d ms batches, %s, %s, %d s (+%d s warmup)",
+                virtualThreads ? "virtual" : String.valueOf(threads), rateHz, batchNs / 1000000L, detectionMode,
+                paced ? "paced" : "unpaced", durationNs / 1000000000L, warmupNs / 1000000000L);
+    }
+
+    /**
+     * Latencies from 1 µs to about 40 s in buckets 10 % apart, so p50 and p99 are accurate enough to compare runs.
+     */
+    private static Histogram createLatencyHistogram() {
+        List<Long> bounds = new ArrayList<>();
+        for (double bound = 1000; bound < 40e9; bound *= 1.1) {
+            long value = (long) bound;
+            if (bounds.isEmpty() || value > bounds.get(bounds.size() - 1)) {
+                bounds.add(value);
+            }
+        }
+        long[] upperBounds = new long[bounds.size()];
+        for (int i = 0; i < upperBounds.length; i++) {
+            upperBounds[i] = bounds.get(i);
+        }
+        return new Histogram("step.latency_ns", upperBounds);
+    }
+
+    private ExecutorService createExecutor() {
+        if (!virtualThreads) {
+            return Executors.newFixedThreadPool(threads);
+        }
+        try {
+            // Java 21, über Reflection, damit das Modul mit Java 8 übersetzt werden kann
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later", e);
+        }
+    }
+
+    /**
+     * Runs pWalkers walkers for the warmup and the measured duration.
+     * @return String: One line of the result table.
+     */
+    String run(int pWalkers) throws InterruptedException, ExecutionException {
+        long heapBefore = usedHeapAfterGc();
+        Random random = new Random(pWalkers);
+        List<SimulatedWalker> walkers = new ArrayList<>(pWalkers);
+        for (int i = 0; i < pWalkers; i++) {
+            AccelerationTrace trace = traces[i % traces.length];
+            int position = random.nextInt(trace.size());
+            walkers.add(new SimulatedWalker(trace, position, random.nextInt(1000000000 / rateHz), detectionMode,
+                    clock, latencies));
+        }
+        // kann bei wenigen Walkern durch Schwankungen der GC negativ werden
+        long heapPerWalker = Math.max(0, usedHeapAfterGc() - heapBefore) / pWalkers;
+
+        final long[] roundEndNs = new long[1];
+        List<Callable<Long>> tasks = new ArrayList<>(pWalkers);
+        for (final SimulatedWalker walker : walkers) {
+            tasks.add(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    return walker.advance(roundEndNs[0]);
+                }
+            });
+        }
+
+        ExecutorService executor = createExecutor();
+        try {
+            startNs = System.nanoTime();
+            long round = 0;
+            for (; (round + 1) * batchNs <= warmupNs; round++) {
+                runRound(executor, tasks, roundEndNs, round);
+            }
+            for (SimulatedWalker walker : walkers) {
+                walker.resetCounters(paced);
+            }
+            latencies.reset();
+            long gcBefore = gcTimeMs();
+            long peakHeap = 0;
+            int lateRounds = 0;
+            long measureStartNs = System.nanoTime();
+            long firstRound = round;
+            for (; (round - firstRound + 1) * batchNs <= durationNs; round++) {
+                if (runRound(executor, tasks, roundEndNs, round)) {
+                    lateRounds++;
+                }
+                peakHeap = Math.max(peakHeap, usedHeap());
+            }
+            double seconds = (System.nanoTime() - measureStartNs) / 1e9;
+
+            long samples = 0;
+            long steps = 0;
+            for (SimulatedWalker walker : walkers) {
+                samples += walker.getSamples();
+                steps += walker.getSteps();
+            }
+            return String.format(Locale.ROOT, "%8d %10d %10d %8d %7s %7s %7s %5d %9.1f KB %7.1f MB %7d",
+                    pWalkers, (long) pWalkers * rateHz, Math.round(samples / seconds), steps,
+                    latency(latencies.getPercentile(50)), latency(latencies.getPercentile(99)), latency(latencies.getMax()),
+                    lateRounds, heapPerWalker / 1024.0, peakHeap / (1024.0 * 1024.0), gcTimeMs() - gcBefore);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Scores one batch of all walkers. Paced, the round waits until the end of its batch window.
+     * @return boolean: true if the round finished after the end of the next batch window.
+     */
+    private boolean runRound(ExecutorService pExecutor, List<Callable<Long>> pTasks, long[] pRoundEndNs, long pRound)
+            throws InterruptedException, ExecutionException {
+        long endNs = (pRound + 1) * batchNs;
+        if (paced) {
+            long waitNs = endNs - clock.elapsedRealtimeNanos();
+            if (waitNs > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNs);
+            }
+        }
+        // wird vor dem Start der Tasks geschrieben, invokeAll sorgt für die Sichtbarkeit
+        pRoundEndNs[0] = endNs;
+        for (Future<Long> future : pExecutor.invokeAll(pTasks)) {
+            future.get();
+        }
+        return paced && clock.elapsedRealtimeNanos() > endNs + batchNs;
+    }
+
+    private String latency(long pNs) {
+        if (!paced || latencies.getCount() == 0) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%.1f", pNs / 1e6);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcTimeMs() {
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, bean.getCollectionTime());
+        }
+        return time;
+    }
+}
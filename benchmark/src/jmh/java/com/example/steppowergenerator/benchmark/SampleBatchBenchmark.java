@@ -0,0 +1,75 @@
+package com.example.steppowergenerator.benchmark;
+
+import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.SampleBatch;
+import com.example.steppowergenerator.StepDetector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the calculation of the total acceleration on a SampleBatch (columns in primitive arrays, one loop
+ * the JIT can vectorize) with the same calculation on one AccelerationData object per record, as the
+ * StepDetector stored its records before. One operation is one record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SampleBatchBenchmark {
+
+    static final int RECORDS = 4096;
+
+    private SampleBatch batch;
+    private List<AccelerationData> objects;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AccelerationTrace trace = AccelerationTrace.synthetic(Workload.JOGGING, RECORDS, 50, 42);
+        batch = new SampleBatch(RECORDS);
+        objects = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            batch.add(trace.getTime(i), trace.getX(i), trace.getY(i), trace.getZ(i));
+            AccelerationData accelerationData = new AccelerationData();
+            accelerationData.setTime(trace.getTime(i));
+            accelerationData.setX(trace.getX(i));
+            accelerationData.setY(trace.getY(i));
+            accelerationData.setZ(trace.getZ(i));
+            objects.add(accelerationData);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public double[] sampleBatch() {
+        // die Offsets wechseln, damit jeder Aufruf alle Datensätze neu berechnet
+        batch.computeMagnitudes(1);
+        return batch.computeMagnitudes(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public List<AccelerationData> objectPerRecord() {
+        for (int i = 0; i < RECORDS; i++) {
+            AccelerationData accelerationData = objects.get(i);
+            accelerationData.setValue(StepDetector.calculateValue(
+                    accelerationData.getX(), accelerationData.getY(), accelerationData.getZ()));
+        }
+        for (int i = 0; i < RECORDS; i++) {
+            AccelerationData accelerationData = objects.get(i);
+            accelerationData.setValue(StepDetector.calculateValue(
+                    accelerationData.getX(), accelerationData.getY(), accelerationData.getZ()));
+        }
+        return objects;
+    }
+}
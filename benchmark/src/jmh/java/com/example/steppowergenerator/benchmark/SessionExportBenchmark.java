@@ -0,0 +1,98 @@
+package com.example.steppowergenerator.benchmark;
+
+import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.StepType;
+import com.example.steppowergenerator.session.SessionExporter;
+import com.example.steppowergenerator.session.SessionLogFormat;
+import com.example.steppowergenerator.session.SessionRecorder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the export of a measurement with the SessionExporter, from the first record until the file is closed,
+ * compared with the COMPACT session log of the SessionRecorder. One operation is one record; a step is added
+ * every 25 records. The time includes encoding, compression and writing on the background thread, because
+ * close waits for it. The size of the written file is printed in bytes/record after each trial.
+ *
+ * Chunk size and compression level can be chosen with -p chunkSize=1024,4096 -p compressionLevel=1,6,9.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionExportBenchmark {
+
+    static final int RECORDS = 64 * 1024;
+    static final int RECORDS_PER_STEP = 25;
+
+    @Param({"WALKING", "RUNNING"})
+    public Workload workload;
+
+    @Param({"4096"})
+    public int chunkSize;
+
+    @Param({"1", "6"})
+    public int compressionLevel;
+
+    private AccelerationTrace trace;
+    private final AccelerationData stepData = new AccelerationData();
+    private File file;
+    private long fileLength;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        trace = AccelerationTrace.synthetic(workload, RECORDS, StepDetectorBenchmark.SAMPLE_RATE_HZ, 42);
+        file = File.createTempFile("session-export", ".spgx");
+        file.deleteOnExit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(String.format(Locale.ROOT, "%n%s: %.2f bytes/record", workload, (double) fileLength / RECORDS));
+        file.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long export() throws IOException {
+        // waits for free chunks, so every record is written and measured
+        try (SessionExporter exporter = new SessionExporter(file, 1600000000000L, chunkSize, compressionLevel, true)) {
+            for (int i = 0; i < RECORDS; i++) {
+                exporter.accept(trace.getTime(i), trace.getX(i), trace.getY(i), trace.getZ(i));
+                if (i % RECORDS_PER_STEP == 0) {
+                    stepData.setTime(1600000000000L + trace.getTime(i) / 1000000L);
+                    stepData.setValue(20);
+                    exporter.step(stepData, StepType.WALKING);
+                }
+            }
+        }
+        fileLength = file.length();
+        return fileLength;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long sessionLog() throws IOException {
+        try (SessionRecorder recorder = new SessionRecorder(file, SessionLogFormat.COMPACT, 1600000000000L)) {
+            for (int i = 0; i < RECORDS; i++) {
+                recorder.append(trace.getTime(i), trace.getX(i), trace.getY(i), trace.getZ(i));
+            }
+        }
+        fileLength = file.length();
+        return fileLength;
+    }
+}
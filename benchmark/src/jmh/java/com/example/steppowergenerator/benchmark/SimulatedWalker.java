@@ -0,0 +1,97 @@
+package com.example.steppowergenerator.benchmark;
+
+import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.Clock;
+import com.example.steppowergenerator.DetectionMode;
+import com.example.steppowergenerator.StepDetector;
+import com.example.steppowergenerator.StepListener;
+import com.example.steppowergenerator.StepType;
+import com.example.steppowergenerator.metrics.Histogram;
+
+/**
+ * The SimulatedWalker class is one step stream of the LoadHarness: a user whose phone sends the records
+ * of an AccelerationTrace, scored by an own StepDetector. The trace is shared between walkers; each walker
+ * starts at its own position and time offset, so the walkers do not step in lockstep.
+ * The sensor timestamps are relative to the start of the harness, the same time base as the clock of the
+ * StepDetector, so the step latency of the StepDetector is the time from the peak record to its step.
+ * All methods except the getters are called by one thread at a time.
+ */
+class SimulatedWalker implements StepListener {
+
+    private final AccelerationTrace trace;
+    private final StepDetector stepDetector;
+    private final Histogram latencies;
+
+    private int position;
+    private long timeOffsetNs;
+
+    private long samples;
+    private long steps;
+    private boolean recordLatency;
+
+    /**
+     * @param pTrace      Records of the walker, read from pStartPosition on and repeated
+     * @param pStartPosition Index of the first record
+     * @param pPhaseNs    Sensor time of the first record, relative to the start of the harness
+     * @param pMode       DetectionMode of the StepDetector
+     * @param pClock      Clock of the harness
+     * @param pLatencies  Histogram for the step latencies, shared by all walkers
+     */
+    SimulatedWalker(AccelerationTrace pTrace, int pStartPosition, long pPhaseNs, DetectionMode pMode,
+                    Clock pClock, Histogram pLatencies) {
+        trace = pTrace;
+        position = pStartPosition;
+        timeOffsetNs = pPhaseNs - pTrace.getTime(pStartPosition);
+        latencies = pLatencies;
+        stepDetector = new StepDetector(pMode, pClock);
+        stepDetector.registerStepListener(this);
+    }
+
+    /**
+     * The advance method passes all records with a sensor time before pEndNs to the StepDetector,
+     * like a sensor batch delivered at pEndNs.
+     * @param pEndNs Sensor time up to which the records have been measured.
+     * @return long: The number of records passed.
+     */
+    long advance(long pEndNs) {
+        int size = trace.size();
+        long count = 0;
+        while (trace.getTime(position) + timeOffsetNs < pEndNs) {
+            stepDetector.addSample(trace.getTime(position) + timeOffsetNs,
+                    trace.getX(position), trace.getY(position), trace.getZ(position));
+            count++;
+            if (++position == size) {
+                position = 0;
+                timeOffsetNs += trace.durationNs();
+            }
+        }
+        samples += count;
+        return count;
+    }
+
+    @Override
+    public void step(AccelerationData accelerationData, StepType stepType) {
+        steps++;
+        if (recordLatency) {
+            latencies.record(stepDetector.getLastStepLatencyNanos());
+        }
+    }
+
+    /**
+     * Sets the counters back to 0, e.g. after the warmup.
+     * @param pRecordLatency true if the steps are scored in real time, so their latency is meaningful
+     */
+    void resetCounters(boolean pRecordLatency) {
+        samples = 0;
+        steps = 0;
+        recordLatency = pRecordLatency;
+    }
+
+    long getSamples() {
+        return samples;
+    }
+
+    long getSteps() {
+        return steps;
+    }
+}
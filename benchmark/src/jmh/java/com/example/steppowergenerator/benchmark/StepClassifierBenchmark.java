@@ -0,0 +1,113 @@
+package com.example.steppowergenerator.benchmark;
+
+import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.DecisionTreeStepClassifier;
+import com.example.steppowergenerator.DetectionMode;
+import com.example.steppowergenerator.StepClassifier;
+import com.example.steppowergenerator.StepDetector;
+import com.example.steppowergenerator.StepFeatures;
+import com.example.steppowergenerator.StepListener;
+import com.example.steppowergenerator.StepType;
+import com.example.steppowergenerator.ThresholdStepClassifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the StepClassifier implementations. The steps of synthetic traces of all workloads
+ * (with PEAK_JITTER, so the peaks of the workloads overlap) are collected once with their StepFeatures
+ * and the workload as expected StepType. The benchmark then classifies one step per operation (ns/step);
+ * the accuracy on the same steps is printed once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StepClassifierBenchmark {
+
+    static final int SAMPLE_COUNT = 50 * 120;
+    static final int SAMPLE_RATE_HZ = 50;
+    static final double PEAK_JITTER = 0.15;
+
+    /**
+     * The classifiers to compare.
+     */
+    public enum Classifier {
+            THRESHOLD,
+            DECISION_TREE;
+
+            StepClassifier create() {
+                    return this == THRESHOLD ? new ThresholdStepClassifier() : DecisionTreeStepClassifier.createDefault();
+            }
+    }
+
+    @Param({"THRESHOLD", "DECISION_TREE"})
+    public Classifier classifier;
+
+    private StepClassifier stepClassifier;
+    private StepFeatures[] features;
+    private StepType[] expectedStepTypes;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final List<StepFeatures> featureList = new ArrayList<>();
+        List<StepType> expectedList = new ArrayList<>();
+        for (Workload workload : Workload.values()) {
+            AccelerationTrace trace = AccelerationTrace.synthetic(workload, SAMPLE_COUNT, SAMPLE_RATE_HZ, 42, PEAK_JITTER);
+            StepDetector stepDetector = new StepDetector(DetectionMode.STREAMING, new FixedClock(0, 0));
+            stepDetector.setStepClassifier(new StepClassifier() {
+                @Override
+                public StepType classify(StepFeatures stepFeatures) {
+                    featureList.add(stepFeatures.copy());
+                    return StepType.WALKING;
+                }
+            });
+            stepDetector.registerStepListener(new StepListener() {
+                @Override
+                public void step(AccelerationData accelerationData, StepType stepType) {
+                }
+            });
+
+            int before = featureList.size();
+            for (int i = 0; i < trace.size(); i++) {
+                stepDetector.addSample(trace.getTime(i), trace.getX(i), trace.getY(i), trace.getZ(i));
+            }
+            for (int i = before; i < featureList.size(); i++) {
+                expectedList.add(StepType.valueOf(workload.name()));
+            }
+        }
+        features = featureList.toArray(new StepFeatures[0]);
+        expectedStepTypes = expectedList.toArray(new StepType[0]);
+        stepClassifier = classifier.create();
+
+        int correct = 0;
+        for (int i = 0; i < features.length; i++) {
+            if (stepClassifier.classify(features[i]) == expectedStepTypes[i]) {
+                correct++;
+            }
+        }
+        System.out.println(String.format(Locale.ROOT, "%n%s accuracy: %.1f %% of %d steps",
+                classifier, 100.0 * correct / features.length, features.length));
+    }
+
+    @Benchmark
+    public StepType classify() {
+        StepFeatures stepFeatures = features[position];
+        if (++position == features.length) {
+            position = 0;
+        }
+        return stepClassifier.classify(stepFeatures);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.steppowergenerator.benchmark;
+
+import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.DetectionMode;
+import com.example.steppowergenerator.FilterMode;
+import com.example.steppowergenerator.StepDetector;
+import com.example.steppowergenerator.StepListener;
+import com.example.steppowergenerator.StepType;
+import com.example.steppowergenerator.metrics.DetectorMetrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the complete StepDetector pipeline (calculateValueAndTime, findHighPoints
+ * and examineStepTypeAndSendResponse) by feeding an acceleration trace
+ * sample by sample. One operation is one sample, so the average time is reported in ns/sample
+ * and the gc profiler reports the allocations per sample.
+ *
+ * A recorded trace can be used instead of the synthetic workloads with -p traceFile=/path/to/trace.csv,
+ * the pre-processing stage can be chosen with -p filterMode=GRAVITY_REMOVAL,BAND_PASS.
+ * -p metrics=true,false compares the pipeline with and without DetectorMetrics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StepDetectorBenchmark {
+
+    static final int SAMPLES_PER_INVOCATION = 4096;
+    static final int SAMPLE_RATE_HZ = 50;
+
+    @Param({"WALKING", "JOGGING", "RUNNING"})
+    public Workload workload;
+
+    @Param({"BATCH", "STREAMING"})
+    public DetectionMode detectionMode;
+
+    @Param({"NONE"})
+    public FilterMode filterMode;
+
+    @Param({"false"})
+    public boolean metrics;
+
+    @Param({""})
+    public String traceFile;
+
+    private AccelerationTrace trace;
+    private FixedClock clock;
+    private StepDetector stepDetector;
+    private BlackholeStepListener stepListener;
+
+    private int position;
+    private long timeOffsetNs;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole pBlackhole) throws IOException {
+        if (traceFile.isEmpty()) {
+            trace = AccelerationTrace.synthetic(workload, SAMPLES_PER_INVOCATION, SAMPLE_RATE_HZ, 42);
+        } else {
+            trace = AccelerationTrace.fromCsv(Paths.get(traceFile));
+        }
+        stepListener = new BlackholeStepListener(pBlackhole);
+        clock = new FixedClock(1600000000000L, trace.getTime(0));
+        stepDetector = new StepDetector(detectionMode, clock);
+        stepDetector.setFilterMode(filterMode);
+        stepDetector.setMetrics(metrics ? new DetectorMetrics() : null);
+        stepDetector.registerStepListener(stepListener);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+    public void detect() {
+        feed();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+    public void detectThroughput() {
+        feed();
+    }
+
+    /**
+     * The feed method passes SAMPLES_PER_INVOCATION records to the StepDetector. If the end
+     * of the trace is reached, it starts again with timestamps shifted by the trace duration,
+     * so the timestamps seen by the StepDetector keep increasing. The clock is set to the timestamp of
+     * each record, as if it was processed the moment it was measured, so step latencies are never negative.
+     */
+    private void feed() {
+        int size = trace.size();
+        for (int i = 0; i < SAMPLES_PER_INVOCATION; i++) {
+            long timestampNs = trace.getTime(position) + timeOffsetNs;
+            clock.setElapsedRealtimeNanos(timestampNs);
+            stepDetector.addSample(timestampNs, trace.getX(position), trace.getY(position), trace.getZ(position));
+            if (++position == size) {
+                position = 0;
+                timeOffsetNs += trace.durationNs();
+            }
+        }
+    }
+
+    /**
+     * StepListener which hands every step to the JMH Blackhole.
+     */
+    static class BlackholeStepListener implements StepListener {
+
+        private final Blackhole blackhole;
+
+        BlackholeStepListener(Blackhole pBlackhole) {
+            blackhole = pBlackhole;
+        }
+
+        @Override
+        public void step(AccelerationData accelerationData, StepType stepType) {
+            blackhole.consume(accelerationData.getValue());
+            blackhole.consume(stepType);
+        }
+    }
+}
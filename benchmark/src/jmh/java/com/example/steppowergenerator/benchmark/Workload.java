@@ -0,0 +1,28 @@
+package com.example.steppowergenerator.benchmark;
+
+/**
+ * The Workload enum contains the synthetic movement patterns used in the benchmarks.
+ * Each one has a step frequency (steps per second) and the total acceleration
+ * reached at the high point of a step (m/s², including gravity).
+ */
+public enum Workload {
+        WALKING(1.8, 20.0),
+        JOGGING(2.6, 27.0),
+        RUNNING(3.2, 33.0);
+
+        private final double stepsPerSecond;
+        private final double peakAcceleration;
+
+        Workload(double pStepsPerSecond, double pPeakAcceleration) {
+                stepsPerSecond = pStepsPerSecond;
+                peakAcceleration = pPeakAcceleration;
+        }
+
+        public double getStepsPerSecond() {
+                return stepsPerSecond;
+        }
+
+        public double getPeakAcceleration() {
+                return peakAcceleration;
+        }
+}
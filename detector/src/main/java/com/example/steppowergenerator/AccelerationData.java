@@ -7,6 +7,7 @@ public class AccelerationData {
     private float y;
     private float z;
     private long time;
+    private long timestampNs; // Zeitstempel des Sensors (Nanosekunden seit Gerätestart)
 
     public double getValue() {
         return value;
@@ -47,4 +48,12 @@ public class AccelerationData {
     public void setTime(long time) {
         this.time = time;
     }
+
+    public long getTimestampNs() {
+        return timestampNs;
+    }
+
+    public void setTimestampNs(long timestampNs) {
+        this.timestampNs = timestampNs;
+    }
 }
@@ -0,0 +1,143 @@
+package com.example.steppowergenerator;
+
+/**
+ * The AccelerationFilter class is the pre-processing stage of the StepDetector.
+ * Each axis is filtered separately by a Biquad high-pass, which removes gravity independently of how
+ * the device is held, and in FilterMode.BAND_PASS additionally by a Biquad low-pass against noise.
+ * The filters are designed for the interval between the sensor timestamps and are designed again
+ * if the sampling rate changes. After a gap of more than MAX_GAP_NS (or at the start) the filter state
+ * is set to the first record, so gravity does not cause a transient.
+ * The filtered values are the linear acceleration; the StepDetector adds GRAVITY to their vector length,
+ * so the thresholds keep their meaning.
+ */
+public class AccelerationFilter {
+
+    public static final double GRAVITY = 9.80665;
+    public static final double HIGH_PASS_CUTOFF_HZ = 0.5;
+    public static final double LOW_PASS_CUTOFF_HZ = 8;
+    public static final long MAX_GAP_NS = 1000 * 1000000L;
+
+    private static final double Q = Math.sqrt(0.5);
+    private static final long DEFAULT_INTERVAL_NS = 20 * 1000000L;
+    // Abweichung vom Abstand, für den die Filter berechnet wurden, ab der neu berechnet wird
+    private static final double INTERVAL_TOLERANCE = 0.25;
+    // Grenzfrequenzen über diesem Anteil der Abtastrate werden nicht gefiltert
+    private static final double MAX_CUTOFF_RATIO = 0.45;
+
+    private final FilterMode filterMode;
+
+    private final Biquad highPassX = new Biquad();
+    private final Biquad highPassY = new Biquad();
+    private final Biquad highPassZ = new Biquad();
+    private final Biquad lowPassX = new Biquad();
+    private final Biquad lowPassY = new Biquad();
+    private final Biquad lowPassZ = new Biquad();
+
+    private boolean hasSample;
+    private long lastTimestampNs;
+    private long designIntervalNs;
+
+    private float x, y, z;
+
+    /**
+     * Class constructor.
+     * @param pFilterMode The filters to apply. With FilterMode.NONE the records are passed unchanged.
+     */
+    public AccelerationFilter(FilterMode pFilterMode){
+        filterMode = pFilterMode;
+        design(DEFAULT_INTERVAL_NS);
+    }
+
+    /**
+     * The filter method filters one record. The result can be read with getX, getY and getZ.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pX Acceleration in x direction
+     * @param pY Acceleration in y direction
+     * @param pZ Acceleration in z direction
+     */
+    public void filter(long pTimestampNs, float pX, float pY, float pZ){
+        if(filterMode == FilterMode.NONE){
+            x = pX;
+            y = pY;
+            z = pZ;
+            return;
+        }
+
+        long intervalNs = pTimestampNs - lastTimestampNs;
+        if(!hasSample || intervalNs <= 0 || intervalNs > MAX_GAP_NS){
+            highPassX.reset(pX);
+            highPassY.reset(pY);
+            highPassZ.reset(pZ);
+            // der Hochpass gibt im eingeschwungenen Zustand 0 aus
+            lowPassX.reset(0);
+            lowPassY.reset(0);
+            lowPassZ.reset(0);
+            hasSample = true;
+        } else if(Math.abs(intervalNs - designIntervalNs) > designIntervalNs * INTERVAL_TOLERANCE){
+            design(intervalNs);
+        }
+        lastTimestampNs = pTimestampNs;
+
+        double filteredX = highPassX.process(pX);
+        double filteredY = highPassY.process(pY);
+        double filteredZ = highPassZ.process(pZ);
+        if(filterMode == FilterMode.BAND_PASS){
+            filteredX = lowPassX.process(filteredX);
+            filteredY = lowPassY.process(filteredY);
+            filteredZ = lowPassZ.process(filteredZ);
+        }
+        x = (float) filteredX;
+        y = (float) filteredY;
+        z = (float) filteredZ;
+    }
+
+    /**
+     * The design method calculates the filter coefficients for the given interval between two records.
+     * @param pIntervalNs Interval between two records in nanoseconds.
+     */
+    private void design(long pIntervalNs){
+        designIntervalNs = pIntervalNs;
+        double sampleRateHz = 1e9 / pIntervalNs;
+        if(HIGH_PASS_CUTOFF_HZ < sampleRateHz * MAX_CUTOFF_RATIO){
+            highPassX.setHighPass(sampleRateHz, HIGH_PASS_CUTOFF_HZ, Q);
+            highPassY.setHighPass(sampleRateHz, HIGH_PASS_CUTOFF_HZ, Q);
+            highPassZ.setHighPass(sampleRateHz, HIGH_PASS_CUTOFF_HZ, Q);
+        } else {
+            highPassX.setPassThrough();
+            highPassY.setPassThrough();
+            highPassZ.setPassThrough();
+        }
+        if(LOW_PASS_CUTOFF_HZ < sampleRateHz * MAX_CUTOFF_RATIO){
+            lowPassX.setLowPass(sampleRateHz, LOW_PASS_CUTOFF_HZ, Q);
+            lowPassY.setLowPass(sampleRateHz, LOW_PASS_CUTOFF_HZ, Q);
+            lowPassZ.setLowPass(sampleRateHz, LOW_PASS_CUTOFF_HZ, Q);
+        } else {
+            lowPassX.setPassThrough();
+            lowPassY.setPassThrough();
+            lowPassZ.setPassThrough();
+        }
+    }
+
+    /**
+     * The reset method discards the filter state, the next record starts a new signal.
+     */
+    public void reset(){
+        hasSample = false;
+    }
+
+    public FilterMode getFilterMode(){
+        return filterMode;
+    }
+
+    public float getX(){
+        return x;
+    }
+
+    public float getY(){
+        return y;
+    }
+
+    public float getZ(){
+        return z;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.steppowergenerator;
+
+/**
+ * The Biquad class is a second order IIR filter in transposed direct form II.
+ * The coefficients are calculated as in the "Audio EQ Cookbook" (R. Bristow-Johnson).
+ * The filter state is kept between calls, so a signal can be filtered record by record
+ * or in blocks without any difference. No objects are created after construction.
+ */
+public class Biquad {
+
+    private double b0, b1, b2, a1, a2;
+    private double z1, z2;
+
+    /**
+     * Class constructor.
+     * The filter passes the signal unchanged until setLowPass or setHighPass is called.
+     */
+    public Biquad(){
+        setPassThrough();
+    }
+
+    /**
+     * The setPassThrough method sets the coefficients so that the output equals the input.
+     */
+    public void setPassThrough(){
+        setCoefficients(1, 0, 0, 1, 0, 0);
+    }
+
+    /**
+     * The setLowPass method sets the coefficients of a low-pass filter.
+     * The filter state is kept, so the coefficients can be changed while filtering.
+     * @param pSampleRateHz Records per second
+     * @param pCutoffHz Cutoff frequency, must be below half the sample rate
+     * @param pQ Quality, 1/sqrt(2) for a Butterworth characteristic
+     */
+    public void setLowPass(double pSampleRateHz, double pCutoffHz, double pQ){
+        double w0 = 2 * Math.PI * pCutoffHz / pSampleRateHz;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * pQ);
+        setCoefficients((1 - cos) / 2, 1 - cos, (1 - cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    /**
+     * The setHighPass method sets the coefficients of a high-pass filter.
+     * The filter state is kept, so the coefficients can be changed while filtering.
+     * @param pSampleRateHz Records per second
+     * @param pCutoffHz Cutoff frequency, must be below half the sample rate
+     * @param pQ Quality, 1/sqrt(2) for a Butterworth characteristic
+     */
+    public void setHighPass(double pSampleRateHz, double pCutoffHz, double pQ){
+        double w0 = 2 * Math.PI * pCutoffHz / pSampleRateHz;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * pQ);
+        setCoefficients((1 + cos) / 2, -(1 + cos), (1 + cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    private void setCoefficients(double pB0, double pB1, double pB2, double pA0, double pA1, double pA2){
+        b0 = pB0 / pA0;
+        b1 = pB1 / pA0;
+        b2 = pB2 / pA0;
+        a1 = pA1 / pA0;
+        a2 = pA2 / pA0;
+    }
+
+    /**
+     * The reset method sets the state as if pInput had been filtered for a long time,
+     * so a constant signal (e.g. gravity at the start of a measurement) does not cause a transient.
+     * @param pInput The first value of the signal.
+     */
+    public void reset(double pInput){
+        double output = pInput * (b0 + b1 + b2) / (1 + a1 + a2);
+        z2 = b2 * pInput - a2 * output;
+        z1 = b1 * pInput - a1 * output + z2;
+    }
+
+    /**
+     * The process method filters one value.
+     * @param pInput The next value of the signal.
+     * @return double: The filtered value.
+     */
+    public double process(double pInput){
+        double output = b0 * pInput + z1;
+        z1 = b1 * pInput - a1 * output + z2;
+        z2 = b2 * pInput - a2 * output;
+        return output;
+    }
+
+    /**
+     * The process method filters a block of values in place.
+     * @param pBuffer Values of the signal, replaced by the filtered values.
+     * @param pOffset Index of the first value
+     * @param pCount Number of values
+     */
+    public void process(float[] pBuffer, int pOffset, int pCount){
+        int end = pOffset + pCount;
+        for (int i = pOffset; i < end; i++) {
+            pBuffer[i] = (float) process(pBuffer[i]);
+        }
+    }
+}
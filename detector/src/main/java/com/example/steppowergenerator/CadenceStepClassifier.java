@@ -0,0 +1,42 @@
+package com.example.steppowergenerator;
+
+/**
+ * The CadenceStepClassifier class is the default StepClassifier of the HardwareStepSource,
+ * whose steps have no peak. It determines the step type from the cadence:
+ * above RUNNING_CADENCE the step type RUNNING, above JOGGING_CADENCE JOGGING, otherwise WALKING.
+ * If gyroscope data is available (StepFeatures.ANGULAR_RATE greater than 0), the angular rate is
+ * classified the same way; if the two results differ by two types (WALKING and RUNNING), JOGGING is output,
+ * otherwise the result of the cadence.
+ */
+public class CadenceStepClassifier implements StepClassifier {
+
+    // Schritte pro Sekunde
+    public static final double JOGGING_CADENCE = 2.4;
+    public static final double RUNNING_CADENCE = 2.8;
+    // rad/s
+    public static final double JOGGING_ANGULAR_RATE = 2.0;
+    public static final double RUNNING_ANGULAR_RATE = 3.5;
+
+    @Override
+    public StepType classify(StepFeatures pFeatures){
+        StepType cadenceType = classify(pFeatures.get(StepFeatures.CADENCE), JOGGING_CADENCE, RUNNING_CADENCE);
+        double angularRate = pFeatures.get(StepFeatures.ANGULAR_RATE);
+        if(angularRate <= 0){
+            return cadenceType;
+        }
+        StepType angularRateType = classify(angularRate, JOGGING_ANGULAR_RATE, RUNNING_ANGULAR_RATE);
+        if(Math.abs(cadenceType.ordinal() - angularRateType.ordinal()) == 2){
+            return StepType.JOGGING;
+        }
+        return cadenceType;
+    }
+
+    private static StepType classify(double pValue, double pJoggingThreshold, double pRunningThreshold){
+        if(pValue > pRunningThreshold){
+            return StepType.RUNNING;
+        } else if(pValue > pJoggingThreshold){
+            return StepType.JOGGING;
+        }
+        return StepType.WALKING;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.steppowergenerator;
+
+/**
+ * The Clock interface provides the times the StepDetector needs to convert sensor timestamps.
+ * On a device it is implemented by AndroidClock; on a plain JVM (tests, benchmarks) any
+ * other implementation can be passed, so the StepDetector does not depend on android.os.SystemClock.
+ * The offset to Unix time is only read once per session, not for every record.
+ */
+public interface Clock {
+
+    /**
+     * @return long: The current Unix time in milliseconds.
+     */
+    long currentTimeMillis();
+
+    /**
+     * @return long: Milliseconds since device start, including deep sleep.
+     * Sensor timestamps are based on this clock.
+     */
+    long elapsedRealtime();
+
+    /**
+     * @return long: Nanoseconds since device start, including deep sleep.
+     */
+    long elapsedRealtimeNanos();
+}
@@ -0,0 +1,173 @@
+package com.example.steppowergenerator;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ The ConcurrentStepDetector class is the thread-safe variant of the StepDetector.
+ A StepDetector must only be used by one thread; here the sensor thread (the producer) only puts the records
+ into a lock-free SampleQueue, and a worker thread (the consumer) passes them to its own StepDetector.
+ Steps are reported on the worker thread to all listeners of a StepListenerList, which can be added and removed
+ from any thread. While the queue is empty, the worker parks; the producer only wakes it up if it has announced
+ that it waits, so a continuous stream of records does not cost a system call per record.
+ If the queue is full (the worker falls behind by its whole capacity), addSample drops the record and counts it.
+ The StepDetector (classifier, filter, MagnitudeListener, metrics) must only be configured while the worker is stopped.
+ */
+public class ConcurrentStepDetector {
+
+    // 4096 Datensätze reichen bei 50 Hz für etwa 80 Sekunden
+    public static final int DEFAULT_CAPACITY = 4096;
+    // Höchstens so viele Datensätze werden auf einmal an den StepDetector übergeben
+    private static final int MAX_DRAIN_COUNT = 256;
+
+    private final StepDetector stepDetector;
+    private final SampleQueue queue;
+    private final StepListenerList stepListeners = new StepListenerList();
+
+    private volatile Thread worker;
+    private volatile boolean running;
+    // Gesetzt, bevor der Worker die Schlange ein letztes Mal prüft und dann schläft
+    private volatile boolean workerWaiting;
+    // Nur vom Produzenten geschrieben
+    private volatile long droppedSamples;
+
+    private final Runnable detection = new Runnable() {
+        @Override
+        public void run() {
+            while(true){
+                if(queue.drainTo(stepDetector, MAX_DRAIN_COUNT) > 0){
+                    continue;
+                }
+                if(!running){
+                    // stop wartet, bis alle vorher hinzugefügten Datensätze verarbeitet sind
+                    if(queue.isEmpty()){
+                        return;
+                    }
+                    continue;
+                }
+                workerWaiting = true;
+                if(queue.isEmpty() && running){
+                    LockSupport.park(this);
+                }
+                workerWaiting = false;
+            }
+        }
+    };
+
+    /**
+     * Class constructor.
+     * Creates a ConcurrentStepDetector with a queue of DEFAULT_CAPACITY records.
+     * @param pDetectionMode Whether the worker examines the records in batches of 25 or one by one.
+     * @param pClock The clock used to convert sensor timestamps into Unix time.
+     */
+    public ConcurrentStepDetector(DetectionMode pDetectionMode, Clock pClock){
+        this(pDetectionMode, pClock, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Class constructor.
+     * @param pDetectionMode Whether the worker examines the records in batches of 25 or one by one.
+     * @param pClock The clock used to convert sensor timestamps into Unix time.
+     * @param pCapacity Number of records the worker may fall behind, rounded up to a power of two.
+     */
+    public ConcurrentStepDetector(DetectionMode pDetectionMode, Clock pClock, int pCapacity){
+        stepDetector = new StepDetector(pDetectionMode, pClock);
+        stepDetector.registerStepListener(stepListeners);
+        queue = new SampleQueue(pCapacity);
+    }
+
+    /**
+     * The addStepListener method registers a listener for all following steps. Can be called from any thread.
+     * The listener is called on the worker thread.
+     * @param pStepListener The interface which is notified of recognized steps.
+     */
+    public void addStepListener(StepListener pStepListener){
+        stepListeners.add(pStepListener);
+    }
+
+    /**
+     * @param pStepListener The listener to unregister.
+     * @return boolean: true if the listener was registered.
+     */
+    public boolean removeStepListener(StepListener pStepListener){
+        return stepListeners.remove(pStepListener);
+    }
+
+    /**
+     * @return StepDetector: The detector of the worker, only to be configured while the worker is stopped.
+     */
+    public StepDetector getStepDetector(){
+        return stepDetector;
+    }
+
+    /**
+     * The start method prepares the StepDetector for a new measurement (see StepDetector.resetSession)
+     * and starts the worker thread. Records added while the worker was stopped belong to no measurement
+     * and are discarded. Must not be called while records are added.
+     */
+    public synchronized void start(){
+        if(worker != null){
+            return;
+        }
+        queue.clear();
+        stepDetector.resetSession();
+        droppedSamples = 0;
+        running = true;
+        Thread thread = new Thread(detection, "StepDetection");
+        worker = thread;
+        thread.start();
+    }
+
+    /**
+     * The stop method waits until the worker has processed all records added before the call
+     * and reported their steps, and ends the worker thread. Records added later are not processed.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public synchronized void stop() throws InterruptedException {
+        Thread thread = worker;
+        if(thread == null){
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+        worker = null;
+    }
+
+    /**
+     * The addSample method hands a record of the acceleration sensor to the worker.
+     * Must always be called by the same thread (or with a happens-before relation between the calls).
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pX Acceleration in x direction
+     * @param pY Acceleration in y direction
+     * @param pZ Acceleration in z direction
+     * @return boolean: false if the queue was full and the record was dropped.
+     */
+    public boolean addSample(long pTimestampNs, float pX, float pY, float pZ){
+        if(!queue.offer(pTimestampNs, pX, pY, pZ)){
+            droppedSamples++;
+            return false;
+        }
+        if(workerWaiting){
+            LockSupport.unpark(worker);
+        }
+        return true;
+    }
+
+    /**
+     * @return long: The number of records dropped because the queue was full, since start.
+     */
+    public long getDroppedSamples(){
+        return droppedSamples;
+    }
+
+    /**
+     * @return int: The number of records waiting for the worker.
+     */
+    public int getQueuedSamples(){
+        return queue.size();
+    }
+
+    public boolean isRunning(){
+        return worker != null;
+    }
+}
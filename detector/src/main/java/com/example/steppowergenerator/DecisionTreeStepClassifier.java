@@ -0,0 +1,81 @@
+package com.example.steppowergenerator;
+
+/**
+ * The DecisionTreeStepClassifier class classifies steps with a small binary decision tree.
+ * The tree is stored in parallel arrays: node i compares the feature featureIndexes[i] of the StepFeatures
+ * with thresholds[i] and continues with lowerNodes[i] if the value is lower or equal, otherwise with higherNodes[i].
+ * A node with the feature index LEAF is a leaf; its lowerNodes entry is the ordinal of the StepType.
+ * Child nodes always have a higher index than their parent, so classify needs at most one comparison
+ * per level and does not create objects.
+ */
+public class DecisionTreeStepClassifier implements StepClassifier {
+
+    public static final int LEAF = -1;
+
+    private static final StepType[] STEP_TYPES = StepType.values();
+
+    private final int[] featureIndexes;
+    private final double[] thresholds;
+    private final int[] lowerNodes;
+    private final int[] higherNodes;
+
+    /**
+     * Class constructor.
+     * @param pFeatureIndexes Feature compared in each node (see StepFeatures), or LEAF.
+     * @param pThresholds Threshold of each node (ignored for leaves).
+     * @param pLowerNodes Next node if the feature is lower or equal, for leaves the StepType ordinal.
+     * @param pHigherNodes Next node if the feature is higher (ignored for leaves).
+     * @throws IllegalArgumentException If the arrays do not describe a valid tree.
+     */
+    public DecisionTreeStepClassifier(int[] pFeatureIndexes, double[] pThresholds, int[] pLowerNodes, int[] pHigherNodes){
+        int nodeCount = pFeatureIndexes.length;
+        if(nodeCount == 0 || pThresholds.length != nodeCount || pLowerNodes.length != nodeCount || pHigherNodes.length != nodeCount){
+            throw new IllegalArgumentException("All arrays must have the same length > 0");
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            if(pFeatureIndexes[i] == LEAF){
+                if(pLowerNodes[i] < 0 || pLowerNodes[i] >= STEP_TYPES.length){
+                    throw new IllegalArgumentException("Invalid step type in leaf " + i);
+                }
+            } else if(pFeatureIndexes[i] < 0 || pFeatureIndexes[i] >= StepFeatures.COUNT
+                    || pLowerNodes[i] <= i || pLowerNodes[i] >= nodeCount
+                    || pHigherNodes[i] <= i || pHigherNodes[i] >= nodeCount){
+                throw new IllegalArgumentException("Invalid node " + i);
+            }
+        }
+        featureIndexes = pFeatureIndexes.clone();
+        thresholds = pThresholds.clone();
+        lowerNodes = pLowerNodes.clone();
+        higherNodes = pHigherNodes.clone();
+    }
+
+    /**
+     * The createDefault method creates the tree shipped with the app. The peak decides like in the
+     * ThresholdStepClassifier, but near the thresholds the variance of the total acceleration over the last
+     * second decides: a single hard step while walking stays WALKING or JOGGING, light but steady
+     * jogging is no longer counted as WALKING.
+     * @return DecisionTreeStepClassifier: The default tree.
+     */
+    public static DecisionTreeStepClassifier createDefault(){
+        int w = StepType.WALKING.ordinal();
+        int j = StepType.JOGGING.ordinal();
+        int r = StepType.RUNNING.ordinal();
+        int p = StepFeatures.PEAK;
+        int v = StepFeatures.VARIANCE;
+        return new DecisionTreeStepClassifier(
+                //           0   1   2   3     4   5   6   7     8     9     10    11    12
+                new int[]{   p,  p,  p,  LEAF, v,  v,  v,  LEAF, LEAF, LEAF, LEAF, LEAF, LEAF},
+                new double[]{24, 21, 30, 0,    18, 8,  18, 0,    0,    0,    0,    0,    0},
+                new int[]{   1,  3,  5,  w,    7,  9,  11, w,    j,    w,    j,    j,    r},
+                new int[]{   2,  4,  6,  0,    8,  10, 12, 0,    0,    0,    0,    0,    0});
+    }
+
+    @Override
+    public StepType classify(StepFeatures pFeatures){
+        int node = 0;
+        while(featureIndexes[node] != LEAF){
+            node = pFeatures.get(featureIndexes[node]) <= thresholds[node] ? lowerNodes[node] : higherNodes[node];
+        }
+        return STEP_TYPES[lowerNodes[node]];
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.steppowergenerator;
+
+/**
+ * The DetectionMode enum contains the ways in which the StepDetector can process data records.
+ * BATCH collects 25 data records and examines them together,
+ * STREAMING examines every data record as soon as it arrives.
+ */
+public enum DetectionMode {
+        BATCH,
+        STREAMING
+}
@@ -0,0 +1,13 @@
+package com.example.steppowergenerator;
+
+/**
+ * The FilterMode enum contains the pre-processing stages the StepDetector can apply to the records
+ * before the high points are searched.
+ * NONE uses the raw records, GRAVITY_REMOVAL removes gravity (and slow changes of the orientation)
+ * with a high-pass filter on each axis, BAND_PASS additionally removes fast noise with a low-pass filter.
+ */
+public enum FilterMode {
+        NONE,
+        GRAVITY_REMOVAL,
+        BAND_PASS
+}
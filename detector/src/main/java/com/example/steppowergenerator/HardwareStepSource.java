@@ -0,0 +1,143 @@
+package com.example.steppowergenerator;
+
+/**
+ The HardwareStepSource class turns the events of a hardware step sensor into steps for a StepListener,
+ like the StepDetector does for the data records of the acceleration sensor.
+ The step detector of the sensor hub reports every step (addStepEvent); the step counter only reports
+ the total number of steps since device start, possibly several steps at once (addStepCount). In that case
+ the new steps are spread evenly over the time since the previous event, at most MAX_INTERPOLATED_INTERVAL_NS apart.
+ Hardware steps have no peak, so the reported AccelerationData has NaN as value and 0 as x, y and z.
+ The step type is determined by a StepClassifier from the cadence and, if gyroscope records are added
+ (addRotation), the angular rate; by default a CadenceStepClassifier is used.
+ Like the StepDetector, all methods must be called on the same thread and do not create objects.
+ */
+public class HardwareStepSource {
+
+    // Abstand der interpolierten Schritte nach einer Pause, wie SessionMetrics.MAX_STEP_INTERVAL_MS
+    public static final long MAX_INTERPOLATED_INTERVAL_NS = SessionMetrics.MAX_STEP_INTERVAL_MS * 1000000L;
+
+    private final Clock clock;
+
+    // Differenz zwischen Unix-Zeit und Gerätestart in Millisekunden, einmal pro Sitzung bestimmt
+    private long timeOffsetToUnix;
+
+    private StepListener stepListener;
+    private StepClassifier stepClassifier;
+
+    private final StepFeatureExtractor featureExtractor;
+    private final StepFeatures stepFeatures;
+    private final AccelerationData stepData;
+
+    // Letztes Ereignis des Schrittzählers; das erste Ereignis einer Sitzung legt nur den Ausgangswert fest
+    private boolean hasStepCount;
+    private long lastStepCount;
+    private long lastStepCountTimestampNs;
+
+    /**
+     * Class constructor.
+     * @param pClock The clock used to convert sensor timestamps into Unix time.
+     */
+    public HardwareStepSource(Clock pClock){
+        clock = pClock;
+        stepClassifier = new CadenceStepClassifier();
+        featureExtractor = new StepFeatureExtractor();
+        stepFeatures = new StepFeatures();
+        stepData = new AccelerationData();
+        timeOffsetToUnix = calculateTimeOffsetToUnix();
+    }
+
+    /**
+     * The registerStepListener method registers the given interface
+     * as an attribute in the class. Steps recognized later are communicated via this.
+     * @param pStepListener The interface which is notified of recognized steps.
+     */
+    public void registerStepListener(StepListener pStepListener){
+        stepListener = pStepListener;
+    }
+
+    /**
+     * The setStepClassifier method replaces the StepClassifier which determines the type of each step.
+     * @param pStepClassifier The classifier for all following steps; it must not depend on StepFeatures.PEAK.
+     */
+    public void setStepClassifier(StepClassifier pStepClassifier){
+        stepClassifier = pStepClassifier;
+    }
+
+    public StepClassifier getStepClassifier(){
+        return stepClassifier;
+    }
+
+    /**
+     * The addStepEvent method reports a step of the hardware step detector.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     */
+    public void addStepEvent(long pTimestampNs){
+        reportStep(pTimestampNs);
+    }
+
+    /**
+     * The addStepCount method reports the steps counted by the hardware step counter since its previous event.
+     * The first event of a session only sets the initial count. A count lower than the previous one
+     * (the counter was reset by a restart of the device) becomes the new initial count.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pStepCount The total number of steps since device start.
+     */
+    public void addStepCount(long pTimestampNs, long pStepCount){
+        if(hasStepCount && pStepCount > lastStepCount){
+            long newSteps = pStepCount - lastStepCount;
+            long intervalNs = Math.min((pTimestampNs - lastStepCountTimestampNs) / newSteps, MAX_INTERPOLATED_INTERVAL_NS);
+            // der letzte neue Schritt liegt beim Zeitstempel des Ereignisses
+            for(long i = newSteps - 1; i >= 0; i--){
+                reportStep(pTimestampNs - i * intervalNs);
+            }
+        }
+        hasStepCount = true;
+        lastStepCount = pStepCount;
+        lastStepCountTimestampNs = pTimestampNs;
+    }
+
+    /**
+     * The addRotation method adds a record of the gyroscope, used for the angular rate of the following steps.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pX Angular speed around the x axis (rad/s)
+     * @param pY Angular speed around the y axis (rad/s)
+     * @param pZ Angular speed around the z axis (rad/s)
+     */
+    public void addRotation(long pTimestampNs, float pX, float pY, float pZ){
+        featureExtractor.addAngularRate(pTimestampNs, StepDetector.calculateValue(pX, pY, pZ));
+    }
+
+    private void reportStep(long pTimestampNs){
+        featureExtractor.fill(pTimestampNs, Double.NaN, stepFeatures);
+        StepType stepType = stepClassifier.classify(stepFeatures);
+        if(stepListener != null){
+            stepData.setTime((pTimestampNs / 1000000L) + timeOffsetToUnix);
+            stepData.setTimestampNs(pTimestampNs);
+            stepData.setValue(Double.NaN);
+            stepData.setX(0);
+            stepData.setY(0);
+            stepData.setZ(0);
+            stepListener.step(stepData, stepType);
+        }
+    }
+
+    /**
+     * The method calculateTimeOffsetToUnix reads the clock once to determine
+     * the difference between Unix time and the time since device start.
+     * @return long: The offset in milliseconds.
+     */
+    private long calculateTimeOffsetToUnix(){
+        return clock.currentTimeMillis() - clock.elapsedRealtime();
+    }
+
+    /**
+     * The resetSession method prepares the HardwareStepSource for a new measurement.
+     * The step features and the count of the step counter are discarded,
+     * and the offset between sensor timestamps and Unix time is determined again.
+     */
+    public void resetSession(){
+        featureExtractor.reset();
+        hasStepCount = false;
+        timeOffsetToUnix = calculateTimeOffsetToUnix();
+    }
+}
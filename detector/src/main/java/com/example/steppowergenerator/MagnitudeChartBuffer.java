@@ -0,0 +1,172 @@
+package com.example.steppowergenerator;
+
+/**
+ The MagnitudeChartBuffer class keeps the total acceleration of the last seconds for a live chart.
+ The time window is divided into a fixed number of columns; of all data records within a column only
+ the minimum and the maximum are kept (min/max decimation), so the chart keeps every peak although it
+ draws at most two points per column. Recognized steps are marked in the column of their peak (by its sensor
+ timestamp), although in DetectionMode.STREAMING a step is only reported when the total acceleration has fallen
+ below the walking threshold again, several columns later.
+ The columns are a ring buffer of primitive arrays, so memory and drawing cost do not depend on the
+ length of the measurement. Data records and steps are added on the thread of the StepDetector;
+ the UI copies the columns at most once per frame via copyColumns.
+ */
+public class MagnitudeChartBuffer implements MagnitudeListener, StepListener {
+
+    private final int columnCount;
+    private final long columnNs;
+
+    // Index = Spalte modulo columnCount; leere Spalten haben NaN als Minimum
+    private final float[] minValues;
+    private final float[] maxValues;
+    private final boolean[] minFirst;
+    private final float[] lastValues;
+    private final float[] peakValues;
+
+    private boolean hasColumn;
+    private long newestColumn; // Nummer der neuesten Spalte (Zeitstempel / columnNs)
+    private volatile boolean changed;
+
+    /**
+     * Class constructor.
+     * @param pWindowNs Time shown in the chart in nanoseconds.
+     * @param pColumnCount Number of columns the window is divided into.
+     */
+    public MagnitudeChartBuffer(long pWindowNs, int pColumnCount){
+        if(pColumnCount <= 0 || pWindowNs < pColumnCount){
+            throw new IllegalArgumentException("Invalid window " + pWindowNs + " ns with " + pColumnCount + " columns");
+        }
+        columnCount = pColumnCount;
+        columnNs = pWindowNs / pColumnCount;
+        minValues = new float[pColumnCount];
+        maxValues = new float[pColumnCount];
+        minFirst = new boolean[pColumnCount];
+        lastValues = new float[pColumnCount];
+        peakValues = new float[pColumnCount];
+    }
+
+    /**
+     * The magnitude method adds the total acceleration of a data record to its column.
+     * Columns without data records between the newest column and this one are emptied;
+     * records older than the window are ignored.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pValue The vector length (total acceleration) of the data record.
+     */
+    @Override
+    public synchronized void magnitude(long pTimestampNs, double pValue){
+        long column = pTimestampNs / columnNs;
+        if(!hasColumn || column - newestColumn >= columnCount){
+            for(int i = 0; i < columnCount; i++){
+                clearColumn(i);
+            }
+            hasColumn = true;
+            newestColumn = column;
+        } else if(column > newestColumn){
+            for(long c = newestColumn + 1; c <= column; c++){
+                clearColumn(index(c));
+            }
+            newestColumn = column;
+        } else if(newestColumn - column >= columnCount){
+            return;
+        }
+
+        int index = index(column);
+        float value = (float) pValue;
+        if(Float.isNaN(minValues[index])){
+            minValues[index] = value;
+            maxValues[index] = value;
+            minFirst[index] = true;
+        } else if(value < minValues[index]){
+            minValues[index] = value;
+            minFirst[index] = false; // das Maximum lag vor dem neuen Minimum
+        } else if(value > maxValues[index]){
+            maxValues[index] = value;
+            minFirst[index] = true;
+        }
+        lastValues[index] = value;
+        changed = true;
+    }
+
+    /**
+     * The step method marks the peak of a recognized step in the column of its sensor timestamp.
+     * Steps outside the window are ignored.
+     * @param pAccelerationData The data record of the step, its value is the height of the peak.
+     * @param pStepType The type of the step (not used).
+     */
+    @Override
+    public synchronized void step(AccelerationData pAccelerationData, StepType pStepType){
+        long column = pAccelerationData.getTimestampNs() / columnNs;
+        if(!hasColumn || column > newestColumn || newestColumn - column >= columnCount){
+            return;
+        }
+        int index = index(column);
+        float value = (float) pAccelerationData.getValue();
+        if(Float.isNaN(peakValues[index]) || value > peakValues[index]){
+            peakValues[index] = value;
+        }
+        changed = true;
+    }
+
+    private int index(long pColumn){
+        return (int) (pColumn % columnCount);
+    }
+
+    private void clearColumn(int pIndex){
+        minValues[pIndex] = Float.NaN;
+        maxValues[pIndex] = Float.NaN;
+        lastValues[pIndex] = Float.NaN;
+        peakValues[pIndex] = Float.NaN;
+    }
+
+    /**
+     * The copyColumns method copies all columns of the window, the oldest first, into the given arrays
+     * and resets hasChanged. Empty columns have NaN as minimum, maximum and last value,
+     * columns without a step NaN as peak.
+     * @param pMinValues Receives the minimum of each column, at least getColumnCount() long.
+     * @param pMaxValues Receives the maximum of each column.
+     * @param pMinFirst Receives whether the minimum of a column was recorded before its maximum.
+     * @param pLastValues Receives the value of the last record of each column.
+     * @param pPeakValues Receives the highest step peak of each column.
+     * @return long: The number of the newest column (timestamp / getColumnDuration()), -1 if no record was added.
+     */
+    public synchronized long copyColumns(float[] pMinValues, float[] pMaxValues, boolean[] pMinFirst,
+                                         float[] pLastValues, float[] pPeakValues){
+        changed = false;
+        if(!hasColumn){
+            return -1;
+        }
+        int oldest = index(newestColumn + 1);
+        for(int i = 0; i < columnCount; i++){
+            int index = oldest + i < columnCount ? oldest + i : oldest + i - columnCount;
+            pMinValues[i] = minValues[index];
+            pMaxValues[i] = maxValues[index];
+            pMinFirst[i] = minFirst[index];
+            pLastValues[i] = lastValues[index];
+            pPeakValues[i] = peakValues[index];
+        }
+        return newestColumn;
+    }
+
+    /**
+     * @return boolean: true if records or steps were added since the last copyColumns.
+     */
+    public boolean hasChanged(){
+        return changed;
+    }
+
+    /**
+     * The clear method empties the chart, e.g. for a new measurement.
+     */
+    public synchronized void clear(){
+        hasColumn = false;
+        changed = true;
+    }
+
+    public int getColumnCount(){
+        return columnCount;
+    }
+
+    public long getColumnDuration(){
+        return columnNs;
+    }
+}
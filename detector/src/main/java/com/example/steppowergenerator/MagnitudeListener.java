@@ -0,0 +1,16 @@
+package com.example.steppowergenerator;
+
+/**
+ * The MagnitudeListener interface passes the total acceleration of every data record
+ * examined by the StepDetector, for example to estimate how much the user is moving.
+ * To do this, the class in which the interface is implemented must be registered in the StepDetector.
+ */
+public interface MagnitudeListener {
+
+    /**
+     * The magnitude method is called for every data record before it is examined for steps.
+     * @param timestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param value The vector length (total acceleration) of the data record.
+     */
+    void magnitude(long timestampNs, double value);
+}
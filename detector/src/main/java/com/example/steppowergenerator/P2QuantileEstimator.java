@@ -0,0 +1,134 @@
+package com.example.steppowergenerator;
+
+/**
+ The P2QuantileEstimator class estimates one quantile of a stream of values with the P² algorithm
+ (Jain and Chlamtac, 1985) without storing the values: it keeps five markers, the minimum, the maximum,
+ the quantile and two values between them, whose heights are adjusted with a parabolic formula
+ as the values arrive. Memory and time per value are constant; for smooth distributions the estimate
+ is usually within a few percent of the exact quantile after some hundred values.
+ */
+public class P2QuantileEstimator {
+
+    private static final int MARKERS = 5;
+
+    private final double quantile;
+    // Sollposition der Marker pro Wert
+    private final double[] increments;
+
+    // Höhe, Position und Sollposition der Marker
+    private final double[] heights = new double[MARKERS];
+    private final double[] positions = new double[MARKERS];
+    private final double[] desiredPositions = new double[MARKERS];
+    private long count;
+
+    /**
+     * Class constructor.
+     * @param pQuantile The quantile to estimate, between 0 and 1 (exclusive), e.g. 0.5 for the median.
+     */
+    public P2QuantileEstimator(double pQuantile){
+        if(!(pQuantile > 0 && pQuantile < 1)){
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + pQuantile);
+        }
+        quantile = pQuantile;
+        increments = new double[]{0, pQuantile / 2, pQuantile, (1 + pQuantile) / 2, 1};
+    }
+
+    /**
+     * The add method adds a value to the stream.
+     * @param pValue The value, NaN is ignored.
+     */
+    public void add(double pValue){
+        if(Double.isNaN(pValue)){
+            return;
+        }
+        if(count < MARKERS){
+            // die ersten fünf Werte sortiert einfügen
+            int i = (int) count;
+            while(i > 0 && heights[i - 1] > pValue){
+                heights[i] = heights[i - 1];
+                i--;
+            }
+            heights[i] = pValue;
+            count++;
+            if(count == MARKERS){
+                for (int m = 0; m < MARKERS; m++) {
+                    positions[m] = m + 1;
+                    desiredPositions[m] = 1 + 4 * increments[m];
+                }
+            }
+            return;
+        }
+
+        // Zelle des Werts finden, Minimum und Maximum erweitern
+        int cell;
+        if(pValue < heights[0]){
+            heights[0] = pValue;
+            cell = 0;
+        } else if(pValue >= heights[MARKERS - 1]){
+            heights[MARKERS - 1] = pValue;
+            cell = MARKERS - 2;
+        } else {
+            cell = 0;
+            while(pValue >= heights[cell + 1]){
+                cell++;
+            }
+        }
+        for (int m = cell + 1; m < MARKERS; m++) {
+            positions[m]++;
+        }
+        for (int m = 0; m < MARKERS; m++) {
+            desiredPositions[m] += increments[m];
+        }
+
+        // die drei inneren Marker um höchstens eine Position zur Sollposition verschieben
+        for (int m = 1; m < MARKERS - 1; m++) {
+            double offset = desiredPositions[m] - positions[m];
+            if((offset >= 1 && positions[m + 1] - positions[m] > 1)
+                    || (offset <= -1 && positions[m - 1] - positions[m] < -1)){
+                int direction = offset > 0 ? 1 : -1;
+                double height = parabolic(m, direction);
+                if(heights[m - 1] < height && height < heights[m + 1]){
+                    heights[m] = height;
+                } else {
+                    heights[m] += direction * (heights[m + direction] - heights[m])
+                            / (positions[m + direction] - positions[m]);
+                }
+                positions[m] += direction;
+            }
+        }
+        count++;
+    }
+
+    private double parabolic(int pMarker, int pDirection){
+        double below = positions[pMarker] - positions[pMarker - 1];
+        double above = positions[pMarker + 1] - positions[pMarker];
+        return heights[pMarker] + pDirection / (positions[pMarker + 1] - positions[pMarker - 1])
+                * ((below + pDirection) * (heights[pMarker + 1] - heights[pMarker]) / above
+                + (above - pDirection) * (heights[pMarker] - heights[pMarker - 1]) / below);
+    }
+
+    /**
+     * @return double: The estimated quantile, exact for up to five values, NaN without values.
+     */
+    public double getQuantile(){
+        if(count == 0){
+            return Double.NaN;
+        }
+        if(count < MARKERS){
+            // die ersten Werte liegen sortiert vor
+            return heights[(int) Math.min(count - 1, Math.round(quantile * (count - 1)))];
+        }
+        return heights[2];
+    }
+
+    public long getCount(){
+        return count;
+    }
+
+    /**
+     * The reset method forgets all values.
+     */
+    public void reset(){
+        count = 0;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.steppowergenerator;
+
+/**
+ The PowerHarvestingModel class estimates the energy a step harvester in the shoe generates.
+ It is registered in the StepDetector as StepListener. The energy of a step grows with its impact,
+ the peak of the total acceleration above gravity: a step with the REFERENCE_PEAK of its StepType
+ yields the NOMINAL_STEP_ENERGY_J of that type, at most MAX_PEAK_FACTOR times as much.
+ The energy is integrated into the total energy and into two PowerSeries: one with one-second bins
+ for the last hour and one with one-minute bins for the last 24 hours, so even a session of a whole day
+ needs only a fixed amount of memory (about 20 KB).
+ Steps are added by the thread of the StepDetector; the series can be read from any other thread.
+ */
+public class PowerHarvestingModel implements StepListener {
+
+    public static final long FINE_BIN_MS = 1000;
+    public static final int FINE_CAPACITY = 60 * 60;
+    public static final long COARSE_BIN_MS = 60 * 1000;
+    public static final int COARSE_CAPACITY = 24 * 60;
+
+    // Schätzwerte pro Schritt, Index = StepType.ordinal()
+    private static final double[] NOMINAL_STEP_ENERGY_J = {0.4542, 0.47, 0.51};
+    private static final double[] REFERENCE_PEAK = {20, 27, 33};
+    private static final double MAX_PEAK_FACTOR = 2;
+
+    private final PowerSeries fineSeries = new PowerSeries(FINE_BIN_MS, FINE_CAPACITY);
+    private final PowerSeries coarseSeries = new PowerSeries(COARSE_BIN_MS, COARSE_CAPACITY);
+
+    private volatile double totalEnergyJ;
+    // Leistung des letzten Schritts
+    private volatile double currentPowerW;
+
+    private boolean hasStep;
+    private long lastStepTime;
+
+    /**
+     * The reset method prepares the model for a new measurement.
+     */
+    public synchronized void reset(){
+        fineSeries.clear();
+        coarseSeries.clear();
+        totalEnergyJ = 0;
+        currentPowerW = 0;
+        hasStep = false;
+    }
+
+    /**
+     * The getStepEnergy method estimates the energy harvested by a single step.
+     * Steps of a hardware step sensor have no peak (NaN); they get the nominal energy of their type.
+     * @param pPeak The total acceleration at the peak of the step in m/s², or NaN if unknown.
+     * @param pStepType The type of the step.
+     * @return double: The energy in joules.
+     */
+    public static double getStepEnergy(double pPeak, StepType pStepType){
+        int type = pStepType.ordinal();
+        if(Double.isNaN(pPeak)){
+            return NOMINAL_STEP_ENERGY_J[type];
+        }
+        double factor = (pPeak - SamplingRateController.GRAVITY) / (REFERENCE_PEAK[type] - SamplingRateController.GRAVITY);
+        return NOMINAL_STEP_ENERGY_J[type] * Math.max(0, Math.min(MAX_PEAK_FACTOR, factor));
+    }
+
+    /**
+     * The step method integrates the energy of a recognized step. The power of the step is its energy
+     * divided by the time since the previous step; after a pause the nominal duration of the StepType is used.
+     * @param pAccelerationData The data record of the step (peak value and time).
+     * @param pStepType The type of the step.
+     */
+    @Override
+    public synchronized void step(AccelerationData pAccelerationData, StepType pStepType){
+        double energy = getStepEnergy(pAccelerationData.getValue(), pStepType);
+        long time = pAccelerationData.getTime();
+        long intervalMs = hasStep ? time - lastStepTime : 0;
+        if(intervalMs <= 0 || intervalMs > SessionMetrics.MAX_STEP_INTERVAL_MS){
+            intervalMs = SessionMetrics.NOMINAL_STEP_DURATION_MS[pStepType.ordinal()];
+        }
+        hasStep = true;
+        lastStepTime = time;
+
+        fineSeries.add(time, energy);
+        coarseSeries.add(time, energy);
+        totalEnergyJ = totalEnergyJ + energy;
+        currentPowerW = energy * 1000.0 / intervalMs;
+    }
+
+    /**
+     * The downsample method reduces the power within a time range to a given number of points,
+     * see PowerSeries.downsample. The one-second series is used if it still covers the start of the range
+     * and the points are not longer than a one-minute bin, otherwise the one-minute series.
+     * @param pFromMs Start of the range (inclusive)
+     * @param pToMs End of the range (exclusive)
+     * @param pPointCount Number of points
+     * @param pTimes Receives the start time of each point, at least pPointCount long.
+     * @param pPowers Receives the average power of each point in watts, at least pPointCount long.
+     */
+    public synchronized void downsample(long pFromMs, long pToMs, int pPointCount, long[] pTimes, float[] pPowers){
+        boolean fineCoversRange = pFromMs >= fineSeries.getStartTime() || fineSeries.size() < fineSeries.capacity();
+        if(fineCoversRange && pPointCount > 0 && (pToMs - pFromMs) / pPointCount <= COARSE_BIN_MS){
+            fineSeries.downsample(pFromMs, pToMs, pPointCount, pTimes, pPowers);
+        } else {
+            coarseSeries.downsample(pFromMs, pToMs, pPointCount, pTimes, pPowers);
+        }
+    }
+
+    /**
+     * @return long: Start of the oldest stored one-minute bin (Unix time in milliseconds),
+     * Long.MAX_VALUE if no step was added since the last reset.
+     */
+    public synchronized long getStartTime(){
+        return coarseSeries.getStartTime();
+    }
+
+    /**
+     * @return double: The energy harvested in the measurement in joules.
+     */
+    public double getTotalEnergy(){
+        return totalEnergyJ;
+    }
+
+    /**
+     * @return double: The power of the last step in watts.
+     */
+    public double getCurrentPower(){
+        return currentPowerW;
+    }
+}
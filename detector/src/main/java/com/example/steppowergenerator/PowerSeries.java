@@ -0,0 +1,187 @@
+package com.example.steppowergenerator;
+
+/**
+ The PowerSeries class stores the harvested energy as a time series of bins of a fixed duration
+ (e.g. one second) in a primitive ring buffer of a fixed capacity. The power of a bin is its energy
+ divided by its duration. The bins start at multiples of the bin duration. If the buffer is full,
+ the oldest bin is overwritten, so the series always covers the last capacity * bin duration.
+ No objects are created when adding energy or reading the series.
+ */
+public class PowerSeries {
+
+    private final long binMs;
+    private final float[] energies; // Joule pro Bin
+
+    private int head; // Index des ältesten Bins
+    private int size;
+    private long newestBinStart;
+
+    /**
+     * Class constructor.
+     * @param pBinMs Duration of a bin in milliseconds.
+     * @param pCapacity Maximum number of bins that can be stored.
+     */
+    public PowerSeries(long pBinMs, int pCapacity){
+        if(pBinMs <= 0){
+            throw new IllegalArgumentException("Bin duration must be positive: " + pBinMs);
+        }
+        if(pCapacity <= 0){
+            throw new IllegalArgumentException("Capacity must be positive: " + pCapacity);
+        }
+        binMs = pBinMs;
+        energies = new float[pCapacity];
+    }
+
+    /**
+     * The add method adds energy to the bin containing the given time. Bins between the newest bin
+     * and this bin are added with 0 J; energy older than the oldest stored bin is ignored.
+     * @param pTimeMs Time of the energy (Unix time in milliseconds)
+     * @param pJoules Harvested energy in joules
+     */
+    public void add(long pTimeMs, double pJoules){
+        long binStart = Math.floorDiv(pTimeMs, binMs) * binMs;
+        if(size == 0){
+            appendEmptyBin();
+            newestBinStart = binStart;
+        } else if(binStart > newestBinStart){
+            long missingBins = (binStart - newestBinStart) / binMs;
+            if(missingBins >= energies.length){
+                // nach einer langen Pause ist nichts mehr vom alten Inhalt sichtbar
+                clear();
+                appendEmptyBin();
+            } else {
+                for(long i = 0; i < missingBins; i++){
+                    appendEmptyBin();
+                }
+            }
+            newestBinStart = binStart;
+        } else if(binStart < newestBinStart){
+            long age = (newestBinStart - binStart) / binMs;
+            if(age < size){
+                energies[physicalIndex(size - 1 - (int) age)] += (float) pJoules;
+            }
+            return;
+        }
+        energies[physicalIndex(size - 1)] += (float) pJoules;
+    }
+
+    /**
+     * The appendEmptyBin method appends a bin with 0 J, overwriting the oldest bin if the buffer is full.
+     */
+    private void appendEmptyBin(){
+        int capacity = energies.length;
+        int index = head + size;
+        if(index >= capacity){
+            index -= capacity;
+        }
+        energies[index] = 0;
+        if(size < capacity){
+            size++;
+        } else {
+            head = head + 1 == capacity ? 0 : head + 1;
+        }
+    }
+
+    /**
+     * The physicalIndex method converts a position relative to the oldest bin
+     * into the index of the backing array.
+     * @param pIndex Position relative to the oldest bin (0 = oldest)
+     * @return int: Index in the backing array
+     */
+    private int physicalIndex(int pIndex){
+        if(pIndex < 0 || pIndex >= size){
+            throw new IndexOutOfBoundsException("Index: " + pIndex + ", Size: " + size);
+        }
+        int index = head + pIndex;
+        return index >= energies.length ? index - energies.length : index;
+    }
+
+    /**
+     * @param pIndex Position relative to the oldest bin (0 = oldest)
+     * @return long: Start of the bin (Unix time in milliseconds)
+     */
+    public long getBinStart(int pIndex){
+        physicalIndex(pIndex);
+        return newestBinStart - (size - 1 - pIndex) * binMs;
+    }
+
+    /**
+     * @param pIndex Position relative to the oldest bin (0 = oldest)
+     * @return float: Energy harvested within the bin in joules.
+     */
+    public float getEnergy(int pIndex){
+        return energies[physicalIndex(pIndex)];
+    }
+
+    /**
+     * @param pIndex Position relative to the oldest bin (0 = oldest)
+     * @return double: Average power within the bin in watts.
+     */
+    public double getPower(int pIndex){
+        return getEnergy(pIndex) * 1000.0 / binMs;
+    }
+
+    /**
+     * The downsample method reduces the bins within a time range to a given number of points
+     * of equal duration, e.g. for a chart. The power of a point is the average power over its duration,
+     * so the energy of the range is kept. Points should not be shorter than a bin
+     * and must be at least one millisecond long.
+     * @param pFromMs Start of the range (inclusive)
+     * @param pToMs End of the range (exclusive)
+     * @param pPointCount Number of points
+     * @param pTimes Receives the start time of each point, at least pPointCount long.
+     * @param pPowers Receives the average power of each point in watts, at least pPointCount long.
+     * @throws IllegalArgumentException if the range is empty or shorter than pPointCount milliseconds.
+     */
+    public void downsample(long pFromMs, long pToMs, int pPointCount, long[] pTimes, float[] pPowers){
+        if(pToMs <= pFromMs || pPointCount <= 0){
+            throw new IllegalArgumentException("Empty range or no points: " + pFromMs + " - " + pToMs + ", " + pPointCount);
+        }
+        if(pToMs - pFromMs < pPointCount){
+            // sonst wären Punkte 0 ms lang
+            throw new IllegalArgumentException("Range shorter than one millisecond per point: " + pFromMs + " - " + pToMs + ", " + pPointCount);
+        }
+        long rangeMs = pToMs - pFromMs;
+        for(int point = 0; point < pPointCount; point++){
+            pTimes[point] = pFromMs + rangeMs * point / pPointCount;
+            pPowers[point] = 0;
+        }
+        for(int i = 0; i < size; i++){
+            long binStart = getBinStart(i);
+            if(binStart >= pFromMs && binStart < pToMs){
+                pPowers[(int) ((binStart - pFromMs) * pPointCount / rangeMs)] += energies[physicalIndex(i)];
+            }
+        }
+        for(int point = 0; point < pPointCount; point++){
+            long pointEnd = point + 1 == pPointCount ? pToMs : pTimes[point + 1];
+            pPowers[point] = (float) (pPowers[point] * 1000.0 / (pointEnd - pTimes[point]));
+        }
+    }
+
+    /**
+     * @return long: Start of the oldest bin (Unix time in milliseconds), Long.MAX_VALUE if the series is empty.
+     */
+    public long getStartTime(){
+        return size == 0 ? Long.MAX_VALUE : getBinStart(0);
+    }
+
+    public long getBinDuration(){
+        return binMs;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int capacity(){
+        return energies.length;
+    }
+
+    /**
+     * The clear method empties the series. The array is kept and reused.
+     */
+    public void clear(){
+        head = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.steppowergenerator;
+
+/**
+ The SampleBatch class stores a batch of records of the acceleration sensor column by column
+ (struct of arrays): the sensor timestamps, x, y and z each in an own primitive array of a fixed capacity.
+ A record takes 28 bytes (timestamp, three floats and the total acceleration) instead of an AccelerationData
+ object with header and reference per record, and the timestamps stay sensor timestamps in nanoseconds.
+ The total acceleration of all records is only calculated when it is needed (computeMagnitudes), in a single loop
+ over the columns, and stored in its own column. The StepDetector passes its StepFeatureExtractor as listener, so the
+ features are updated in the same loop, and then searches the high points in the magnitude column.
+ Records are only appended; clear empties the batch for the next one without creating objects.
+ */
+public class SampleBatch {
+
+    private final long[] timestamps;
+    private final float[] xValues;
+    private final float[] yValues;
+    private final float[] zValues;
+    private final double[] magnitudes;
+
+    private int size;
+    // Anzahl der Datensätze, deren Gesamtbeschleunigung schon berechnet ist
+    private int magnitudeCount;
+    private double magnitudeOffset;
+
+    /**
+     * Class constructor.
+     * The arrays are created once with the given capacity and are reused afterwards.
+     * @param pCapacity Maximum number of records in the batch.
+     */
+    public SampleBatch(int pCapacity){
+        if(pCapacity <= 0){
+            throw new IllegalArgumentException("Capacity must be positive: " + pCapacity);
+        }
+        timestamps = new long[pCapacity];
+        xValues = new float[pCapacity];
+        yValues = new float[pCapacity];
+        zValues = new float[pCapacity];
+        magnitudes = new double[pCapacity];
+    }
+
+    /**
+     * The add method appends a record.
+     * @param pTimestampNs Timestamp of the record (nanoseconds since device start)
+     * @param pX Acceleration in x direction
+     * @param pY Acceleration in y direction
+     * @param pZ Acceleration in z direction
+     * @throws IllegalStateException If the batch is full.
+     */
+    public void add(long pTimestampNs, float pX, float pY, float pZ){
+        if(size == timestamps.length){
+            throw new IllegalStateException("Batch is full: " + size);
+        }
+        timestamps[size] = pTimestampNs;
+        xValues[size] = pX;
+        yValues[size] = pY;
+        zValues[size] = pZ;
+        size++;
+    }
+
+    /**
+     * The add method appends as many records of the given columns as fit into the batch, with one array copy per column.
+     * @param pTimestampsNs Timestamps of the records (nanoseconds since device start)
+     * @param pX Accelerations in x direction
+     * @param pY Accelerations in y direction
+     * @param pZ Accelerations in z direction
+     * @param pOffset Index of the first record in the arrays
+     * @param pCount Number of records
+     * @return int: The number of records appended, at most the remaining capacity.
+     */
+    public int add(long[] pTimestampsNs, float[] pX, float[] pY, float[] pZ, int pOffset, int pCount){
+        int count = Math.min(pCount, timestamps.length - size);
+        System.arraycopy(pTimestampsNs, pOffset, timestamps, size, count);
+        System.arraycopy(pX, pOffset, xValues, size, count);
+        System.arraycopy(pY, pOffset, yValues, size, count);
+        System.arraycopy(pZ, pOffset, zValues, size, count);
+        size += count;
+        return count;
+    }
+
+    /**
+     * The computeMagnitudes method calculates the total acceleration of all records not calculated yet,
+     * exactly like StepDetector.calculateValue, plus pOffset. Records added later are calculated by the next call;
+     * a different offset calculates all records again.
+     * @param pOffset Added to every vector length, e.g. gravity after a filter has removed it.
+     * @return double[]: The total accelerations; only the first size() values are valid, until clear is called.
+     */
+    public double[] computeMagnitudes(double pOffset){
+        return computeMagnitudes(pOffset, null);
+    }
+
+    /**
+     * The computeMagnitudes method calculates the total acceleration like computeMagnitudes(double) and passes
+     * every newly calculated value to pListener in the same loop, so a following stage does not need a second
+     * pass over the batch (the square root overlaps with the work of the listener).
+     * @param pOffset Added to every vector length, e.g. gravity after a filter has removed it.
+     * @param pListener Receives the timestamp and total acceleration of every newly calculated record, or null.
+     * @return double[]: The total accelerations; only the first size() values are valid, until clear is called.
+     */
+    public double[] computeMagnitudes(double pOffset, MagnitudeListener pListener){
+        if(pOffset != magnitudeOffset){
+            magnitudeOffset = pOffset;
+            magnitudeCount = 0;
+        }
+        float[] x = xValues;
+        float[] y = yValues;
+        float[] z = zValues;
+        double[] result = magnitudes;
+        int end = size;
+        if(pListener == null){
+            // ohne Methodenaufrufe und Verzweigungen, damit der JIT die Schleife entrollen kann
+            for (int i = magnitudeCount; i < end; i++) {
+                result[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i]) + pOffset;
+            }
+        } else {
+            // die Verzweigung steht außerhalb der Schleifen, der Aufruf des Listeners überlappt mit der Wurzel
+            long[] t = timestamps;
+            for (int i = magnitudeCount; i < end; i++) {
+                result[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i]) + pOffset;
+                pListener.magnitude(t[i], result[i]);
+            }
+        }
+        magnitudeCount = end;
+        return result;
+    }
+
+    public long getTimestamp(int pIndex){
+        checkIndex(pIndex);
+        return timestamps[pIndex];
+    }
+
+    public float getX(int pIndex){
+        checkIndex(pIndex);
+        return xValues[pIndex];
+    }
+
+    public float getY(int pIndex){
+        checkIndex(pIndex);
+        return yValues[pIndex];
+    }
+
+    public float getZ(int pIndex){
+        checkIndex(pIndex);
+        return zValues[pIndex];
+    }
+
+    private void checkIndex(int pIndex){
+        if(pIndex < 0 || pIndex >= size){
+            throw new IndexOutOfBoundsException("Index: " + pIndex + ", Size: " + size);
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int capacity(){
+        return timestamps.length;
+    }
+
+    public boolean isFull(){
+        return size == timestamps.length;
+    }
+
+    /**
+     * The clear method empties the batch. The arrays are kept and reused.
+     */
+    public void clear(){
+        size = 0;
+        magnitudeCount = 0;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.steppowergenerator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ The SampleQueue class hands raw records of the acceleration sensor from one producer thread
+ (the sensor callback) to one consumer thread (the detection worker of the ConcurrentStepDetector)
+ without locks. The records are kept in parallel primitive arrays whose capacity is a power of two,
+ so neither side creates objects. Each side only writes its own index (tail for the producer, head for the consumer)
+ and caches the index of the other side, which it only reads again when the queue looks full
+ or holds fewer records than the consumer wants to take.
+ If the queue is full, offer fails instead of overwriting records the consumer has not read yet.
+ With more than one producer or more than one consumer the queue is not safe.
+ */
+public class SampleQueue {
+
+    private final long[] times;
+    private final float[] xValues;
+    private final float[] yValues;
+    private final float[] zValues;
+    private final int mask;
+
+    // Nächster Schreibindex, nur vom Produzenten geschrieben
+    private final AtomicLong tail = new AtomicLong();
+    // Nächster Leseindex, nur vom Konsumenten geschrieben
+    private final AtomicLong head = new AtomicLong();
+
+    // Zuletzt gelesener Index der jeweils anderen Seite
+    private long cachedHead; // nur Produzent
+    private long cachedTail; // nur Konsument
+
+    /**
+     * Class constructor.
+     * @param pCapacity Maximum number of records in the queue, rounded up to a power of two.
+     */
+    public SampleQueue(int pCapacity){
+        if(pCapacity <= 0 || pCapacity > 1 << 30){
+            throw new IllegalArgumentException("Invalid capacity: " + pCapacity);
+        }
+        int capacity = Integer.highestOneBit(pCapacity);
+        if(capacity < pCapacity){
+            capacity <<= 1;
+        }
+        times = new long[capacity];
+        xValues = new float[capacity];
+        yValues = new float[capacity];
+        zValues = new float[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * The offer method appends a record. Must only be called by the producer thread.
+     * The new tail is published with a volatile write, so a consumer which checks the queue
+     * after announcing that it waits (see ConcurrentStepDetector) cannot miss the record.
+     * @param pTime Timestamp of the record (nanoseconds since device start)
+     * @param pX Acceleration in x direction
+     * @param pY Acceleration in y direction
+     * @param pZ Acceleration in z direction
+     * @return boolean: false if the queue is full and the record was not added.
+     */
+    public boolean offer(long pTime, float pX, float pY, float pZ){
+        long currentTail = tail.get();
+        if(currentTail - cachedHead > mask){
+            cachedHead = head.get();
+            if(currentTail - cachedHead > mask){
+                return false;
+            }
+        }
+        int index = (int) (currentTail & mask);
+        times[index] = pTime;
+        xValues[index] = pX;
+        yValues[index] = pY;
+        zValues[index] = pZ;
+        tail.set(currentTail + 1);
+        return true;
+    }
+
+    /**
+     * The drainTo method passes up to pMaxCount of the oldest records to StepDetector.addSamples,
+     * directly from the arrays of the queue (in two parts if they wrap around), and then releases their slots
+     * for the producer. Must only be called by the consumer thread.
+     * @param pStepDetector The StepDetector which processes the records.
+     * @param pMaxCount Maximum number of records.
+     * @return int: The number of records passed on, 0 if the queue was empty.
+     */
+    public int drainTo(StepDetector pStepDetector, int pMaxCount){
+        long currentHead = head.get();
+        if(cachedTail - currentHead < pMaxCount){
+            cachedTail = tail.get();
+            if(currentHead == cachedTail){
+                return 0;
+            }
+        }
+        int count = (int) Math.min(cachedTail - currentHead, pMaxCount);
+        int start = (int) (currentHead & mask);
+        int firstPart = Math.min(count, times.length - start);
+        pStepDetector.addSamples(times, xValues, yValues, zValues, start, firstPart);
+        if(firstPart < count){
+            pStepDetector.addSamples(times, xValues, yValues, zValues, 0, count - firstPart);
+        }
+        // erst nach dem Lesen freigeben
+        head.lazySet(currentHead + count);
+        return count;
+    }
+
+    /**
+     * The clear method discards all records in the queue. Must only be called by the consumer thread,
+     * or while no consumer is running (like drainTo).
+     * @return int: The number of records discarded.
+     */
+    public int clear(){
+        long currentTail = tail.get();
+        int count = (int) (currentTail - head.get());
+        cachedTail = currentTail;
+        head.set(currentTail);
+        return count;
+    }
+
+    /**
+     * @return int: The number of records in the queue; only exact if neither side is active.
+     */
+    public int size(){
+        return (int) (tail.get() - head.get());
+    }
+
+    public boolean isEmpty(){
+        return tail.get() == head.get();
+    }
+
+    public int capacity(){
+        return times.length;
+    }
+}
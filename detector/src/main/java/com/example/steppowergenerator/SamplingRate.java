@@ -0,0 +1,26 @@
+package com.example.steppowergenerator;
+
+/**
+ * The SamplingRate enum contains the sampling rates chosen by the SamplingRateController.
+ * IDLE is used while the user is not moving, MODERATE for walking (or movement without steps yet)
+ * and FAST for jogging and running, where the short peaks would otherwise be missed.
+ */
+public enum SamplingRate {
+        IDLE(200000),
+        MODERATE(100000),
+        FAST(20000);
+
+        private final int periodUs;
+
+        SamplingRate(int pPeriodUs){
+                periodUs = pPeriodUs;
+        }
+
+        /**
+         * @return int: The time between two data records in microseconds,
+         * as expected by SensorManager.registerListener.
+         */
+        public int getPeriodUs(){
+                return periodUs;
+        }
+}
@@ -0,0 +1,173 @@
+package com.example.steppowergenerator;
+
+/**
+ The SamplingRateController class chooses the sampling rate of the acceleration sensor
+ from the current activity of the user. It is registered in the StepDetector as MagnitudeListener
+ and is informed of every recognized step via step.
+ While steps of type JOGGING or RUNNING are recognized, SamplingRate.FAST is requested, while WALKING
+ steps are recognized SamplingRate.MODERATE. Without steps, the movement energy (average deviation of the
+ total acceleration from gravity) decides between SamplingRate.MODERATE and SamplingRate.IDLE.
+ A higher rate is only requested after RAISE_HOLD_NS, a lower one only after LOWER_HOLD_NS, and the
+ energy has separate thresholds for becoming active and idle, so the rate does not change back and forth.
+ All times are sensor timestamps; no clock is read.
+ */
+public class SamplingRateController implements MagnitudeListener, StepListener {
+
+    public static final double GRAVITY = 9.80665;
+
+    // Schritte, die höchstens so lange zurückliegen, bestimmen die Rate
+    public static final long STEP_WINDOW_NS = 2000 * 1000000L;
+    public static final long RAISE_HOLD_NS = 250 * 1000000L;
+    public static final long LOWER_HOLD_NS = 5000 * 1000000L;
+
+    // Zeitkonstante des gleitenden Mittelwerts der Bewegungsenergie
+    private static final double ENERGY_TIME_CONSTANT_NS = 1000 * 1000000.0;
+    public static final double ACTIVE_ENERGY = 1.5;
+    public static final double IDLE_ENERGY = 0.75;
+
+    private SamplingRateListener samplingRateListener;
+
+    // Wird auch vom UI-Thread gelesen, wenn der Sensor neu registriert wird
+    private volatile SamplingRate samplingRate;
+
+    private double energy;
+    private boolean isActive;
+    private boolean hasSample;
+    private long lastSampleTimestampNs;
+
+    private boolean hasStep;
+    private long lastStepTimestampNs;
+    private boolean lastStepIsFast;
+
+    // Zeitpunkt, seit dem eine höhere (bzw. niedrigere) Rate gewünscht wird, sonst -1
+    private long changeRequestedSinceNs;
+    private boolean changeIsRaise;
+
+    /**
+     * Class constructor.
+     * The controller starts with SamplingRate.IDLE.
+     */
+    public SamplingRateController(){
+        reset();
+    }
+
+    /**
+     * The registerSamplingRateListener method registers the given interface
+     * as an attribute in the class. New sampling rates are communicated via this.
+     * @param pSamplingRateListener The interface which is notified of new sampling rates.
+     */
+    public void registerSamplingRateListener(SamplingRateListener pSamplingRateListener){
+        samplingRateListener = pSamplingRateListener;
+    }
+
+    /**
+     * The reset method prepares the controller for a new measurement.
+     * The sampling rate is set back to SamplingRate.IDLE without notifying the listener.
+     */
+    public void reset(){
+        samplingRate = SamplingRate.IDLE;
+        energy = 0;
+        isActive = false;
+        hasSample = false;
+        hasStep = false;
+        changeRequestedSinceNs = -1;
+    }
+
+    /**
+     * The magnitude method updates the movement energy with the total acceleration of a data record
+     * and then checks whether the sampling rate has to be changed.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pValue The vector length (total acceleration) of the data record.
+     */
+    @Override
+    public void magnitude(long pTimestampNs, double pValue){
+        double deviation = Math.abs(pValue - GRAVITY);
+        if(!hasSample){
+            energy = deviation;
+            hasSample = true;
+        } else {
+            // bei unregelmäßigen Abständen (z.B. nach einem Ratenwechsel) wird der Abstand berücksichtigt
+            double elapsedNs = Math.max(0, pTimestampNs - lastSampleTimestampNs);
+            double weight = elapsedNs / (ENERGY_TIME_CONSTANT_NS + elapsedNs);
+            energy += weight * (deviation - energy);
+        }
+        lastSampleTimestampNs = pTimestampNs;
+
+        if(isActive){
+            isActive = energy > IDLE_ENERGY;
+        } else {
+            isActive = energy >= ACTIVE_ENERGY;
+        }
+        update(pTimestampNs);
+    }
+
+    /**
+     * The step method remembers the type of a recognized step. The StepDetector reports a step
+     * while it examines a data record, so the time of the last data record is used as time of the step.
+     * @param pAccelerationData The data record of the step (not used).
+     * @param pStepType The type of the step.
+     */
+    @Override
+    public void step(AccelerationData pAccelerationData, StepType pStepType){
+        hasStep = true;
+        lastStepTimestampNs = lastSampleTimestampNs;
+        lastStepIsFast = pStepType == StepType.JOGGING || pStepType == StepType.RUNNING;
+        update(lastSampleTimestampNs);
+    }
+
+    /**
+     * The method getRequiredSamplingRate determines the sampling rate for the current activity,
+     * without hysteresis.
+     * @param pTimestampNs The current sensor timestamp.
+     * @return SamplingRate: The sampling rate which fits the current activity.
+     */
+    private SamplingRate getRequiredSamplingRate(long pTimestampNs){
+        if(hasStep && pTimestampNs - lastStepTimestampNs <= STEP_WINDOW_NS){
+            return lastStepIsFast ? SamplingRate.FAST : SamplingRate.MODERATE;
+        }
+        return isActive ? SamplingRate.MODERATE : SamplingRate.IDLE;
+    }
+
+    /**
+     * The update method changes the sampling rate once a higher rate has been required
+     * for RAISE_HOLD_NS or a lower rate for LOWER_HOLD_NS without interruption.
+     * The listener is notified of every change.
+     * @param pTimestampNs The current sensor timestamp.
+     */
+    private void update(long pTimestampNs){
+        SamplingRate requiredSamplingRate = getRequiredSamplingRate(pTimestampNs);
+        if(requiredSamplingRate == samplingRate){
+            changeRequestedSinceNs = -1;
+            return;
+        }
+
+        boolean isRaise = requiredSamplingRate.compareTo(samplingRate) > 0;
+        if(changeRequestedSinceNs < 0 || isRaise != changeIsRaise){
+            changeRequestedSinceNs = pTimestampNs;
+            changeIsRaise = isRaise;
+        }
+
+        long holdNs = isRaise ? RAISE_HOLD_NS : LOWER_HOLD_NS;
+        if(pTimestampNs - changeRequestedSinceNs >= holdNs){
+            samplingRate = requiredSamplingRate;
+            changeRequestedSinceNs = -1;
+            if(samplingRateListener != null){
+                samplingRateListener.samplingRateChanged(samplingRate);
+            }
+        }
+    }
+
+    /**
+     * @return SamplingRate: The sampling rate currently chosen.
+     */
+    public SamplingRate getSamplingRate(){
+        return samplingRate;
+    }
+
+    /**
+     * @return double: The current movement energy in m/s².
+     */
+    public double getEnergy(){
+        return energy;
+    }
+}
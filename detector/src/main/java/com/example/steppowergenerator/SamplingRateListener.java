@@ -0,0 +1,14 @@
+package com.example.steppowergenerator;
+
+/**
+ * The SamplingRateListener interface reports a new sampling rate chosen by the SamplingRateController,
+ * so the acceleration sensor can be registered again with the new rate.
+ */
+public interface SamplingRateListener {
+
+    /**
+     * The samplingRateChanged method is called on the thread on which the data records are processed.
+     * @param samplingRate The new sampling rate.
+     */
+    void samplingRateChanged(SamplingRate samplingRate);
+}
@@ -0,0 +1,50 @@
+package com.example.steppowergenerator;
+
+/**
+ The SensorCapabilities class describes which sensors a device offers for counting steps.
+ It is determined once at runtime (on a device from the SensorManager) and passed to StepSource.select,
+ so the choice of the step source can be tested without a device.
+ */
+public class SensorCapabilities {
+
+    private final boolean accelerometer;
+    private final boolean stepDetector;
+    private final boolean stepCounter;
+    private final boolean gyroscope;
+
+    /**
+     * Class constructor.
+     * @param pAccelerometer true if an acceleration sensor is available.
+     * @param pStepDetector true if a hardware step detector (one event per step) is available and may be used.
+     * @param pStepCounter true if a hardware step counter (total number of steps) is available and may be used.
+     * @param pGyroscope true if a gyroscope is available.
+     */
+    public SensorCapabilities(boolean pAccelerometer, boolean pStepDetector, boolean pStepCounter, boolean pGyroscope){
+        accelerometer = pAccelerometer;
+        stepDetector = pStepDetector;
+        stepCounter = pStepCounter;
+        gyroscope = pGyroscope;
+    }
+
+    public boolean hasAccelerometer(){
+        return accelerometer;
+    }
+
+    public boolean hasStepDetector(){
+        return stepDetector;
+    }
+
+    public boolean hasStepCounter(){
+        return stepCounter;
+    }
+
+    public boolean hasGyroscope(){
+        return gyroscope;
+    }
+
+    @Override
+    public String toString(){
+        return "SensorCapabilities[accelerometer=" + accelerometer + ", stepDetector=" + stepDetector
+                + ", stepCounter=" + stepCounter + ", gyroscope=" + gyroscope + "]";
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.steppowergenerator;
+
+/**
+ The SessionMetrics class updates the results of a measurement (distance, moving time, speed
+ and burned calories) with every recognized step, so they can be shown while counting.
+ It is registered in the StepDetector as StepListener. The moving time is taken from the time between
+ two steps; a longer pause than MAX_STEP_INTERVAL_MS is not moving time, instead the nominal duration
+ of the step type is counted (also for the first step).
+ The values are only written by the thread of the StepDetector and can be read from any thread
+ without locks and without allocations. Values read while a step is added may belong to different steps.
+ */
+public class SessionMetrics implements StepListener {
+
+    // Steps further apart belong to different walks, the pause between them is not counted
+    public static final long MAX_STEP_INTERVAL_MS = 2000;
+
+    // Schätzwerte pro Schritt, Index = StepType.ordinal()
+    private static final double[] STRIDE_LENGTH_M = {0.5, 1.0, 1.5};
+    static final long[] NOMINAL_STEP_DURATION_MS = {1000, 750, 500};
+    private static final double[] CALORIES_PER_STEP = {0.05, 0.1, 0.2};
+
+    private volatile int stepCount;
+    private volatile double distanceM;
+    private volatile long movingTimeMs;
+    private volatile double calories;
+    // Geschwindigkeit des letzten Schritts
+    private volatile double currentSpeedMs;
+
+    private boolean hasStep;
+    private long lastStepTime;
+
+    /**
+     * The reset method prepares the metrics for a new measurement.
+     * It must be called on the thread of the StepDetector, or while no steps are added.
+     */
+    public void reset(){
+        stepCount = 0;
+        distanceM = 0;
+        movingTimeMs = 0;
+        calories = 0;
+        currentSpeedMs = 0;
+        hasStep = false;
+    }
+
+    /**
+     * The step method adds a recognized step to all metrics.
+     * @param pAccelerationData The data record of the step, its time is used for the moving time.
+     * @param pStepType The type of the step.
+     */
+    @Override
+    public void step(AccelerationData pAccelerationData, StepType pStepType){
+        int type = pStepType.ordinal();
+        long time = pAccelerationData.getTime();
+        long intervalMs = hasStep ? time - lastStepTime : 0;
+        if(intervalMs <= 0 || intervalMs > MAX_STEP_INTERVAL_MS){
+            intervalMs = NOMINAL_STEP_DURATION_MS[type];
+        }
+        hasStep = true;
+        lastStepTime = time;
+
+        stepCount = stepCount + 1;
+        distanceM = distanceM + STRIDE_LENGTH_M[type];
+        movingTimeMs = movingTimeMs + intervalMs;
+        calories = calories + CALORIES_PER_STEP[type];
+        currentSpeedMs = STRIDE_LENGTH_M[type] * 1000.0 / intervalMs;
+    }
+
+    /**
+     * @return int: The number of steps of the measurement.
+     */
+    public int getStepCount(){
+        return stepCount;
+    }
+
+    /**
+     * @return double: The estimated distance in meters.
+     */
+    public double getDistance(){
+        return distanceM;
+    }
+
+    /**
+     * @return long: The time in milliseconds spent walking, jogging or running, without pauses.
+     */
+    public long getMovingTime(){
+        return movingTimeMs;
+    }
+
+    /**
+     * @return double: The average speed over the moving time in m/s, 0 before the first step.
+     */
+    public double getAverageSpeed(){
+        long movingTime = movingTimeMs;
+        return movingTime == 0 ? 0 : distanceM * 1000.0 / movingTime;
+    }
+
+    /**
+     * @return double: The speed of the last step in m/s.
+     */
+    public double getCurrentSpeed(){
+        return currentSpeedMs;
+    }
+
+    /**
+     * @return double: The estimated burned calories (kcal).
+     */
+    public double getCalories(){
+        return calories;
+    }
+}
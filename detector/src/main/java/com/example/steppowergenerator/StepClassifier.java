@@ -0,0 +1,16 @@
+package com.example.steppowergenerator;
+
+/**
+ * The StepClassifier interface determines the StepType of a step recognized by the StepDetector.
+ * The StepDetector calls classify on its own thread for every step, so implementations
+ * should not create objects and must not keep the passed StepFeatures, which is reused.
+ */
+public interface StepClassifier {
+
+    /**
+     * The classify method determines the type of a step from its features.
+     * @param features StepFeatures: The features of the step, valid only during the call.
+     * @return StepType: One of the three step types from the Enum StepType.
+     */
+    StepType classify(StepFeatures features);
+}
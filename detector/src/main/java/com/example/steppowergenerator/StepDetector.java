@@ -0,0 +1,553 @@
+package com.example.steppowergenerator;
+
+import com.example.steppowergenerator.metrics.DetectorMetrics;
+
+/**
+ The StepDetector class is used to determine steps
+ from data sets of the acceleration sensor. Via the StepListener interface
+ the recognized steps are "returned".
+ In DetectionMode.BATCH new data records are collected in a SampleBatch and processed
+ in batches of 25. In DetectionMode.STREAMING every data record is examined as soon as it arrives
+ and a step is reported as soon as the acceleration drops below the walking threshold again.
+ The walking threshold is WALKINGTHRESHOLD unless it is changed, e.g. by a ThresholdCalibrator.
+ In both modes the path from the sensor to the StepListener does not create any objects.
+ A StepDetector is not thread-safe: records must be added, and the detector configured, on one thread.
+ To add records on one thread and detect steps on another one, use the ConcurrentStepDetector.
+ */
+public class StepDetector {
+
+    public static final int WALKINGTHRESHOLD = 17;
+
+    private static final int BATCH_SIZE = 25;
+    public static final long NEAR_HIGH_POINT_NS = 400 * 1000000L;
+
+    private final DetectionMode detectionMode;
+    private final Clock clock;
+
+    // Differenz zwischen Unix-Zeit und Gerätestart in Millisekunden, einmal pro Sitzung bestimmt
+    private long timeOffsetToUnix;
+
+    private StepListener stepListener;
+    private MagnitudeListener magnitudeListener;
+    private StepClassifier stepClassifier;
+
+    // Vorverarbeitung vor der Suche nach Hochpunkten, bei gefilterten Werten wird die Erdbeschleunigung wieder addiert
+    private AccelerationFilter accelerationFilter;
+    private double valueOffset;
+
+    // Merkmale des aktuellen Schritts, für jeden Schritt wiederverwendet
+    private final StepFeatureExtractor featureExtractor;
+    private final StepFeatures stepFeatures;
+
+    private final SampleBatch newAccelerationData;
+
+    // Indizes der Hochpunkte in newAccelerationData
+    private final int[] highPointIndexes;
+
+    // Wird für jeden erkannten Schritt wiederverwendet
+    private final AccelerationData stepData;
+
+    // Zustand für DetectionMode.STREAMING, bleibt zwischen den Aufrufen von addSample erhalten
+    private boolean isAboveThreshold;
+    private double walkingThreshold = WALKINGTHRESHOLD;
+    private double highPointValue;
+    private long highPointTimestampNs;
+    private float highPointX, highPointY, highPointZ;
+    private boolean hasLastStep;
+    private long lastStepTimestampNs;
+
+    // Latenz vom Zeitstempel des Hochpunkts bis zum Aufruf von stepListener.step
+    private long lastStepLatencyNs;
+    private long maxStepLatencyNs;
+    private long totalStepLatencyNs;
+    private long measuredStepCount;
+
+    // Nur gesetzt, wenn Metriken gesammelt werden sollen
+    private DetectorMetrics metrics;
+    // ob DETECT für den aktuellen Datensatz gemessen wird, und ab wann
+    private boolean isDetectTimed;
+    private long detectStartNs;
+
+    /**
+     * Class constructor.
+     * Creates a StepDetector which works in DetectionMode.BATCH.
+     * @param pClock The clock used to convert sensor timestamps into Unix time.
+     */
+    public StepDetector(Clock pClock){
+        this(DetectionMode.BATCH, pClock);
+    }
+
+    /**
+     * Class constructor.
+     * The SampleBatch and the working arrays are created once
+     * and reused for every batch in the other methods.
+     * @param pDetectionMode Whether data records are examined in batches of 25 or one by one.
+     * @param pClock The clock used to convert sensor timestamps into Unix time.
+     */
+    public StepDetector(DetectionMode pDetectionMode, Clock pClock){
+        detectionMode = pDetectionMode;
+        clock = pClock;
+        newAccelerationData = new SampleBatch(BATCH_SIZE);
+        highPointIndexes = new int[BATCH_SIZE];
+        stepData = new AccelerationData();
+        stepClassifier = new ThresholdStepClassifier();
+        accelerationFilter = new AccelerationFilter(FilterMode.NONE);
+        featureExtractor = new StepFeatureExtractor();
+        stepFeatures = new StepFeatures();
+        timeOffsetToUnix = calculateTimeOffsetToUnix();
+    }
+
+
+    /**
+     * The registerStepListener method registers the given interface
+     * as an attribute in the class. Steps recognized later are communicated via this.
+     * @param pStepListener The interface which is notified of recognized steps.
+     */
+    public void registerStepListener(StepListener pStepListener){
+        stepListener = pStepListener;
+    }
+
+    /**
+     * The setStepClassifier method replaces the StepClassifier which determines the type of each step.
+     * By default a ThresholdStepClassifier is used.
+     * @param pStepClassifier The classifier for all following steps.
+     */
+    public void setStepClassifier(StepClassifier pStepClassifier){
+        stepClassifier = pStepClassifier;
+    }
+
+    public StepClassifier getStepClassifier(){
+        return stepClassifier;
+    }
+
+    /**
+     * The setWalkingThreshold method changes the total acceleration a high point must exceed to be a step.
+     * Must be called on the thread which adds the records; it applies from the next record on.
+     * @param pWalkingThreshold The threshold in m/s², WALKINGTHRESHOLD by default.
+     */
+    public void setWalkingThreshold(double pWalkingThreshold){
+        if(!(pWalkingThreshold > 0)){
+            throw new IllegalArgumentException("Invalid walking threshold: " + pWalkingThreshold);
+        }
+        walkingThreshold = pWalkingThreshold;
+    }
+
+    public double getWalkingThreshold(){
+        return walkingThreshold;
+    }
+
+    /**
+     * The setFilterMode method chooses the pre-processing stage applied to every record before the
+     * high points are searched. With a filter, the vector length of the filtered (linear) acceleration
+     * plus AccelerationFilter.GRAVITY is compared with the thresholds, so they keep their meaning.
+     * The filter state is kept between records and batches; it should be set before a measurement.
+     * By default FilterMode.NONE is used.
+     * @param pFilterMode The filters to apply.
+     */
+    public void setFilterMode(FilterMode pFilterMode){
+        accelerationFilter = new AccelerationFilter(pFilterMode);
+        valueOffset = pFilterMode == FilterMode.NONE ? 0 : AccelerationFilter.GRAVITY;
+    }
+
+    public FilterMode getFilterMode(){
+        return accelerationFilter.getFilterMode();
+    }
+
+    /**
+     * The registerMagnitudeListener method registers the given interface
+     * as an attribute in the class. The total acceleration of every examined record is communicated via this.
+     * @param pMagnitudeListener The interface which is notified of every record, or null.
+     */
+    public void registerMagnitudeListener(MagnitudeListener pMagnitudeListener){
+        magnitudeListener = pMagnitudeListener;
+    }
+
+    /**
+     * The setMetrics method starts collecting DetectorMetrics about the processing of all following records.
+     * Without metrics (null, the default) nothing is measured.
+     * @param pMetrics The metrics to collect, or null.
+     */
+    public void setMetrics(DetectorMetrics pMetrics){
+        metrics = pMetrics;
+    }
+
+    public DetectorMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * The addAccelerationData method accepts new measured values ​​from the acceleration sensor.
+     * It only passes the values on to addSample; pNewAccelerationData is not changed.
+     * @param pNewAccelerationData
+     */
+    public void addAccelerationData(AccelerationData pNewAccelerationData){
+        addSample(pNewAccelerationData.getTime(), pNewAccelerationData.getX(),
+                pNewAccelerationData.getY(), pNewAccelerationData.getZ());
+    }
+
+    /**
+     * The addSample method accepts a new measured value from the acceleration sensor
+     * without an AccelerationData object. The value first passes the AccelerationFilter (see setFilterMode).
+     * In DetectionMode.STREAMING the value is examined immediately.
+     * Otherwise, if there are 25 records, they will be processed and 25 records will be collected again.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pX Acceleration in x direction
+     * @param pY Acceleration in y direction
+     * @param pZ Acceleration in z direction
+     */
+    public void addSample(long pTimestampNs, float pX, float pY, float pZ){
+        boolean isTimed = metrics != null && metrics.recordSample(pTimestampNs);
+        long startNs = isTimed ? System.nanoTime() : 0;
+        accelerationFilter.filter(pTimestampNs, pX, pY, pZ);
+        float x = accelerationFilter.getX();
+        float y = accelerationFilter.getY();
+        float z = accelerationFilter.getZ();
+        isDetectTimed = isTimed;
+        if(isTimed){
+            // das Ende von FILTER ist zugleich der Anfang von DETECT
+            detectStartNs = System.nanoTime();
+            metrics.recordStageTime(DetectorMetrics.Stage.FILTER, detectStartNs - startNs);
+        }
+
+        if(detectionMode == DetectionMode.STREAMING){
+            handleSample(pTimestampNs, x, y, z);
+            return;
+        }
+
+        newAccelerationData.add(pTimestampNs, x, y, z);
+
+        if(newAccelerationData.isFull()){
+            handleAccelerationData();
+        }
+    }
+
+    /**
+     * The addSamples method accepts several records at once, for example a burst of records
+     * which the sensor hardware has collected in its FIFO while the processor was asleep.
+     * The records are processed exactly like single calls of addSample. The step times are
+     * determined from the sensor timestamps, so they are correct even if the burst arrives late.
+     * In DetectionMode.BATCH without filter and metrics, the records are copied column by column into the batch.
+     * @param pTimestampsNs Timestamps of the sensor events (nanoseconds since device start)
+     * @param pX Accelerations in x direction
+     * @param pY Accelerations in y direction
+     * @param pZ Accelerations in z direction
+     * @param pOffset Index of the first record in the arrays
+     * @param pCount Number of records
+     */
+    public void addSamples(long[] pTimestampsNs, float[] pX, float[] pY, float[] pZ, int pOffset, int pCount){
+        if(detectionMode == DetectionMode.BATCH && metrics == null
+                && accelerationFilter.getFilterMode() == FilterMode.NONE){
+            int offset = pOffset;
+            int remaining = pCount;
+            while(remaining > 0){
+                int added = newAccelerationData.add(pTimestampsNs, pX, pY, pZ, offset, remaining);
+                offset += added;
+                remaining -= added;
+                if(newAccelerationData.isFull()){
+                    handleAccelerationData();
+                }
+            }
+            return;
+        }
+        int end = pOffset + pCount;
+        for (int i = pOffset; i < end; i++) {
+            addSample(pTimestampsNs[i], pX[i], pY[i], pZ[i]);
+        }
+    }
+
+    /**
+     * The handleAccelerationData method recognizes steps in acceleration data.
+     * The vector length (= total acceleration) of each record of the batch is calculated in the same loop
+     * that adds it to the StepFeatureExtractor, then findHighPoints and examineStepTypeAndSendResponse are used.
+     * Sensor timestamps are only converted into Unix time (milliseconds) for high points.
+     * The MagnitudeListener, if registered, receives the total acceleration of every record before the steps are sent.
+     * After processing all data, the recognized steps are output via the interface and
+     * the batch is emptied so that it can be used again.
+     */
+    private void handleAccelerationData(){
+
+        long startNs = metrics != null ? System.nanoTime() : 0;
+        int size = newAccelerationData.size();
+        // Gesamtbeschleunigung und Merkmale in einer Schleife: die Wurzel ist nicht vektorisierbar,
+        // überlappt so aber mit der Berechnung der Merkmale
+        double[] values = newAccelerationData.computeMagnitudes(valueOffset, featureExtractor);
+        if(magnitudeListener != null){
+            for (int i = 0; i < size; i++) {
+                magnitudeListener.magnitude(newAccelerationData.getTimestamp(i), values[i]);
+            }
+        }
+
+        int highPointCount = findHighPoints(values, size);
+        if(metrics != null){
+            metrics.recordBatch();
+            metrics.recordStageTime(DetectorMetrics.Stage.DETECT, System.nanoTime() - startNs);
+        }
+        examineStepTypeAndSendResponse(values, highPointCount);
+
+        newAccelerationData.clear();
+    }
+
+    /**
+     * The handleSample method is the counterpart of findHighPoints for DetectionMode.STREAMING.
+     * While the total acceleration is above the walking threshold, the highest record is remembered.
+     * As soon as the value drops below the walking threshold again, this high point is reported as a step,
+     * unless it is less than 400 milliseconds after the last reported step.
+     * Since a step has already been reported at that point, the later high point is always the one ignored.
+     * The state is kept between calls, so high points spanning several calls are found exactly once.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pX Acceleration in x direction
+     * @param pY Acceleration in y direction
+     * @param pZ Acceleration in z direction
+     */
+    private void handleSample(long pTimestampNs, float pX, float pY, float pZ){
+        double value = calculateValue(pX, pY, pZ) + valueOffset;
+        featureExtractor.addValue(pTimestampNs, value);
+        if(magnitudeListener != null){
+            magnitudeListener.magnitude(pTimestampNs, value);
+        }
+        boolean isStep = false;
+        if(value > walkingThreshold){
+            if(!isAboveThreshold || value >= highPointValue){
+                highPointValue = value;
+                highPointTimestampNs = pTimestampNs;
+                highPointX = pX;
+                highPointY = pY;
+                highPointZ = pZ;
+            }
+            isAboveThreshold = true;
+        } else if(isAboveThreshold){
+            isAboveThreshold = false;
+            isStep = !hasLastStep || highPointTimestampNs - lastStepTimestampNs >= NEAR_HIGH_POINT_NS;
+            if(metrics != null){
+                metrics.recordPeak(!isStep);
+            }
+        }
+        if(isDetectTimed){
+            // ohne sendResponse, dessen Stufen dort gemessen werden
+            metrics.recordStageTime(DetectorMetrics.Stage.DETECT, System.nanoTime() - detectStartNs);
+        }
+
+        if(isStep){
+            hasLastStep = true;
+            lastStepTimestampNs = highPointTimestampNs;
+
+            stepData.setX(highPointX);
+            stepData.setY(highPointY);
+            stepData.setZ(highPointZ);
+            stepData.setValue(highPointValue);
+            stepData.setTime(calculateUnixTime(highPointTimestampNs));
+            stepData.setTimestampNs(highPointTimestampNs);
+            sendResponse(highPointTimestampNs);
+        }
+    }
+
+    /**
+     * The method calculateValue calculates the vector length (total acceleration) from x, y and z.
+     * Other classes which must agree exactly with the StepDetector on a record use this method as well.
+     * @return double: The vector length.
+     */
+    public static double calculateValue(float pX, float pY, float pZ){
+        return Math.sqrt(pX * pX + pY * pY + pZ * pZ);
+    }
+
+    /**
+     * The method calculateUnixTime converts a sensor timestamp from nanoseconds since device start
+     * into Unix time (milliseconds).
+     * @return long: The Unix timestamp.
+     */
+    private long calculateUnixTime(long pTimestampNs){
+        return (pTimestampNs / 1000000L) + timeOffsetToUnix;
+    }
+
+    /**
+     * The method calculateTimeOffsetToUnix reads the clock once to determine
+     * the difference between Unix time and the time since device start.
+     * @return long: The offset in milliseconds.
+     */
+    private long calculateTimeOffsetToUnix(){
+        return clock.currentTimeMillis() - clock.elapsedRealtime();
+    }
+
+    /**
+     * The resetSession method prepares the StepDetector for a new measurement.
+     * Collected records, the state of DetectionMode.STREAMING, the filter state, the step features
+     * and the latency values are discarded, and the offset between sensor timestamps and Unix time
+     * is determined again.
+     */
+    public void resetSession(){
+        newAccelerationData.clear();
+        isAboveThreshold = false;
+        hasLastStep = false;
+        featureExtractor.reset();
+        accelerationFilter.reset();
+        resetStepLatency();
+        timeOffsetToUnix = calculateTimeOffsetToUnix();
+    }
+
+    /**
+     * The findHighPoints method finds the high points of the current batch in a single pass.
+     * For each run of records whose total acceleration is higher than the walking threshold
+     * (WALKINGTHRESHOLD, 17, by default), only the highest one is kept (for equal values the later one).
+     * The run is complete as soon as a record below the threshold follows.
+     * If two neighbouring high points are less than 400 milliseconds apart, the lower of the two is removed
+     * (for equal values the earlier one). Each high point is compared with its original neighbours, even if
+     * one of them has already been removed. A high point is therefore only written to highPointIndexes
+     * once the next one is known.
+     * @param pValues Total acceleration of the records of the current batch.
+     * @param pSize Number of records in the current batch.
+     * @return int: The number of high points in highPointIndexes.
+     */
+    private int findHighPoints(double[] pValues, int pSize){
+        double threshold = walkingThreshold;
+        int highPointCount = 0;
+        int maxIndex = -1;
+        boolean wasAboveThreshold = true;
+
+        // letzter gefundener Hochpunkt, der noch mit dem nächsten verglichen werden muss
+        int pendingIndex = -1;
+        boolean isPendingRemoved = false;
+
+        for (int i = 0; i < pSize; i++) {
+
+            double value = pValues[i];
+            if(value > threshold){
+                if(maxIndex < 0 || value >= pValues[maxIndex]){
+                    maxIndex = i;
+                }
+                wasAboveThreshold = true;
+            } else {
+                // erst, wenn es einen Wert unter der Schwelle gibt
+                if(wasAboveThreshold && maxIndex >= 0){
+                    boolean isRemoved = false;
+                    if(pendingIndex >= 0 && calculateUnixTime(newAccelerationData.getTimestamp(maxIndex))
+                            - calculateUnixTime(newAccelerationData.getTimestamp(pendingIndex)) < 400){
+                        if(pValues[maxIndex] < pValues[pendingIndex]){
+                            isRemoved = true;
+                        } else {
+                            if(metrics != null && !isPendingRemoved){
+                                metrics.recordSuppressedPeak();
+                            }
+                            isPendingRemoved = true;
+                        }
+                    }
+                    if(metrics != null){
+                        metrics.recordPeak(isRemoved);
+                    }
+                    if(pendingIndex >= 0 && !isPendingRemoved){
+                        highPointIndexes[highPointCount++] = pendingIndex;
+                    }
+                    pendingIndex = maxIndex;
+                    isPendingRemoved = isRemoved;
+                    maxIndex = -1;
+                }
+                wasAboveThreshold = false;
+            }
+        }
+        if(pendingIndex >= 0 && !isPendingRemoved){
+            highPointIndexes[highPointCount++] = pendingIndex;
+        }
+        return highPointCount;
+    }
+
+    /**
+     *
+     * The method examineStepTypeAndSendResponse sends all high points in highPointIndexes
+     * as recognized steps via the registered interface stepListener. The step type is determined by
+     * the StepClassifier in sendResponse. In DetectionMode.BATCH the variance in the StepFeatures
+     * already contains all records of the batch.
+     * The same AccelerationData object is filled and passed for every step.
+     * @param pValues Total acceleration of the records of the current batch.
+     * @param pHighPointCount The number of high points in highPointIndexes
+     */
+    private void examineStepTypeAndSendResponse(double[] pValues, int pHighPointCount){
+        for (int i = 0; i < pHighPointCount; i++) {
+            int index = highPointIndexes[i];
+            long timestampNs = newAccelerationData.getTimestamp(index);
+            stepData.setX(newAccelerationData.getX(index));
+            stepData.setY(newAccelerationData.getY(index));
+            stepData.setZ(newAccelerationData.getZ(index));
+            stepData.setValue(pValues[index]);
+            stepData.setTime(calculateUnixTime(timestampNs));
+            stepData.setTimestampNs(timestampNs);
+            sendResponse(timestampNs);
+        }
+    }
+
+    /**
+     * The method sendResponse calculates the StepFeatures of stepData, determines the step type
+     * with the StepClassifier and sends it via stepListener.
+     * The time from the sensor timestamp of the high point until the call is recorded as step latency.
+     * With DetectorMetrics, the time of the classification and of the StepListener call is measured as well.
+     * @param pTimestampNs Sensor timestamp of the high point (nanoseconds since device start)
+     */
+    private void sendResponse(long pTimestampNs){
+        long startNs = metrics != null ? System.nanoTime() : 0;
+        featureExtractor.fill(pTimestampNs, stepData.getValue(), stepFeatures);
+        StepType stepType = stepClassifier.classify(stepFeatures);
+        if(metrics != null){
+            metrics.recordStageTime(DetectorMetrics.Stage.CLASSIFY, System.nanoTime() - startNs);
+        }
+
+        long latency = clock.elapsedRealtimeNanos() - pTimestampNs;
+        lastStepLatencyNs = latency;
+        if(latency > maxStepLatencyNs){
+            maxStepLatencyNs = latency;
+        }
+        totalStepLatencyNs += latency;
+        measuredStepCount++;
+
+        if(metrics == null){
+            stepListener.step(stepData, stepType);
+            return;
+        }
+        metrics.recordStep(latency);
+        startNs = System.nanoTime();
+        stepListener.step(stepData, stepType);
+        metrics.recordStageTime(DetectorMetrics.Stage.LISTENER, System.nanoTime() - startNs);
+    }
+
+    /**
+     * @return long: Latency of the last reported step in nanoseconds,
+     * measured from the sensor timestamp of its high point to the StepListener call.
+     */
+    public long getLastStepLatencyNanos(){
+        return lastStepLatencyNs;
+    }
+
+    /**
+     * @return long: Highest step latency in nanoseconds since the last reset.
+     */
+    public long getMaxStepLatencyNanos(){
+        return maxStepLatencyNs;
+    }
+
+    /**
+     * @return long: Average step latency in nanoseconds since the last reset, 0 if no step was reported.
+     */
+    public long getAverageStepLatencyNanos(){
+        return measuredStepCount == 0 ? 0 : totalStepLatencyNs / measuredStepCount;
+    }
+
+    /**
+     * The resetStepLatency method resets all recorded latency values.
+     */
+    public void resetStepLatency(){
+        lastStepLatencyNs = 0;
+        maxStepLatencyNs = 0;
+        totalStepLatencyNs = 0;
+        measuredStepCount = 0;
+    }
+
+    /**
+     * @return long: The offset between Unix time and sensor timestamps in milliseconds,
+     * as determined at the start of the current session.
+     */
+    public long getTimeOffsetToUnix(){
+        return timeOffsetToUnix;
+    }
+
+    public DetectionMode getDetectionMode(){
+        return detectionMode;
+    }
+
+}
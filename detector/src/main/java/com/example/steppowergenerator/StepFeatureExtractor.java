@@ -0,0 +1,125 @@
+package com.example.steppowergenerator;
+
+/**
+ * The StepFeatureExtractor class calculates the StepFeatures incrementally for the StepDetector.
+ * Every examined record updates the moving mean and variance of the total acceleration,
+ * every step updates the ring buffer of the last step intervals. Both take constant time
+ * and do not create objects. Without records (e.g. for the steps of a hardware step sensor) the variance is 0;
+ * without gyroscope data the angular rate is 0.
+ */
+class StepFeatureExtractor implements MagnitudeListener {
+
+    // Anzahl der letzten Schrittabstände, aus denen die Kadenz berechnet wird
+    private static final int INTERVAL_COUNT = 4;
+    // Zeitkonstante von Mittelwert und Varianz
+    private static final double VARIANCE_TIME_CONSTANT_NS = 1000 * 1000000.0;
+
+    private final long[] intervalsNs = new long[INTERVAL_COUNT];
+    private int nextIntervalIndex;
+    private int intervalCount;
+    private long intervalSumNs;
+
+    private boolean hasValue;
+    private long lastValueTimestampNs;
+    private double mean;
+    private double variance;
+
+    private boolean hasAngularRate;
+    private long lastAngularRateTimestampNs;
+    private double angularRate;
+
+    private boolean hasStep;
+    private long lastStepTimestampNs;
+
+    /**
+     * The addValue method updates the exponentially weighted mean and variance with a record.
+     * The weight depends on the time since the previous record, so the result does not depend on the sampling rate.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pValue The vector length (total acceleration) of the record.
+     */
+    void addValue(long pTimestampNs, double pValue){
+        if(!hasValue){
+            hasValue = true;
+            mean = pValue;
+            variance = 0;
+        } else {
+            double weight = calculateWeight(pTimestampNs - lastValueTimestampNs);
+            double difference = pValue - mean;
+            double increment = weight * difference;
+            mean += increment;
+            variance = (1 - weight) * (variance + difference * increment);
+        }
+        lastValueTimestampNs = pTimestampNs;
+    }
+
+    /**
+     * The magnitude method passes the total acceleration of a record of a SampleBatch to addValue.
+     */
+    @Override
+    public void magnitude(long pTimestampNs, double pValue){
+        addValue(pTimestampNs, pValue);
+    }
+
+    /**
+     * The addAngularRate method updates the exponentially weighted mean of the angular speed with a gyroscope record,
+     * with the same time constant as the variance.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pValue The vector length of the angular speed (rad/s).
+     */
+    void addAngularRate(long pTimestampNs, double pValue){
+        if(!hasAngularRate){
+            hasAngularRate = true;
+            angularRate = pValue;
+        } else {
+            angularRate += calculateWeight(pTimestampNs - lastAngularRateTimestampNs) * (pValue - angularRate);
+        }
+        lastAngularRateTimestampNs = pTimestampNs;
+    }
+
+    private static double calculateWeight(long pElapsedNs){
+        double elapsedNs = Math.max(0, pElapsedNs);
+        return elapsedNs / (VARIANCE_TIME_CONSTANT_NS + elapsedNs);
+    }
+
+    /**
+     * The fill method registers a step and writes its features to pFeatures.
+     * @param pTimestampNs Sensor timestamp of the high point (nanoseconds since device start)
+     * @param pPeak Total acceleration at the high point.
+     * @param pFeatures The object into which the features are written.
+     */
+    void fill(long pTimestampNs, double pPeak, StepFeatures pFeatures){
+        double intervalSeconds = 0;
+        if(hasStep){
+            long intervalNs = pTimestampNs - lastStepTimestampNs;
+            if(intervalCount == INTERVAL_COUNT){
+                intervalSumNs -= intervalsNs[nextIntervalIndex];
+            } else {
+                intervalCount++;
+            }
+            intervalsNs[nextIntervalIndex] = intervalNs;
+            intervalSumNs += intervalNs;
+            nextIntervalIndex = (nextIntervalIndex + 1) % INTERVAL_COUNT;
+            intervalSeconds = intervalNs / 1e9;
+        }
+        hasStep = true;
+        lastStepTimestampNs = pTimestampNs;
+
+        pFeatures.set(StepFeatures.PEAK, pPeak);
+        pFeatures.set(StepFeatures.INTERVAL, intervalSeconds);
+        pFeatures.set(StepFeatures.CADENCE, intervalSumNs > 0 ? intervalCount * 1e9 / intervalSumNs : 0);
+        pFeatures.set(StepFeatures.VARIANCE, hasValue ? variance : 0);
+        pFeatures.set(StepFeatures.ANGULAR_RATE, hasAngularRate ? angularRate : 0);
+    }
+
+    /**
+     * The reset method discards all values of the previous measurement.
+     */
+    void reset(){
+        nextIntervalIndex = 0;
+        intervalCount = 0;
+        intervalSumNs = 0;
+        hasValue = false;
+        hasAngularRate = false;
+        hasStep = false;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.steppowergenerator;
+
+import java.util.Arrays;
+
+/**
+ * The StepFeatures class contains the features of one step as a primitive vector,
+ * so that classifiers can access them by index (see DecisionTreeStepClassifier).
+ * The StepDetector fills the same object for every step.
+ */
+public class StepFeatures {
+
+    // Total acceleration at the high point of the step (m/s²)
+    public static final int PEAK = 0;
+    // Time since the previous step in seconds, 0 for the first step of a session
+    public static final int INTERVAL = 1;
+    // Steps per second over the last intervals, 0 for the first step of a session
+    public static final int CADENCE = 2;
+    // Variance of the total acceleration over roughly the last second (m²/s⁴)
+    public static final int VARIANCE = 3;
+    // Mean angular speed of the device over roughly the last second (rad/s), 0 without gyroscope
+    public static final int ANGULAR_RATE = 4;
+
+    public static final int COUNT = 5;
+
+    private final double[] values = new double[COUNT];
+
+    public double get(int pFeature){
+        return values[pFeature];
+    }
+
+    public void set(int pFeature, double pValue){
+        values[pFeature] = pValue;
+    }
+
+    /**
+     * @return StepFeatures: A new object with the same values, e.g. to keep the features after classify.
+     */
+    public StepFeatures copy(){
+        StepFeatures copy = new StepFeatures();
+        System.arraycopy(values, 0, copy.values, 0, COUNT);
+        return copy;
+    }
+
+    @Override
+    public String toString(){
+        return "StepFeatures" + Arrays.toString(values);
+    }
+}
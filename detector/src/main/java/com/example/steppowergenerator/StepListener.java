@@ -9,6 +9,8 @@ public interface StepListener {
 
     /**
      * The step method should transfer recognized steps.
+     * The StepDetector reuses the passed AccelerationData object for the next step,
+     * so its values must be copied if they are needed after the call.
      * @param accelerationData AccelerationData: A data record of the acceleration sensor, which stands for a step.
      * @param stepType Enum StepType: One of the three step types from the Enum StepType.
      */
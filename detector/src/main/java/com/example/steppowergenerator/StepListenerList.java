@@ -0,0 +1,65 @@
+package com.example.steppowergenerator;
+
+/**
+ The StepListenerList class passes every step to any number of StepListeners.
+ The listeners are kept in an array which is copied on every change (copy-on-write), so listeners can be
+ added and removed from any thread while steps are reported on another one, without locks and without creating
+ objects per step. A listener added or removed during a step may or may not receive that step.
+ */
+public class StepListenerList implements StepListener {
+
+    private static final StepListener[] NO_LISTENERS = new StepListener[0];
+
+    private volatile StepListener[] listeners = NO_LISTENERS;
+
+    /**
+     * The add method registers a listener for all following steps.
+     * @param pStepListener The listener; a listener added twice is notified twice.
+     */
+    public synchronized void add(StepListener pStepListener){
+        if(pStepListener == null){
+            throw new IllegalArgumentException("Listener must not be null");
+        }
+        StepListener[] current = listeners;
+        StepListener[] changed = new StepListener[current.length + 1];
+        System.arraycopy(current, 0, changed, 0, current.length);
+        changed[current.length] = pStepListener;
+        listeners = changed;
+    }
+
+    /**
+     * The remove method unregisters a listener (once, if it was added several times).
+     * @param pStepListener The listener.
+     * @return boolean: true if the listener was registered.
+     */
+    public synchronized boolean remove(StepListener pStepListener){
+        StepListener[] current = listeners;
+        for(int i = 0; i < current.length; i++){
+            if(current[i] == pStepListener){
+                StepListener[] changed = current.length == 1 ? NO_LISTENERS : new StepListener[current.length - 1];
+                System.arraycopy(current, 0, changed, 0, i);
+                System.arraycopy(current, i + 1, changed, i, current.length - i - 1);
+                listeners = changed;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size(){
+        return listeners.length;
+    }
+
+    /**
+     * The step method passes the step to all listeners registered at the time of the call, in the order they were added.
+     * @param pAccelerationData The data record of the step, reused by the StepDetector.
+     * @param pStepType The type of the step.
+     */
+    @Override
+    public void step(AccelerationData pAccelerationData, StepType pStepType){
+        StepListener[] current = listeners;
+        for(int i = 0; i < current.length; i++){
+            current[i].step(pAccelerationData, pStepType);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.steppowergenerator;
+
+/**
+ * The StepSource enum contains the ways in which steps can be recognized.
+ * STEP_DETECTOR and STEP_COUNTER use the step recognition of the sensor hub, so the CPU only receives
+ * one event per step (STEP_DETECTOR) or a batched total (STEP_COUNTER) instead of every data record;
+ * these steps are processed by the HardwareStepSource.
+ * ACCELEROMETER recognizes steps from the data records of the acceleration sensor with the StepDetector.
+ */
+public enum StepSource {
+        STEP_DETECTOR,
+        STEP_COUNTER,
+        ACCELEROMETER;
+
+        /**
+         * The select method chooses the cheapest step source the device offers.
+         * The hardware step detector is preferred, because it reports every step with its own timestamp;
+         * in low power mode the step counter is preferred, because its events can stay in the hardware FIFO
+         * for several seconds. The StepDetector is only used if there is no hardware step sensor.
+         * @param pCapabilities The sensors of the device.
+         * @param pLowPowerMode true if the user prefers a lower power consumption to a low latency.
+         * @return StepSource: The chosen source, or null if the device cannot count steps at all.
+         */
+        public static StepSource select(SensorCapabilities pCapabilities, boolean pLowPowerMode){
+                if(pLowPowerMode && pCapabilities.hasStepCounter()){
+                        return STEP_COUNTER;
+                }
+                if(pCapabilities.hasStepDetector()){
+                        return STEP_DETECTOR;
+                }
+                if(pCapabilities.hasStepCounter()){
+                        return STEP_COUNTER;
+                }
+                if(pCapabilities.hasAccelerometer()){
+                        return ACCELEROMETER;
+                }
+                return null;
+        }
+}
@@ -0,0 +1,222 @@
+package com.example.steppowergenerator;
+
+/**
+ The ThresholdCalibrator class adapts the step thresholds of a StepDetector and its ThresholdStepClassifier
+ to the user, the device and the carrying position. The fixed thresholds (WALKINGTHRESHOLD, JOGGINGTHRESHOLD,
+ RUNNINGTHRESHOLD) were chosen for reference walks with a typical peak height; a device in a loose pocket
+ measures higher peaks (many false high points), a gentle walker or a device in a bag lower ones (missed steps).
+ <p>
+ The calibrator receives the total acceleration of every record as MagnitudeListener. It keeps the running mean
+ and variance of it (Welford's algorithm, with the weight of old records halved regularly so it follows changes)
+ and finds peaks on its own, independent of the current thresholds: the highest record of each run above
+ mean + standard deviation, while the user is moving. Of two peaks less than MIN_PEAK_INTERVAL_NS apart only
+ the higher one counts, so the smaller second peak of a step does not lower the quantile.
+ Only peaks at a walking cadence are used: the time since the previous peak must be between
+ MIN_WALKING_INTERVAL_NS and MAX_WALKING_INTERVAL_NS. Jogging and running steps follow each other faster,
+ so sessions without walking do not change the calibration, and the higher peaks of these steps cannot raise
+ the thresholds for later walks.
+ <p>
+ The REFERENCE_QUANTILE of the peak heights is estimated with a P2QuantileEstimator over windows of
+ WINDOW_PEAKS peaks. After each window, the ratio of this quantile to REFERENCE_PEAK (both above gravity)
+ becomes the gain: all thresholds are gravity plus their nominal height above gravity times the gain.
+ The gain follows later windows slowly and is limited to MIN_GAIN..MAX_GAIN.
+ <p>
+ Memory is constant. The gain can be saved and restored (see getGain and restore), so a calibrated device
+ uses its thresholds from the first step. All methods must be called on the thread of the StepDetector.
+ */
+public class ThresholdCalibrator implements MagnitudeListener {
+
+    public static final double GRAVITY = AccelerationFilter.GRAVITY;
+    public static final double REFERENCE_QUANTILE = 0.25;
+    // 25 % der Spitzen liegen bei den Referenz-Gehaufnahmen (walking_50hz) unter diesem Wert
+    public static final double REFERENCE_PEAK = 20.2;
+    public static final long MIN_PEAK_INTERVAL_NS = 250 * 1000000L;
+    // Gehen: etwa 50 bis 130 Schritte pro Minute; Joggen und Laufen liegen bei den Referenzaufnahmen unter 400 ms
+    public static final long MIN_WALKING_INTERVAL_NS = 450 * 1000000L;
+    public static final long MAX_WALKING_INTERVAL_NS = 1200 * 1000000L;
+    public static final int WINDOW_PEAKS = 200;
+    // Anteil, mit dem ein neues Fenster die Verstärkung verändert
+    public static final double ADAPTATION = 0.25;
+    public static final double MIN_GAIN = 0.6;
+    public static final double MAX_GAIN = 1.4;
+
+    // Unter dieser Standardabweichung bewegt sich der Benutzer nicht, Spitzen werden ignoriert
+    private static final double MIN_MOVING_STDDEV = 1.0;
+    private static final int MIN_RECORDS = 50;
+    // Danach wird das Gewicht der alten Datensätze halbiert
+    private static final long MAX_RECORDS = 4000;
+
+    private final StepDetector stepDetector;
+    private final ThresholdStepClassifier stepClassifier;
+    private final P2QuantileEstimator peakQuantile = new P2QuantileEstimator(REFERENCE_QUANTILE);
+
+    private long recordCount;
+    private double mean;
+    private double squaredDeviations;
+
+    private boolean isAboveGate;
+    private double peakValue;
+    private long peakTimestampNs;
+    // letzte Spitze, die noch durch eine höhere in MIN_PEAK_INTERVAL_NS ersetzt werden kann
+    private boolean hasPendingPeak;
+    private double pendingPeakValue;
+    private long pendingPeakTimestampNs;
+    private boolean hasLastPeak;
+    private long lastPeakTimestampNs;
+
+    private double gain = 1;
+    private int windowCount;
+
+    /**
+     * Class constructor.
+     * @param pStepDetector The StepDetector whose walking threshold is calibrated.
+     * @param pStepClassifier The classifier whose jogging and running thresholds are calibrated,
+     *                        or null if the StepDetector uses another StepClassifier.
+     */
+    public ThresholdCalibrator(StepDetector pStepDetector, ThresholdStepClassifier pStepClassifier){
+        stepDetector = pStepDetector;
+        stepClassifier = pStepClassifier;
+    }
+
+    /**
+     * The magnitude method updates the statistics with the total acceleration of a record and finds the peaks.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @param pValue The vector length (total acceleration) of the data record.
+     */
+    @Override
+    public void magnitude(long pTimestampNs, double pValue){
+        if(Double.isNaN(pValue)){
+            return;
+        }
+        recordCount++;
+        double delta = pValue - mean;
+        mean += delta / recordCount;
+        squaredDeviations += delta * (pValue - mean);
+        if(recordCount >= MAX_RECORDS){
+            // Mittelwert und Varianz bleiben gleich, neue Datensätze zählen aber doppelt so viel
+            recordCount /= 2;
+            squaredDeviations /= 2;
+        }
+        if(recordCount < MIN_RECORDS){
+            return;
+        }
+
+        double standardDeviation = getStandardDeviation();
+        if(pValue > mean + standardDeviation && standardDeviation >= MIN_MOVING_STDDEV){
+            if(!isAboveGate || pValue > peakValue){
+                peakValue = pValue;
+                peakTimestampNs = pTimestampNs;
+            }
+            isAboveGate = true;
+        } else if(isAboveGate){
+            isAboveGate = false;
+            if(hasPendingPeak && peakTimestampNs - pendingPeakTimestampNs < MIN_PEAK_INTERVAL_NS){
+                if(peakValue > pendingPeakValue){
+                    pendingPeakValue = peakValue;
+                    pendingPeakTimestampNs = peakTimestampNs;
+                }
+            } else {
+                if(hasPendingPeak){
+                    addPeak(pendingPeakTimestampNs, pendingPeakValue);
+                }
+                hasPendingPeak = true;
+                pendingPeakValue = peakValue;
+                pendingPeakTimestampNs = peakTimestampNs;
+            }
+        }
+    }
+
+    private void addPeak(long pTimestampNs, double pPeak){
+        boolean isWalking = hasLastPeak && pTimestampNs - lastPeakTimestampNs >= MIN_WALKING_INTERVAL_NS
+                && pTimestampNs - lastPeakTimestampNs <= MAX_WALKING_INTERVAL_NS;
+        hasLastPeak = true;
+        lastPeakTimestampNs = pTimestampNs;
+        if(!isWalking){
+            return;
+        }
+        peakQuantile.add(pPeak);
+        if(peakQuantile.getCount() < WINDOW_PEAKS){
+            return;
+        }
+        double windowGain = limitGain((peakQuantile.getQuantile() - GRAVITY) / (REFERENCE_PEAK - GRAVITY));
+        gain = windowCount == 0 ? windowGain : gain + ADAPTATION * (windowGain - gain);
+        windowCount++;
+        peakQuantile.reset();
+        apply();
+    }
+
+    private static double limitGain(double pGain){
+        return Math.max(MIN_GAIN, Math.min(MAX_GAIN, pGain));
+    }
+
+    /**
+     * The apply method sets the calibrated thresholds in the StepDetector and the ThresholdStepClassifier.
+     */
+    private void apply(){
+        stepDetector.setWalkingThreshold(getWalkingThreshold());
+        if(stepClassifier != null){
+            stepClassifier.setThresholds(getJoggingThreshold(), getRunningThreshold());
+        }
+    }
+
+    /**
+     * The restore method continues a calibration saved earlier and applies its thresholds immediately.
+     * @param pGain The gain returned by getGain, limited to MIN_GAIN..MAX_GAIN.
+     * @param pWindowCount The number of windows returned by getWindowCount. With 0, the first window
+     *                     replaces the gain instead of adapting it.
+     */
+    public void restore(double pGain, int pWindowCount){
+        gain = Double.isNaN(pGain) ? 1 : limitGain(pGain);
+        windowCount = Math.max(0, pWindowCount);
+        apply();
+    }
+
+    /**
+     * The reset method forgets the calibration and the statistics and sets the nominal thresholds again.
+     */
+    public void reset(){
+        recordCount = 0;
+        mean = 0;
+        squaredDeviations = 0;
+        isAboveGate = false;
+        hasPendingPeak = false;
+        hasLastPeak = false;
+        peakQuantile.reset();
+        restore(1, 0);
+    }
+
+    private double calibrate(double pThreshold){
+        return GRAVITY + gain * (pThreshold - GRAVITY);
+    }
+
+    public double getWalkingThreshold(){
+        return calibrate(StepDetector.WALKINGTHRESHOLD);
+    }
+
+    public double getJoggingThreshold(){
+        return calibrate(ThresholdStepClassifier.JOGGINGTHRESHOLD);
+    }
+
+    public double getRunningThreshold(){
+        return calibrate(ThresholdStepClassifier.RUNNINGTHRESHOLD);
+    }
+
+    public double getGain(){
+        return gain;
+    }
+
+    /**
+     * @return int: The number of complete windows of peaks; 0 while not calibrated yet.
+     */
+    public int getWindowCount(){
+        return windowCount;
+    }
+
+    public double getMean(){
+        return mean;
+    }
+
+    public double getStandardDeviation(){
+        return recordCount > 1 ? Math.sqrt(squaredDeviations / (recordCount - 1)) : 0;
+    }
+}
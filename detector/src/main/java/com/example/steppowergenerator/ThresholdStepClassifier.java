@@ -0,0 +1,50 @@
+package com.example.steppowergenerator;
+
+/**
+ * The ThresholdStepClassifier class is the default StepClassifier of the StepDetector.
+ * It only uses the total acceleration at the high point:
+ * If it is greater than the running threshold, the step type RUNNING is output,
+ * if it is greater than the jogging threshold, the JOGGING step type is output,
+ * otherwise the step type WALKING.
+ * The thresholds are JOGGINGTHRESHOLD and RUNNINGTHRESHOLD unless they are changed, e.g. by a ThresholdCalibrator.
+ */
+public class ThresholdStepClassifier implements StepClassifier {
+
+    public static final int JOGGINGTHRESHOLD = 24;
+    public static final int RUNNINGTHRESHOLD = 30;
+
+    private double joggingThreshold = JOGGINGTHRESHOLD;
+    private double runningThreshold = RUNNINGTHRESHOLD;
+
+    @Override
+    public StepType classify(StepFeatures pFeatures){
+        double peak = pFeatures.get(StepFeatures.PEAK);
+        if(peak > runningThreshold){
+            return StepType.RUNNING;
+        } else if(peak > joggingThreshold){
+            return StepType.JOGGING;
+        }
+        return StepType.WALKING;
+    }
+
+    /**
+     * The setThresholds method changes both thresholds. Must be called on the thread of the StepDetector.
+     * @param pJoggingThreshold Peaks above it are at least JOGGING, in m/s².
+     * @param pRunningThreshold Peaks above it are RUNNING, in m/s². Must not be lower than pJoggingThreshold.
+     */
+    public void setThresholds(double pJoggingThreshold, double pRunningThreshold){
+        if(!(pJoggingThreshold > 0) || !(pRunningThreshold >= pJoggingThreshold)){
+            throw new IllegalArgumentException("Invalid thresholds: " + pJoggingThreshold + ", " + pRunningThreshold);
+        }
+        joggingThreshold = pJoggingThreshold;
+        runningThreshold = pRunningThreshold;
+    }
+
+    public double getJoggingThreshold(){
+        return joggingThreshold;
+    }
+
+    public double getRunningThreshold(){
+        return runningThreshold;
+    }
+}
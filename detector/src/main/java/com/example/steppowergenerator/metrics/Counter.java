@@ -0,0 +1,44 @@
+package com.example.steppowergenerator.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ The Counter class counts events without locks. It can be incremented from any thread;
+ concurrent increments are spread over several cells (LongAdder), so they do not compete for one value.
+ */
+public class Counter {
+
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    /**
+     * Class constructor.
+     * @param pName Name of the counter, used when the metrics are dumped.
+     */
+    public Counter(String pName){
+        name = pName;
+    }
+
+    public void increment(){
+        value.increment();
+    }
+
+    public void add(long pAmount){
+        value.add(pAmount);
+    }
+
+    /**
+     * @return long: The current value. Increments running at the same time may not be included yet.
+     */
+    public long get(){
+        return value.sum();
+    }
+
+    public void reset(){
+        value.reset();
+    }
+
+    public String getName(){
+        return name;
+    }
+}
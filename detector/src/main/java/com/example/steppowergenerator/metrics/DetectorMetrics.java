@@ -0,0 +1,274 @@
+package com.example.steppowergenerator.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ The DetectorMetrics class collects counters and histograms about the work of a StepDetector:
+ ingested records, processed batches, found and suppressed high points, reported steps, the processing
+ time of each Stage, the latency from the sensor timestamp of a high point to the StepListener call,
+ and records missing or out of order (from gaps in the sensor timestamps).
+ A StepDetector only collects metrics while a DetectorMetrics object is set (see StepDetector.setMetrics);
+ otherwise the only cost is one null check per stage. Reading the clock costs more than most stages,
+ so the stages run for every record (FILTER, and DETECT in DetectionMode.STREAMING) are only timed
+ for every 16th record by default (see setRecordTimingInterval); all counters are exact.
+ All values can be read from any thread without locks, e.g. for a debug overlay, or dumped as text.
+ */
+public class DetectorMetrics {
+
+    /**
+     * The processing stages whose time is measured.
+     */
+    public enum Stage {
+            // AccelerationFilter, once per record
+            FILTER,
+            // total acceleration and high point search, per record (STREAMING) or per batch (BATCH)
+            DETECT,
+            // StepFeatures and StepClassifier, per step
+            CLASSIFY,
+            // StepListener.step, per step
+            LISTENER
+    }
+
+    // 256 ns bis etwa 1 s, jeweils verdoppelt
+    private static final long FIRST_TIME_BOUND_NS = 256;
+    private static final int TIME_BUCKETS = 23;
+    public static final int DEFAULT_RECORD_TIMING_INTERVAL = 16;
+
+    private final Counter samples = new Counter("samples");
+    private final Counter droppedSamples = new Counter("samples.dropped");
+    private final Counter lateSamples = new Counter("samples.late");
+    private final Counter batches = new Counter("batches");
+    private final Counter peaksFound = new Counter("peaks.found");
+    private final Counter peaksSuppressed = new Counter("peaks.suppressed");
+    private final Counter steps = new Counter("steps");
+
+    private final Histogram[] stageTimes = new Histogram[Stage.values().length];
+    private final Histogram stepLatency = Histogram.exponential("step.latency_ns", FIRST_TIME_BOUND_NS, TIME_BUCKETS);
+    private final Histogram sampleInterval = Histogram.exponential("samples.interval_ns", FIRST_TIME_BOUND_NS, TIME_BUCKETS);
+
+    // Nur vom Thread des StepDetectors verwendet
+    private long lastSampleTimestampNs = -1;
+    private int recordsUntilTiming;
+    private volatile int recordTimingInterval = DEFAULT_RECORD_TIMING_INTERVAL;
+    private volatile long nominalSamplePeriodNs;
+
+    /**
+     * Class constructor.
+     */
+    public DetectorMetrics(){
+        for (Stage stage : Stage.values()) {
+            stageTimes[stage.ordinal()] = Histogram.exponential(
+                    "stage." + stage.name().toLowerCase(Locale.ROOT) + "_ns", FIRST_TIME_BOUND_NS, TIME_BUCKETS);
+        }
+    }
+
+    /**
+     * The setNominalSamplePeriod method sets the sampling period the sensor was registered with.
+     * A gap of more than 1.5 periods between two records counts the missing records as dropped.
+     * Without a period (0), no records are counted as dropped.
+     * @param pPeriodNs The sampling period in nanoseconds, or 0.
+     */
+    public void setNominalSamplePeriod(long pPeriodNs){
+        nominalSamplePeriodNs = pPeriodNs;
+    }
+
+    /**
+     * The setRecordTimingInterval method chooses for which records the per-record stages are timed.
+     * @param pInterval 1 to time every record, n to time every n-th record.
+     */
+    public void setRecordTimingInterval(int pInterval){
+        if(pInterval <= 0){
+            throw new IllegalArgumentException("Interval must be positive: " + pInterval);
+        }
+        recordTimingInterval = pInterval;
+    }
+
+    /**
+     * The recordSample method counts an ingested record and checks its timestamp against the previous one.
+     * A record with a timestamp not after the previous one is counted as late.
+     * Must be called on the thread of the StepDetector.
+     * @param pTimestampNs Timestamp of the sensor event (nanoseconds since device start)
+     * @return boolean: true if the per-record stages of this record should be timed.
+     */
+    public boolean recordSample(long pTimestampNs){
+        samples.increment();
+        boolean isTimed = --recordsUntilTiming <= 0;
+        if(isTimed){
+            recordsUntilTiming = recordTimingInterval;
+        }
+        if(lastSampleTimestampNs >= 0){
+            long interval = pTimestampNs - lastSampleTimestampNs;
+            if(interval <= 0){
+                lateSamples.increment();
+                return isTimed;
+            }
+            sampleInterval.record(interval);
+            long period = nominalSamplePeriodNs;
+            if(period > 0){
+                long missing = Math.round((double) interval / period) - 1;
+                if(missing > 0){
+                    droppedSamples.add(missing);
+                }
+            }
+        }
+        lastSampleTimestampNs = pTimestampNs;
+        return isTimed;
+    }
+
+    public void recordBatch(){
+        batches.increment();
+    }
+
+    /**
+     * The recordPeak method counts a high point found by the StepDetector.
+     * @param pSuppressed true if the high point is not reported as step, because it is too near to another one.
+     */
+    public void recordPeak(boolean pSuppressed){
+        peaksFound.increment();
+        if(pSuppressed){
+            peaksSuppressed.increment();
+        }
+    }
+
+    /**
+     * The recordSuppressedPeak method counts a high point which was first kept and later suppressed
+     * by a higher one nearby. It has already been counted as found.
+     */
+    public void recordSuppressedPeak(){
+        peaksSuppressed.increment();
+    }
+
+    /**
+     * The recordStep method counts a reported step.
+     * @param pLatencyNs Time from the sensor timestamp of the high point to the StepListener call.
+     */
+    public void recordStep(long pLatencyNs){
+        steps.increment();
+        stepLatency.record(pLatencyNs);
+    }
+
+    /**
+     * @param pStage The stage
+     * @param pDurationNs Processing time of the stage in nanoseconds.
+     */
+    public void recordStageTime(Stage pStage, long pDurationNs){
+        stageTimes[pStage.ordinal()].record(pDurationNs);
+    }
+
+    public Counter getSamples(){
+        return samples;
+    }
+
+    public Counter getDroppedSamples(){
+        return droppedSamples;
+    }
+
+    public Counter getLateSamples(){
+        return lateSamples;
+    }
+
+    public Counter getBatches(){
+        return batches;
+    }
+
+    public Counter getPeaksFound(){
+        return peaksFound;
+    }
+
+    public Counter getPeaksSuppressed(){
+        return peaksSuppressed;
+    }
+
+    public Counter getSteps(){
+        return steps;
+    }
+
+    public Histogram getStageTime(Stage pStage){
+        return stageTimes[pStage.ordinal()];
+    }
+
+    public Histogram getStepLatency(){
+        return stepLatency;
+    }
+
+    public Histogram getSampleInterval(){
+        return sampleInterval;
+    }
+
+    /**
+     * The reset method sets all values back to 0, e.g. for a new measurement.
+     * Must be called on the thread of the StepDetector, or while no records are added.
+     */
+    public void reset(){
+        for (Counter counter : getCounters()) {
+            counter.reset();
+        }
+        for (Histogram histogram : getHistograms()) {
+            histogram.reset();
+        }
+        lastSampleTimestampNs = -1;
+        recordsUntilTiming = 0;
+    }
+
+    private Counter[] getCounters(){
+        return new Counter[]{samples, droppedSamples, lateSamples, batches, peaksFound, peaksSuppressed, steps};
+    }
+
+    private Histogram[] getHistograms(){
+        Histogram[] histograms = new Histogram[stageTimes.length + 2];
+        System.arraycopy(stageTimes, 0, histograms, 0, stageTimes.length);
+        histograms[stageTimes.length] = stepLatency;
+        histograms[stageTimes.length + 1] = sampleInterval;
+        return histograms;
+    }
+
+    /**
+     * The appendSummary method appends a short summary for a debug overlay, one value per line.
+     * Times are shown in microseconds.
+     * @param pBuilder The builder to append to, can be reused.
+     */
+    public void appendSummary(StringBuilder pBuilder){
+        pBuilder.append("samples ").append(samples.get())
+                .append(" (dropped ").append(droppedSamples.get())
+                .append(", late ").append(lateSamples.get()).append(")\n");
+        pBuilder.append("batches ").append(batches.get()).append('\n');
+        pBuilder.append("peaks ").append(peaksFound.get())
+                .append(" (suppressed ").append(peaksSuppressed.get()).append(")\n");
+        pBuilder.append("steps ").append(steps.get()).append('\n');
+        for (Stage stage : Stage.values()) {
+            Histogram histogram = stageTimes[stage.ordinal()];
+            pBuilder.append(stage.name().toLowerCase(Locale.ROOT))
+                    .append(" p50 ").append(histogram.getPercentile(50) / 1000)
+                    .append(" p99 ").append(histogram.getPercentile(99) / 1000).append(" µs\n");
+        }
+        pBuilder.append("latency p50 ").append(stepLatency.getPercentile(50) / 1000)
+                .append(" p99 ").append(stepLatency.getPercentile(99) / 1000)
+                .append(" max ").append(stepLatency.getMax() / 1000).append(" µs");
+    }
+
+    /**
+     * The dump method writes all counters and histograms as text, one counter or histogram per line,
+     * followed by the non-empty buckets of each histogram ("<= upper bound: count").
+     * @param pOut The target, e.g. a FileWriter.
+     * @throws IOException If the target cannot be written.
+     */
+    public void dump(Appendable pOut) throws IOException {
+        for (Counter counter : getCounters()) {
+            pOut.append(counter.getName()).append(' ').append(String.valueOf(counter.get())).append('\n');
+        }
+        for (Histogram histogram : getHistograms()) {
+            pOut.append(String.format(Locale.ROOT, "%s count=%d mean=%d p50=%d p90=%d p99=%d max=%d\n",
+                    histogram.getName(), histogram.getCount(), histogram.getMean(), histogram.getPercentile(50),
+                    histogram.getPercentile(90), histogram.getPercentile(99), histogram.getMax()));
+            for (int i = 0; i < histogram.getBucketCount(); i++) {
+                long value = histogram.getBucketValue(i);
+                if(value > 0){
+                    long bound = histogram.getUpperBound(i);
+                    pOut.append("  <= ").append(bound == Long.MAX_VALUE ? "inf" : String.valueOf(bound))
+                            .append(": ").append(String.valueOf(value)).append('\n');
+                }
+            }
+        }
+    }
+}
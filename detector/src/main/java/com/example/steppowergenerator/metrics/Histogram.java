@@ -0,0 +1,165 @@
+package com.example.steppowergenerator.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ The Histogram class counts values in buckets with fixed upper bounds, without locks and without
+ creating objects. A value belongs to the first bucket whose upper bound is at least the value;
+ values above the last bound are counted in an overflow bucket. Besides the buckets, the number,
+ the sum and the maximum of all values are kept exactly. Percentiles are estimated with the upper bound
+ of the bucket which contains them.
+ */
+public class Histogram {
+
+    private final String name;
+    private final long[] upperBounds;
+    private final AtomicLongArray counts; // letzter Bucket = Überlauf
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Class constructor.
+     * @param pName Name of the histogram, used when the metrics are dumped.
+     * @param pUpperBounds Upper bounds of the buckets in ascending order.
+     */
+    public Histogram(String pName, long[] pUpperBounds){
+        if(pUpperBounds.length == 0){
+            throw new IllegalArgumentException("A histogram needs at least one bucket");
+        }
+        for (int i = 1; i < pUpperBounds.length; i++) {
+            if(pUpperBounds[i] <= pUpperBounds[i - 1]){
+                throw new IllegalArgumentException("Upper bounds must be ascending: " + Arrays.toString(pUpperBounds));
+            }
+        }
+        name = pName;
+        upperBounds = pUpperBounds.clone();
+        counts = new AtomicLongArray(pUpperBounds.length + 1);
+    }
+
+    /**
+     * The exponential method creates a histogram whose upper bounds double from bucket to bucket,
+     * e.g. for durations in nanoseconds.
+     * @param pName Name of the histogram.
+     * @param pFirstBound Upper bound of the first bucket.
+     * @param pBucketCount Number of buckets, without the overflow bucket.
+     * @return Histogram: The new histogram.
+     */
+    public static Histogram exponential(String pName, long pFirstBound, int pBucketCount){
+        long[] upperBounds = new long[pBucketCount];
+        for (int i = 0; i < pBucketCount; i++) {
+            upperBounds[i] = pFirstBound << i;
+        }
+        return new Histogram(pName, upperBounds);
+    }
+
+    /**
+     * The record method counts a value. Can be called from any thread.
+     * @param pValue The value, e.g. a duration in nanoseconds.
+     */
+    public void record(long pValue){
+        int bucket = Arrays.binarySearch(upperBounds, pValue);
+        if(bucket < 0){
+            bucket = -bucket - 1;
+        }
+        counts.incrementAndGet(bucket);
+        sum.add(pValue);
+        long currentMax = max.get();
+        while(pValue > currentMax && !max.compareAndSet(currentMax, pValue)){
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return long: The number of recorded values.
+     */
+    public long getCount(){
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getSum(){
+        return sum.sum();
+    }
+
+    /**
+     * @return long: The highest recorded value, 0 if no value was recorded.
+     */
+    public long getMax(){
+        long currentMax = max.get();
+        return currentMax == Long.MIN_VALUE ? 0 : currentMax;
+    }
+
+    /**
+     * @return long: The average of the recorded values, 0 if no value was recorded.
+     */
+    public long getMean(){
+        long count = getCount();
+        return count == 0 ? 0 : getSum() / count;
+    }
+
+    /**
+     * The getPercentile method estimates a percentile with the upper bound of the bucket containing it.
+     * For the overflow bucket, and if it is lower than the bound, the maximum is returned.
+     * @param pPercentile The percentile between 0 and 100, e.g. 99.
+     * @return long: The estimated percentile, 0 if no value was recorded.
+     */
+    public long getPercentile(double pPercentile){
+        long count = getCount();
+        if(count == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * pPercentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < upperBounds.length; i++) {
+            seen += counts.get(i);
+            if(seen >= rank){
+                return Math.min(upperBounds[i], getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return int: The number of buckets, including the overflow bucket.
+     */
+    public int getBucketCount(){
+        return counts.length();
+    }
+
+    /**
+     * @param pBucket Index of the bucket
+     * @return long: The upper bound of the bucket, Long.MAX_VALUE for the overflow bucket.
+     */
+    public long getUpperBound(int pBucket){
+        return pBucket == upperBounds.length ? Long.MAX_VALUE : upperBounds[pBucket];
+    }
+
+    /**
+     * @param pBucket Index of the bucket
+     * @return long: The number of values in the bucket.
+     */
+    public long getBucketValue(int pBucket){
+        return counts.get(pBucket);
+    }
+
+    /**
+     * The reset method sets all buckets back to 0. Values recorded at the same time may be lost.
+     */
+    public void reset(){
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.set(Long.MIN_VALUE);
+    }
+
+    public String getName(){
+        return name;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.steppowergenerator.session;
+
+/**
+ The ExportChunkType enum contains the chunk types of a session export file (see SessionExporter).
+ <p>
+ Every file starts with a header of 16 bytes (little endian):
+ magic number (int), version (byte), three unused bytes
+ and the offset between Unix time and sensor timestamps in milliseconds (long).
+ It is followed by chunks, each holding up to a few thousand records column by column:
+ chunk type ordinal (byte), number of records (int) and one block per column.
+ A column block is the length of the encoded column (int), the length of the compressed column (int)
+ and the column compressed with Deflater, so a reader can skip columns it does not need.
+ <p>
+ SAMPLES chunks have the columns timestamp, x, y and z of the acceleration records.
+ STEPS chunks have the columns time, step type and value of the recognized steps.
+ Timestamps and times are stored as differences to the previous record of the chunk (zigzag varint,
+ the first one as difference to 0), so every chunk can be read on its own.
+ Float columns are split into four byte planes (the lowest byte of all values first), which puts the
+ slowly changing sign and exponent bytes next to each other and lets Deflater compress them much better.
+ The step type is stored as one byte (its ordinal).
+ */
+public enum ExportChunkType {
+        SAMPLES,
+        STEPS;
+
+        static final int MAGIC = 0x58475053; // "SPGX"
+        static final byte VERSION = 1;
+        static final int HEADER_SIZE = 16;
+        // Typ und Anzahl der Datensätze
+        static final int CHUNK_HEADER_SIZE = 5;
+        // Längen vor jeder Spalte
+        static final int COLUMN_HEADER_SIZE = 8;
+        // 10 Bytes für den längsten varint
+        static final int MAX_VARLONG_SIZE = 10;
+}
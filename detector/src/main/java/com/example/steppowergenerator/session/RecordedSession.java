@@ -0,0 +1,108 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.StepDetector;
+
+import java.util.Arrays;
+
+/**
+ The RecordedSession class stores all raw records of one measurement in growing primitive arrays,
+ together with the offset between sensor timestamps and Unix time and the walking threshold of the
+ StepDetector at the start of the measurement. With these the session can be processed again later
+ with exactly the same results.
+ */
+public class RecordedSession {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final long timeOffsetToUnix;
+    private final double walkingThreshold;
+
+    private long[] times;
+    private float[] xValues;
+    private float[] yValues;
+    private float[] zValues;
+    private int size;
+
+    /**
+     * Class constructor for a session recorded with StepDetector.WALKINGTHRESHOLD.
+     * @param pTimeOffsetToUnix Offset between Unix time and sensor timestamps in milliseconds.
+     */
+    public RecordedSession(long pTimeOffsetToUnix){
+        this(pTimeOffsetToUnix, StepDetector.WALKINGTHRESHOLD);
+    }
+
+    /**
+     * Class constructor.
+     * @param pTimeOffsetToUnix Offset between Unix time and sensor timestamps in milliseconds.
+     * @param pWalkingThreshold The walking threshold of the StepDetector during the measurement.
+     */
+    public RecordedSession(long pTimeOffsetToUnix, double pWalkingThreshold){
+        timeOffsetToUnix = pTimeOffsetToUnix;
+        walkingThreshold = pWalkingThreshold;
+        times = new long[INITIAL_CAPACITY];
+        xValues = new float[INITIAL_CAPACITY];
+        yValues = new float[INITIAL_CAPACITY];
+        zValues = new float[INITIAL_CAPACITY];
+    }
+
+    /**
+     * The add method appends a record. The arrays grow by doubling, so adding is
+     * free of allocations except for the rare resize.
+     * @param pTime Timestamp of the record (nanoseconds since device start)
+     * @param pX Acceleration in x direction
+     * @param pY Acceleration in y direction
+     * @param pZ Acceleration in z direction
+     */
+    public void add(long pTime, float pX, float pY, float pZ){
+        if(size == times.length){
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            xValues = Arrays.copyOf(xValues, capacity);
+            yValues = Arrays.copyOf(yValues, capacity);
+            zValues = Arrays.copyOf(zValues, capacity);
+        }
+        times[size] = pTime;
+        xValues[size] = pX;
+        yValues[size] = pY;
+        zValues[size] = pZ;
+        size++;
+    }
+
+    public long getTimeOffsetToUnix(){
+        return timeOffsetToUnix;
+    }
+
+    public double getWalkingThreshold(){
+        return walkingThreshold;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public long getTime(int pIndex){
+        checkIndex(pIndex);
+        return times[pIndex];
+    }
+
+    public float getX(int pIndex){
+        checkIndex(pIndex);
+        return xValues[pIndex];
+    }
+
+    public float getY(int pIndex){
+        checkIndex(pIndex);
+        return yValues[pIndex];
+    }
+
+    public float getZ(int pIndex){
+        checkIndex(pIndex);
+        return zValues[pIndex];
+    }
+
+    private void checkIndex(int pIndex){
+        if(pIndex < 0 || pIndex >= size){
+            throw new IndexOutOfBoundsException("Index: " + pIndex + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.Clock;
+
+/**
+ * The ReplayClock class is a Clock for processing recorded sessions. It always returns
+ * the offset to Unix time stored with the session, so the StepDetector converts
+ * the timestamps exactly as during the recording.
+ */
+class ReplayClock implements Clock {
+
+    private final long timeOffsetToUnix;
+
+    ReplayClock(long pTimeOffsetToUnix) {
+        timeOffsetToUnix = pTimeOffsetToUnix;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return timeOffsetToUnix;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return 0;
+    }
+
+    @Override
+    public long elapsedRealtimeNanos() {
+        return 0;
+    }
+}
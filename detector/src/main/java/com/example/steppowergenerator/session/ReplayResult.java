@@ -0,0 +1,121 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.StepListener;
+import com.example.steppowergenerator.StepType;
+
+import java.util.Arrays;
+
+/**
+ The ReplayResult class collects the steps recognized while processing a recorded session.
+ For every step the Unix time, the total acceleration of the high point and the step type are stored.
+ As a StepListener it can be registered directly in a StepDetector.
+ */
+public class ReplayResult implements StepListener {
+
+    private long[] times;
+    private double[] values;
+    private StepType[] stepTypes;
+    private int size;
+
+    public ReplayResult(){
+        times = new long[16];
+        values = new double[16];
+        stepTypes = new StepType[16];
+    }
+
+    @Override
+    public void step(AccelerationData accelerationData, StepType stepType) {
+        add(accelerationData.getTime(), accelerationData.getValue(), stepType);
+    }
+
+    /**
+     * The add method appends a step.
+     * @param pTime Unix time of the step in milliseconds
+     * @param pValue Total acceleration of the high point
+     * @param pStepType Type of the step
+     */
+    public void add(long pTime, double pValue, StepType pStepType){
+        ensureCapacity(size + 1);
+        times[size] = pTime;
+        values[size] = pValue;
+        stepTypes[size] = pStepType;
+        size++;
+    }
+
+    /**
+     * The addAll method appends all steps of pOther, which must have been recognized after the steps of this result.
+     * @param pOther Result of the following part of the session
+     */
+    public void addAll(ReplayResult pOther){
+        ensureCapacity(size + pOther.size);
+        System.arraycopy(pOther.times, 0, times, size, pOther.size);
+        System.arraycopy(pOther.values, 0, values, size, pOther.size);
+        System.arraycopy(pOther.stepTypes, 0, stepTypes, size, pOther.size);
+        size += pOther.size;
+    }
+
+    private void ensureCapacity(int pCapacity){
+        if(pCapacity > times.length){
+            int capacity = Math.max(pCapacity, times.length * 2);
+            times = Arrays.copyOf(times, capacity);
+            values = Arrays.copyOf(values, capacity);
+            stepTypes = Arrays.copyOf(stepTypes, capacity);
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public long getTime(int pIndex){
+        return times[pIndex];
+    }
+
+    public double getValue(int pIndex){
+        return values[pIndex];
+    }
+
+    public StepType getStepType(int pIndex){
+        return stepTypes[pIndex];
+    }
+
+    /**
+     * @param pStepType Type of step to count
+     * @return int: Number of steps of the given type.
+     */
+    public int count(StepType pStepType){
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if(stepTypes[i] == pStepType){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ReplayResult)) return false;
+        ReplayResult other = (ReplayResult) o;
+        if (size != other.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (times[i] != other.times[i] || Double.compare(values[i], other.values[i]) != 0
+                    || stepTypes[i] != other.stepTypes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Long.hashCode(times[i]);
+            result = 31 * result + stepTypes[i].hashCode();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.steppowergenerator.session;
+
+/**
+ * The SampleConsumer interface receives raw records of the acceleration sensor one by one,
+ * for example while a session log is read. StepDetector::addSample can be used directly.
+ */
+public interface SampleConsumer {
+
+    /**
+     * @param timestampNs Timestamp of the record (nanoseconds since device start)
+     * @param x Acceleration in x direction
+     * @param y Acceleration in y direction
+     * @param z Acceleration in z direction
+     */
+    void accept(long timestampNs, float x, float y, float z);
+}
@@ -0,0 +1,271 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.StepListener;
+import com.example.steppowergenerator.StepType;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ The SessionExportReader class reads an export file written by the SessionExporter.
+ The file is memory-mapped and decoded chunk by chunk, so only one chunk is held in memory at a time.
+ An incomplete last chunk (e.g. if the process died while writing) is ignored.
+ */
+public class SessionExportReader implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long timeOffsetToUnix;
+    private final Inflater inflater = new Inflater(true);
+
+    // Dekodierte Spalten des aktuellen Chunks, werden bei Bedarf vergrößert
+    private byte[] compressed = new byte[0];
+    private byte[] column = new byte[0];
+    private int columnLength;
+    private long[] times = new long[0];
+    private byte[] types = new byte[0];
+    private float[][] values = new float[3][0];
+
+    /**
+     * Class constructor.
+     * Maps the file and reads the header.
+     * @param pFile The export file
+     * @throws IOException If the file cannot be read or is not an export file.
+     */
+    public SessionExportReader(File pFile) throws IOException {
+        // RandomAccessFile statt FileChannel.open, das erst ab API 26 verfügbar ist
+        channel = new RandomAccessFile(pFile, "r").getChannel();
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if(buffer.remaining() < ExportChunkType.HEADER_SIZE || buffer.getInt() != ExportChunkType.MAGIC){
+                throw new IOException("Not a session export: " + pFile);
+            }
+            byte version = buffer.get();
+            if(version != ExportChunkType.VERSION){
+                throw new IOException("Unsupported session export version " + version + ": " + pFile);
+            }
+            buffer.get();
+            buffer.getShort();
+            timeOffsetToUnix = buffer.getLong();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getTimeOffsetToUnix(){
+        return timeOffsetToUnix;
+    }
+
+    /**
+     * The read method passes all records and steps of the file to the consumers, each in the order they were added.
+     * It can be called several times.
+     * @param pSampleConsumer Receives the records, or null to skip the SAMPLES chunks.
+     * @param pStepListener Receives the steps, or null to skip the STEPS chunks. The AccelerationData passed is
+     *                      reused for every step and only has the Unix time and the value set.
+     * @return long: The number of records and steps read.
+     * @throws IOException If a chunk is damaged.
+     */
+    public long read(SampleConsumer pSampleConsumer, StepListener pStepListener) throws IOException {
+        AccelerationData stepData = new AccelerationData();
+        StepType[] stepTypes = StepType.values();
+        int position = ExportChunkType.HEADER_SIZE;
+        int limit = buffer.limit();
+        long count = 0;
+
+        while(limit - position >= ExportChunkType.CHUNK_HEADER_SIZE){
+            int typeOrdinal = buffer.get(position);
+            int size = buffer.getInt(position + 1);
+            if(typeOrdinal < 0 || typeOrdinal >= ExportChunkType.values().length || size < 0){
+                throw new IOException("Damaged chunk at " + position);
+            }
+            ExportChunkType type = ExportChunkType.values()[typeOrdinal];
+            int columnCount = type == ExportChunkType.SAMPLES ? 4 : 3;
+            int chunkEnd = skipColumns(position + ExportChunkType.CHUNK_HEADER_SIZE, columnCount, limit);
+            if(chunkEnd < 0){
+                break;
+            }
+            position += ExportChunkType.CHUNK_HEADER_SIZE;
+            ensureCapacity(size);
+
+            if(type == ExportChunkType.SAMPLES && pSampleConsumer != null){
+                position = readTimes(position, size);
+                for (int c = 0; c < 3; c++) {
+                    position = readFloats(position, size, values[c]);
+                }
+                for (int i = 0; i < size; i++) {
+                    pSampleConsumer.accept(times[i], values[0][i], values[1][i], values[2][i]);
+                }
+                count += size;
+            } else if(type == ExportChunkType.STEPS && pStepListener != null){
+                position = readTimes(position, size);
+                position = readColumn(position, size);
+                System.arraycopy(column, 0, types, 0, size);
+                position = readFloats(position, size, values[0]);
+                for (int i = 0; i < size; i++) {
+                    if(types[i] < 0 || types[i] >= stepTypes.length){
+                        throw new IOException("Unknown step type " + types[i]);
+                    }
+                    stepData.setTime(times[i]);
+                    stepData.setTimestampNs((times[i] - timeOffsetToUnix) * 1000000L);
+                    stepData.setValue(values[0][i]);
+                    pStepListener.step(stepData, stepTypes[types[i]]);
+                }
+                count += size;
+            }
+            position = chunkEnd;
+        }
+        return count;
+    }
+
+    /**
+     * The skipColumns method finds the end of a chunk from the lengths of its columns.
+     * @return int: The position after the chunk, -1 if the chunk is incomplete.
+     */
+    private int skipColumns(int pPosition, int pColumnCount, int pLimit){
+        for (int c = 0; c < pColumnCount; c++) {
+            if(pLimit - pPosition < ExportChunkType.COLUMN_HEADER_SIZE){
+                return -1;
+            }
+            int compressedLength = buffer.getInt(pPosition + 4);
+            if(compressedLength < 0 || pLimit - pPosition - ExportChunkType.COLUMN_HEADER_SIZE < compressedLength){
+                return -1;
+            }
+            pPosition += ExportChunkType.COLUMN_HEADER_SIZE + compressedLength;
+        }
+        return pPosition;
+    }
+
+    private void ensureCapacity(int pSize){
+        if(times.length < pSize){
+            times = new long[pSize];
+            types = new byte[pSize];
+            for (int c = 0; c < values.length; c++) {
+                values[c] = new float[pSize];
+            }
+        }
+    }
+
+    /**
+     * The readColumn method decompresses the column at pPosition into the column array.
+     * @param pMinLength Minimum length of the decoded column.
+     * @return int: The position after the column.
+     */
+    private int readColumn(int pPosition, int pMinLength) throws IOException {
+        int length = buffer.getInt(pPosition);
+        int compressedLength = buffer.getInt(pPosition + 4);
+        pPosition += ExportChunkType.COLUMN_HEADER_SIZE;
+        if(length < pMinLength){
+            throw new IOException("Column too short at " + pPosition);
+        }
+        if(compressed.length < compressedLength){
+            compressed = new byte[compressedLength];
+        }
+        if(column.length < length){
+            column = new byte[length];
+        }
+        ByteBuffer source = buffer.duplicate();
+        source.position(pPosition);
+        source.get(compressed, 0, compressedLength);
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            if(inflater.inflate(column, 0, length) != length){
+                throw new IOException("Damaged column at " + pPosition);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged column at " + pPosition, e);
+        }
+        columnLength = length;
+        return pPosition + compressedLength;
+    }
+
+    private int readTimes(int pPosition, int pSize) throws IOException {
+        pPosition = readColumn(pPosition, pSize);
+        int index = 0;
+        long previous = 0;
+        for (int i = 0; i < pSize; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if(index >= columnLength || shift > 63){
+                    throw new IOException("Damaged time column at " + pPosition);
+                }
+                b = column[index++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while((b & 0x80) != 0);
+            previous += (value >>> 1) ^ -(value & 1);
+            times[i] = previous;
+        }
+        return pPosition;
+    }
+
+    private int readFloats(int pPosition, int pSize, float[] pValues) throws IOException {
+        pPosition = readColumn(pPosition, 4 * pSize);
+        for (int i = 0; i < pSize; i++) {
+            int bits = (column[i] & 0xFF)
+                    | (column[pSize + i] & 0xFF) << 8
+                    | (column[2 * pSize + i] & 0xFF) << 16
+                    | (column[3 * pSize + i] & 0xFF) << 24;
+            pValues[i] = Float.intBitsToFloat(bits);
+        }
+        return pPosition;
+    }
+
+    /**
+     * The writeCsv method converts the file into two CSV texts, e.g. for a spreadsheet.
+     * Records are written as "timestamp (ns),x,y,z" like the test traces, steps as "unix time (ms),value,step type".
+     * @param pSamples Receives the records, or null.
+     * @param pSteps Receives the steps, or null.
+     * @throws IOException If the file is damaged or a target cannot be written.
+     */
+    public void writeCsv(final Appendable pSamples, final Appendable pSteps) throws IOException {
+        final IOException[] writeError = new IOException[1];
+        read(pSamples == null ? null : new SampleConsumer() {
+            @Override
+            public void accept(long timestampNs, float x, float y, float z) {
+                append(pSamples, String.format(Locale.ROOT, "%d,%s,%s,%s\n", timestampNs, x, y, z), writeError);
+            }
+        }, pSteps == null ? null : new StepListener() {
+            @Override
+            public void step(AccelerationData accelerationData, StepType stepType) {
+                append(pSteps, String.format(Locale.ROOT, "%d,%.4f,%s\n",
+                        accelerationData.getTime(), accelerationData.getValue(), stepType), writeError);
+            }
+        });
+        if(writeError[0] != null){
+            throw writeError[0];
+        }
+    }
+
+    private static void append(Appendable pTarget, String pLine, IOException[] pError){
+        if(pError[0] != null){
+            return;
+        }
+        try {
+            pTarget.append(pLine);
+        } catch (IOException e) {
+            pError[0] = e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
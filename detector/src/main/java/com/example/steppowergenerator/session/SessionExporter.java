@@ -0,0 +1,426 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.SampleBatch;
+import com.example.steppowergenerator.StepListener;
+import com.example.steppowergenerator.StepType;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ The SessionExporter class writes the raw records and the recognized steps of a measurement to a
+ compressed, columnar export file for analysis (see ExportChunkType, read with the SessionExportReader).
+ Records and steps are collected in chunks; full chunks are encoded, compressed and written on a
+ background thread, so the thread adding the records only copies them into the chunk.
+ The sample chunks are SampleBatches from a small fixed pool, which are reused after they have been written,
+ so the memory used stays the same no matter how long the session is. If the background thread
+ falls behind and no chunk is free, accept drops the record (counted in getDroppedSamples), so a stalled
+ storage never blocks the sensor thread. When exporting a recorded session, accept can wait for a free
+ chunk instead, so no record is lost. At sensor rates records are only dropped when the storage stalls:
+ a chunk is written in about a millisecond.
+ accept, step, flush and close must be called on one thread, e.g. the thread of the StepDetector.
+ An error while writing is thrown by close; records added after it are not written any more.
+ */
+public class SessionExporter implements SampleConsumer, StepListener, Closeable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+    // Höhere Stufen kosten etwa doppelt so viel Zeit und sparen nur wenige Prozent, da die Messwerte verrauscht sind
+    public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    private static final int STEP_CHUNK_SIZE = 256;
+    private static final int CHUNK_POOL_SIZE = 4;
+
+    private final File file;
+    private final FileChannel channel;
+    private final ExecutorService executor;
+    private final BlockingQueue<SampleBatch> freeSampleChunks;
+    private final boolean waitForChunk;
+
+    // Nur vom Thread des Aufrufers verwendet
+    private SampleBatch sampleChunk;
+    private StepChunk stepChunk;
+    private long sampleCount;
+    private long stepCount;
+    private long droppedSamples;
+
+    // Nur vom Hintergrund-Thread verwendet
+    private final Deflater deflater;
+    private byte[] column;
+    private ByteBuffer chunkBuffer;
+
+    private volatile long bytesWritten;
+    private volatile IOException error;
+
+    /**
+     * The StepChunk class holds the steps of one STEPS chunk column by column.
+     */
+    private static class StepChunk {
+        private final long[] times = new long[STEP_CHUNK_SIZE];
+        private final byte[] types = new byte[STEP_CHUNK_SIZE];
+        private final float[] values = new float[STEP_CHUNK_SIZE];
+        private int size;
+    }
+
+    /**
+     * Class constructor.
+     * Creates (or overwrites) the file with DEFAULT_CHUNK_SIZE records per chunk and DEFAULT_COMPRESSION_LEVEL.
+     * Records are dropped while no chunk is free, as needed on the sensor thread.
+     * @param pFile The export file
+     * @param pTimeOffsetToUnix Offset between Unix time and sensor timestamps in milliseconds
+     * @throws IOException If the file cannot be created.
+     */
+    public SessionExporter(File pFile, long pTimeOffsetToUnix) throws IOException {
+        this(pFile, pTimeOffsetToUnix, DEFAULT_CHUNK_SIZE, DEFAULT_COMPRESSION_LEVEL, false);
+    }
+
+    /**
+     * Class constructor.
+     * Creates (or overwrites) the file, writes the header and starts the background thread.
+     * @param pFile The export file
+     * @param pTimeOffsetToUnix Offset between Unix time and sensor timestamps in milliseconds
+     * @param pChunkSize Number of records per sample chunk. Larger chunks compress better, but keep
+     *                   more records in memory and are written less often.
+     * @param pCompressionLevel Deflater level from 0 (no compression) to 9, or Deflater.DEFAULT_COMPRESSION.
+     * @param pWaitForChunk true if accept waits for a free chunk (e.g. for a recorded session),
+     *                      false if it drops the record (e.g. on the sensor thread).
+     * @throws IOException If the file cannot be created.
+     */
+    public SessionExporter(File pFile, long pTimeOffsetToUnix, int pChunkSize, int pCompressionLevel,
+                           boolean pWaitForChunk) throws IOException {
+        if(pChunkSize <= 0){
+            throw new IllegalArgumentException("Chunk size must be positive: " + pChunkSize);
+        }
+        file = pFile;
+        waitForChunk = pWaitForChunk;
+        deflater = new Deflater(pCompressionLevel, true);
+        freeSampleChunks = new ArrayBlockingQueue<>(CHUNK_POOL_SIZE);
+        for (int i = 0; i < CHUNK_POOL_SIZE; i++) {
+            freeSampleChunks.add(new SampleBatch(pChunkSize));
+        }
+        column = new byte[Math.max(pChunkSize, STEP_CHUNK_SIZE) * ExportChunkType.MAX_VARLONG_SIZE];
+        chunkBuffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        // RandomAccessFile statt FileChannel.open, das erst ab API 26 verfügbar ist
+        RandomAccessFile randomAccessFile = new RandomAccessFile(pFile, "rw");
+        channel = randomAccessFile.getChannel();
+        try {
+            randomAccessFile.setLength(0);
+            ByteBuffer header = ByteBuffer.allocate(ExportChunkType.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(ExportChunkType.MAGIC);
+            header.put(ExportChunkType.VERSION);
+            header.put((byte) 0);
+            header.putShort((short) 0);
+            header.putLong(pTimeOffsetToUnix);
+            header.flip();
+            write(header);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SessionExport");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * The accept method adds a record to the current sample chunk. A full chunk is handed to the background thread.
+     * If all chunks are still waiting to be written, the record is dropped, or it waits for a free chunk
+     * if the exporter was created for that.
+     * @param pTimestampNs Timestamp of the record (nanoseconds since device start)
+     * @param pX Acceleration in x direction
+     * @param pY Acceleration in y direction
+     * @param pZ Acceleration in z direction
+     */
+    @Override
+    public void accept(long pTimestampNs, float pX, float pY, float pZ){
+        if(sampleChunk == null){
+            try {
+                sampleChunk = waitForChunk ? freeSampleChunks.take() : freeSampleChunks.poll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if(sampleChunk == null){
+                droppedSamples++;
+                return;
+            }
+        }
+        sampleChunk.add(pTimestampNs, pX, pY, pZ);
+        sampleCount++;
+        if(sampleChunk.isFull()){
+            submitSampleChunk();
+        }
+    }
+
+    /**
+     * The step method adds a recognized step to the current step chunk.
+     * @param pAccelerationData The data record of the step: its Unix time and the height of the peak are exported.
+     * @param pStepType The type of the step.
+     */
+    @Override
+    public void step(AccelerationData pAccelerationData, StepType pStepType){
+        if(stepChunk == null){
+            stepChunk = new StepChunk();
+        }
+        StepChunk chunk = stepChunk;
+        chunk.times[chunk.size] = pAccelerationData.getTime();
+        chunk.types[chunk.size] = (byte) pStepType.ordinal();
+        chunk.values[chunk.size] = (float) pAccelerationData.getValue();
+        chunk.size++;
+        stepCount++;
+        if(chunk.size == STEP_CHUNK_SIZE){
+            submitStepChunk();
+        }
+    }
+
+    private void submitSampleChunk(){
+        final SampleBatch chunk = sampleChunk;
+        sampleChunk = null;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if(error == null){
+                        writeSampleChunk(chunk);
+                    }
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    chunk.clear();
+                    freeSampleChunks.offer(chunk);
+                }
+            }
+        });
+    }
+
+    private void submitStepChunk(){
+        final StepChunk chunk = stepChunk;
+        stepChunk = null;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if(error == null){
+                        writeStepChunk(chunk);
+                    }
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+        });
+    }
+
+    /**
+     * The flush method hands the records and steps collected so far to the background thread,
+     * even if their chunks are not full. They are written shortly afterwards.
+     */
+    public void flush(){
+        if(sampleChunk != null && sampleChunk.size() > 0){
+            submitSampleChunk();
+        }
+        if(stepChunk != null && stepChunk.size > 0){
+            submitStepChunk();
+        }
+    }
+
+    /**
+     * The close method writes all remaining records and steps, waits for the background thread and closes the file.
+     * @throws IOException If the file could not be written, now or earlier on the background thread.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            executor.shutdown();
+            while(!executor.awaitTermination(1, TimeUnit.SECONDS)){
+                // weiter warten, bis alle Chunks geschrieben sind
+            }
+            deflater.end();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing " + file);
+        } finally {
+            channel.close();
+        }
+        if(error != null){
+            throw error;
+        }
+    }
+
+    private void writeSampleChunk(SampleBatch pChunk) throws IOException {
+        int count = pChunk.size();
+        startChunk(ExportChunkType.SAMPLES, count);
+
+        int length = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long timestamp = pChunk.getTimestamp(i);
+            length = writeVarLong(timestamp - previous, length);
+            previous = timestamp;
+        }
+        writeColumn(length);
+
+        for (int i = 0; i < count; i++) {
+            putFloat(pChunk.getX(i), i, count);
+        }
+        writeColumn(4 * count);
+        for (int i = 0; i < count; i++) {
+            putFloat(pChunk.getY(i), i, count);
+        }
+        writeColumn(4 * count);
+        for (int i = 0; i < count; i++) {
+            putFloat(pChunk.getZ(i), i, count);
+        }
+        writeColumn(4 * count);
+
+        finishChunk();
+    }
+
+    private void writeStepChunk(StepChunk pChunk) throws IOException {
+        int count = pChunk.size;
+        startChunk(ExportChunkType.STEPS, count);
+
+        int length = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            length = writeVarLong(pChunk.times[i] - previous, length);
+            previous = pChunk.times[i];
+        }
+        writeColumn(length);
+
+        System.arraycopy(pChunk.types, 0, column, 0, count);
+        writeColumn(count);
+
+        for (int i = 0; i < count; i++) {
+            putFloat(pChunk.values[i], i, count);
+        }
+        writeColumn(4 * count);
+
+        finishChunk();
+    }
+
+    private void startChunk(ExportChunkType pType, int pCount){
+        chunkBuffer.clear();
+        chunkBuffer.put((byte) pType.ordinal());
+        chunkBuffer.putInt(pCount);
+    }
+
+    /**
+     * The writeVarLong method writes the zigzag encoded difference in groups of 7 bits, lowest group first.
+     * The highest bit of each byte shows whether another byte follows.
+     * @return int: The position after the written bytes.
+     */
+    private int writeVarLong(long pDelta, int pPosition){
+        long value = (pDelta << 1) ^ (pDelta >> 63);
+        while((value & ~0x7FL) != 0){
+            column[pPosition++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        column[pPosition++] = (byte) value;
+        return pPosition;
+    }
+
+    /**
+     * The putFloat method writes the four bytes of value pIndex into the four byte planes of a float column.
+     */
+    private void putFloat(float pValue, int pIndex, int pCount){
+        int bits = Float.floatToRawIntBits(pValue);
+        column[pIndex] = (byte) bits;
+        column[pCount + pIndex] = (byte) (bits >>> 8);
+        column[2 * pCount + pIndex] = (byte) (bits >>> 16);
+        column[3 * pCount + pIndex] = (byte) (bits >>> 24);
+    }
+
+    /**
+     * The writeColumn method compresses the first pLength bytes of the column array into the chunk.
+     */
+    private void writeColumn(int pLength){
+        ensureChunkCapacity(ExportChunkType.COLUMN_HEADER_SIZE + pLength / 2);
+        int lengthPosition = chunkBuffer.position();
+        chunkBuffer.putInt(pLength);
+        chunkBuffer.putInt(0);
+        int start = chunkBuffer.position();
+
+        deflater.reset();
+        deflater.setInput(column, 0, pLength);
+        deflater.finish();
+        while(!deflater.finished()){
+            if(!chunkBuffer.hasRemaining()){
+                ensureChunkCapacity(chunkBuffer.capacity());
+            }
+            int written = deflater.deflate(chunkBuffer.array(), chunkBuffer.arrayOffset() + chunkBuffer.position(),
+                    chunkBuffer.remaining());
+            chunkBuffer.position(chunkBuffer.position() + written);
+        }
+        chunkBuffer.putInt(lengthPosition + 4, chunkBuffer.position() - start);
+    }
+
+    private void ensureChunkCapacity(int pRemaining){
+        if(chunkBuffer.remaining() < pRemaining){
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * chunkBuffer.capacity(), chunkBuffer.position() + pRemaining))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            chunkBuffer.flip();
+            larger.put(chunkBuffer);
+            chunkBuffer = larger;
+        }
+    }
+
+    private void finishChunk() throws IOException {
+        chunkBuffer.flip();
+        bytesWritten += write(chunkBuffer);
+    }
+
+    private int write(ByteBuffer pBuffer) throws IOException {
+        int length = pBuffer.remaining();
+        while(pBuffer.hasRemaining()){
+            channel.write(pBuffer);
+        }
+        return length;
+    }
+
+    public File getFile(){
+        return file;
+    }
+
+    public long getSampleCount(){
+        return sampleCount;
+    }
+
+    public long getStepCount(){
+        return stepCount;
+    }
+
+    /**
+     * @return long: The number of records not exported because no chunk was free
+     * (or the thread was interrupted while waiting for one).
+     */
+    public long getDroppedSamples(){
+        return droppedSamples;
+    }
+
+    /**
+     * @return long: The number of bytes of all chunks written so far, without the header.
+     */
+    public long getBytesWritten(){
+        return bytesWritten;
+    }
+}
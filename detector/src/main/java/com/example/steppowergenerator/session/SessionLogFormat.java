@@ -0,0 +1,29 @@
+package com.example.steppowergenerator.session;
+
+/**
+ The SessionLogFormat enum contains the record formats of a session log file.
+ <p>
+ Every file starts with a header of 24 bytes (little endian):
+ magic number (int), version (byte), format ordinal (byte), two unused bytes,
+ the offset between Unix time and sensor timestamps in milliseconds (long)
+ and the walking threshold of the StepDetector at the start of the measurement (double).
+ Files of version 1 have a header of 16 bytes without the walking threshold; they were recorded
+ with StepDetector.WALKINGTHRESHOLD.
+ <p>
+ FIXED records are 20 bytes: the timestamp in nanoseconds (long) and x, y and z (float).
+ Record n can therefore be found directly at byte 24 + 20 * n.
+ COMPACT records store the difference to the previous timestamp as zigzag varint
+ (usually 4 bytes at normal sensor rates) followed by x, y and z, about 16 bytes in total.
+ */
+public enum SessionLogFormat {
+        FIXED,
+        COMPACT;
+
+        static final int MAGIC = 0x4C475053; // "SPGL"
+        static final byte VERSION = 2;
+        static final int HEADER_SIZE = 24;
+        static final int VERSION_1_HEADER_SIZE = 16;
+        static final int FIXED_RECORD_SIZE = 20;
+        // 10 Bytes für den längsten varint und 12 Bytes für x, y und z
+        static final int MAX_RECORD_SIZE = 22;
+}
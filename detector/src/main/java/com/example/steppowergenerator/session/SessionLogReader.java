@@ -0,0 +1,166 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.StepDetector;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ The SessionLogReader class reads a session log file written by the SessionRecorder.
+ The file is memory-mapped, so the records are streamed from the page cache
+ without copying them into the Java heap.
+ */
+public class SessionLogReader implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final SessionLogFormat format;
+    private final long timeOffsetToUnix;
+    private final double walkingThreshold;
+    private final int headerSize;
+
+    /**
+     * Class constructor.
+     * Maps the file and reads the header.
+     * @param pFile The session log file
+     * @throws IOException If the file cannot be read or is not a session log.
+     */
+    public SessionLogReader(File pFile) throws IOException {
+        // RandomAccessFile statt FileChannel.open, das erst ab API 26 verfügbar ist
+        channel = new RandomAccessFile(pFile, "r").getChannel();
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if(buffer.remaining() < SessionLogFormat.VERSION_1_HEADER_SIZE || buffer.getInt() != SessionLogFormat.MAGIC){
+                throw new IOException("Not a session log: " + pFile);
+            }
+            byte version = buffer.get();
+            if(version != 1 && version != SessionLogFormat.VERSION){
+                throw new IOException("Unsupported session log version " + version + ": " + pFile);
+            }
+            // Version 1 enthält noch keine Gehschwelle
+            headerSize = version == 1 ? SessionLogFormat.VERSION_1_HEADER_SIZE : SessionLogFormat.HEADER_SIZE;
+            if(buffer.limit() < headerSize){
+                throw new IOException("Not a session log: " + pFile);
+            }
+            int formatOrdinal = buffer.get();
+            if(formatOrdinal < 0 || formatOrdinal >= SessionLogFormat.values().length){
+                throw new IOException("Unknown record format " + formatOrdinal + ": " + pFile);
+            }
+            format = SessionLogFormat.values()[formatOrdinal];
+            buffer.getShort();
+            timeOffsetToUnix = buffer.getLong();
+            walkingThreshold = version == 1 ? StepDetector.WALKINGTHRESHOLD : buffer.getDouble();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public SessionLogFormat getFormat(){
+        return format;
+    }
+
+    public long getTimeOffsetToUnix(){
+        return timeOffsetToUnix;
+    }
+
+    public double getWalkingThreshold(){
+        return walkingThreshold;
+    }
+
+    /**
+     * The read method passes all complete records in the file to pConsumer, in the order they were written.
+     * It can be called several times.
+     * @param pConsumer Receives the records
+     * @return long: The number of records read.
+     */
+    public long read(SampleConsumer pConsumer){
+        int position = headerSize;
+        int limit = buffer.limit();
+        long previousTime = 0;
+        long count = 0;
+
+        while(true){
+            long time;
+            if(format == SessionLogFormat.FIXED){
+                if(limit - position < SessionLogFormat.FIXED_RECORD_SIZE){
+                    break;
+                }
+                time = buffer.getLong(position);
+                position += 8;
+            } else {
+                long value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    if(position >= limit || shift > 63){
+                        return count;
+                    }
+                    b = buffer.get(position++);
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while((b & 0x80) != 0);
+                if(limit - position < 12){
+                    break;
+                }
+                time = previousTime + ((value >>> 1) ^ -(value & 1));
+            }
+            float x = buffer.getFloat(position);
+            float y = buffer.getFloat(position + 4);
+            float z = buffer.getFloat(position + 8);
+            position += 12;
+
+            pConsumer.accept(time, x, y, z);
+            previousTime = time;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The replayInto method streams all records into a StepDetector. To count the same steps as during
+     * the measurement, set the walking threshold of the StepDetector to getWalkingThreshold first.
+     * @param pStepDetector The StepDetector
+     * @return long: The number of records read.
+     */
+    public long replayInto(final StepDetector pStepDetector){
+        return read(new SampleConsumer() {
+            @Override
+            public void accept(long timestampNs, float x, float y, float z) {
+                pStepDetector.addSample(timestampNs, x, y, z);
+            }
+        });
+    }
+
+    /**
+     * The toRecordedSession method copies all records into a RecordedSession,
+     * for example to process it with the SessionReplayEngine.
+     * @return RecordedSession: The session with all records of the file.
+     */
+    public RecordedSession toRecordedSession(){
+        final RecordedSession session = new RecordedSession(timeOffsetToUnix, walkingThreshold);
+        read(new SampleConsumer() {
+            @Override
+            public void accept(long timestampNs, float x, float y, float z) {
+                session.add(timestampNs, x, y, z);
+            }
+        });
+        return session;
+    }
+
+    /**
+     * The close method closes the file. The mapping itself is released by the garbage collector.
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
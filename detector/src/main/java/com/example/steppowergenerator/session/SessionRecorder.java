@@ -0,0 +1,145 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.StepDetector;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ The SessionRecorder class writes the raw records of a measurement to a session log file
+ (see SessionLogFormat). Records are collected in a fixed direct buffer and written through a
+ FileChannel whenever it is full, so the memory used stays the same no matter how long the session is.
+ Records in the buffer which have not been written yet are lost if the process dies;
+ the SessionLogReader ignores an incomplete last record.
+ */
+public class SessionRecorder implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final SessionLogFormat format;
+    private final File file;
+
+    private long previousTime;
+    private long recordCount;
+
+    /**
+     * Class constructor.
+     * Creates (or overwrites) the file and writes the header with StepDetector.WALKINGTHRESHOLD.
+     * @param pFile The session log file
+     * @param pFormat Record format
+     * @param pTimeOffsetToUnix Offset between Unix time and sensor timestamps in milliseconds
+     * @throws IOException If the file cannot be created.
+     */
+    public SessionRecorder(File pFile, SessionLogFormat pFormat, long pTimeOffsetToUnix) throws IOException {
+        this(pFile, pFormat, pTimeOffsetToUnix, StepDetector.WALKINGTHRESHOLD);
+    }
+
+    /**
+     * Class constructor.
+     * Creates (or overwrites) the file and writes the header.
+     * @param pFile The session log file
+     * @param pFormat Record format
+     * @param pTimeOffsetToUnix Offset between Unix time and sensor timestamps in milliseconds
+     * @param pWalkingThreshold The walking threshold of the StepDetector, so the session is replayed with it.
+     * @throws IOException If the file cannot be created.
+     */
+    public SessionRecorder(File pFile, SessionLogFormat pFormat, long pTimeOffsetToUnix, double pWalkingThreshold)
+            throws IOException {
+        file = pFile;
+        format = pFormat;
+        // RandomAccessFile statt FileChannel.open, das erst ab API 26 verfügbar ist
+        RandomAccessFile randomAccessFile = new RandomAccessFile(pFile, "rw");
+        try {
+            randomAccessFile.setLength(0);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+        channel = randomAccessFile.getChannel();
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(SessionLogFormat.MAGIC);
+        buffer.put(SessionLogFormat.VERSION);
+        buffer.put((byte) pFormat.ordinal());
+        buffer.putShort((short) 0);
+        buffer.putLong(pTimeOffsetToUnix);
+        buffer.putDouble(pWalkingThreshold);
+    }
+
+    /**
+     * The append method adds a record. It is only written to the file when the buffer is full.
+     * @param pTime Timestamp of the record (nanoseconds since device start)
+     * @param pX Acceleration in x direction
+     * @param pY Acceleration in y direction
+     * @param pZ Acceleration in z direction
+     * @throws IOException If the buffer could not be written.
+     */
+    public void append(long pTime, float pX, float pY, float pZ) throws IOException {
+        if(buffer.remaining() < SessionLogFormat.MAX_RECORD_SIZE){
+            flush();
+        }
+        if(format == SessionLogFormat.FIXED){
+            buffer.putLong(pTime);
+        } else {
+            long delta = pTime - previousTime;
+            writeVarLong((delta << 1) ^ (delta >> 63));
+        }
+        buffer.putFloat(pX);
+        buffer.putFloat(pY);
+        buffer.putFloat(pZ);
+        previousTime = pTime;
+        recordCount++;
+    }
+
+    /**
+     * The writeVarLong method writes an unsigned value in groups of 7 bits, lowest group first.
+     * The highest bit of each byte shows whether another byte follows.
+     */
+    private void writeVarLong(long pValue){
+        while((pValue & ~0x7FL) != 0){
+            buffer.put((byte) ((pValue & 0x7F) | 0x80));
+            pValue >>>= 7;
+        }
+        buffer.put((byte) pValue);
+    }
+
+    /**
+     * The flush method writes all buffered records to the file.
+     * @throws IOException If the records could not be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * The close method writes all buffered records and closes the file.
+     * @throws IOException If the records could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    public File getFile(){
+        return file;
+    }
+
+    public long getRecordCount(){
+        return recordCount;
+    }
+}
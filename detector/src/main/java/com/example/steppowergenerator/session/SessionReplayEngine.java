@@ -0,0 +1,170 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.DetectionMode;
+import com.example.steppowergenerator.StepDetector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ The SessionReplayEngine class processes recorded sessions again with the StepDetector
+ (DetectionMode.STREAMING), for example after the thresholds have changed.
+ Long sessions are split into parts which are processed in parallel in a ForkJoinPool.
+ Every part uses the walking threshold the session was recorded with (see RecordedSession.getWalkingThreshold).
+ A session is only split in a quiet period: between two records above this threshold that are
+ at least 400 milliseconds apart. At such a point a new StepDetector is in exactly the same
+ state as the one that has processed everything before, so the combined result is identical
+ to processing the whole session in one go.
+ */
+public class SessionReplayEngine {
+
+    private static final int DEFAULT_MIN_PART_SIZE = 8192;
+
+    private final ForkJoinPool pool;
+    private final int minPartSize;
+
+    /**
+     * Class constructor.
+     * Uses the common ForkJoinPool and parts of at least 8192 records.
+     */
+    public SessionReplayEngine(){
+        this(ForkJoinPool.commonPool(), DEFAULT_MIN_PART_SIZE);
+    }
+
+    /**
+     * Class constructor.
+     * @param pPool The pool in which the parts are processed.
+     * @param pMinPartSize Sessions or parts with fewer records are not split any further.
+     */
+    public SessionReplayEngine(ForkJoinPool pPool, int pMinPartSize){
+        if(pMinPartSize < 2){
+            throw new IllegalArgumentException("Minimum part size must be at least 2: " + pMinPartSize);
+        }
+        pool = pPool;
+        minPartSize = pMinPartSize;
+    }
+
+    /**
+     * The replay method processes one session in parallel.
+     * @param pSession The recorded session
+     * @return ReplayResult: All recognized steps in chronological order.
+     */
+    public ReplayResult replay(RecordedSession pSession){
+        return pool.invoke(new ReplayTask(pSession, 0, pSession.size(), minPartSize));
+    }
+
+    /**
+     * The replayAll method processes several sessions. The sessions and their parts
+     * are all processed in parallel in the same pool.
+     * @param pSessions The recorded sessions
+     * @return List: One ReplayResult per session, in the same order.
+     */
+    public List<ReplayResult> replayAll(final List<RecordedSession> pSessions){
+        return pool.invoke(new RecursiveTask<List<ReplayResult>>() {
+            @Override
+            protected List<ReplayResult> compute() {
+                List<ReplayTask> tasks = new ArrayList<>(pSessions.size());
+                for (RecordedSession session : pSessions) {
+                    tasks.add(new ReplayTask(session, 0, session.size(), minPartSize));
+                }
+                ForkJoinTask.invokeAll(tasks);
+
+                List<ReplayResult> results = new ArrayList<>(tasks.size());
+                for (ReplayTask task : tasks) {
+                    results.add(task.join());
+                }
+                return results;
+            }
+        });
+    }
+
+    /**
+     * The replaySequential method processes a session in the calling thread without splitting it.
+     * @param pSession The recorded session
+     * @return ReplayResult: All recognized steps in chronological order.
+     */
+    public static ReplayResult replaySequential(RecordedSession pSession){
+        return replayPart(pSession, 0, pSession.size());
+    }
+
+    /**
+     * The replayPart method processes the records from pFrom (inclusive) to pTo (exclusive)
+     * with a new StepDetector.
+     */
+    private static ReplayResult replayPart(RecordedSession pSession, int pFrom, int pTo){
+        ReplayResult result = new ReplayResult();
+        StepDetector stepDetector = new StepDetector(DetectionMode.STREAMING, new ReplayClock(pSession.getTimeOffsetToUnix()));
+        stepDetector.setWalkingThreshold(pSession.getWalkingThreshold());
+        stepDetector.registerStepListener(result);
+        for (int i = pFrom; i < pTo; i++) {
+            stepDetector.addSample(pSession.getTime(i), pSession.getX(i), pSession.getY(i), pSession.getZ(i));
+        }
+        return result;
+    }
+
+    /**
+     * The findSplitIndex method searches from pMid towards pTo for a quiet period and returns
+     * the index at which the second part starts. This is the second record after the last record
+     * above the walking threshold of the session, so the first part still contains the record which ends the high point.
+     * @return int: The split index, or -1 if there is no quiet period after pMid.
+     */
+    static int findSplitIndex(RecordedSession pSession, int pMid, int pTo){
+        int lastAboveIndex = -1;
+        for (int i = pMid; i < pTo; i++) {
+            if(isAboveThreshold(pSession, i)){
+                if(lastAboveIndex >= 0 && i > lastAboveIndex + 1
+                        && pSession.getTime(i) - pSession.getTime(lastAboveIndex) >= StepDetector.NEAR_HIGH_POINT_NS){
+                    return lastAboveIndex + 2;
+                }
+                lastAboveIndex = i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isAboveThreshold(RecordedSession pSession, int pIndex){
+        return StepDetector.calculateValue(pSession.getX(pIndex), pSession.getY(pIndex), pSession.getZ(pIndex))
+                > pSession.getWalkingThreshold();
+    }
+
+    /**
+     * Processes the records from "from" to "to" of a session, split in two at a quiet period if possible.
+     */
+    private static class ReplayTask extends RecursiveTask<ReplayResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RecordedSession session;
+        private final int from;
+        private final int to;
+        private final int minPartSize;
+
+        ReplayTask(RecordedSession pSession, int pFrom, int pTo, int pMinPartSize) {
+            session = pSession;
+            from = pFrom;
+            to = pTo;
+            minPartSize = pMinPartSize;
+        }
+
+        @Override
+        protected ReplayResult compute() {
+            if(to - from >= 2 * minPartSize){
+                int splitIndex = findSplitIndex(session, from + (to - from) / 2, to);
+                if(splitIndex < 0){
+                    splitIndex = findSplitIndex(session, from, to);
+                }
+                if(splitIndex > 0){
+                    ReplayTask second = new ReplayTask(session, splitIndex, to, minPartSize);
+                    second.fork();
+                    ReplayResult result = new ReplayTask(session, from, splitIndex, minPartSize).compute();
+                    result.addAll(second.join());
+                    return result;
+                }
+            }
+            return replayPart(session, from, to);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.steppowergenerator;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the Biquad filters and the AccelerationFilter stage of the StepDetector.
+ */
+public class AccelerationFilterTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void lowPassKeepsAndHighPassRemovesConstantSignal() {
+        Biquad lowPass = new Biquad();
+        lowPass.setLowPass(50, 8, Math.sqrt(0.5));
+        Biquad highPass = new Biquad();
+        highPass.setHighPass(50, 0.5, Math.sqrt(0.5));
+
+        double lowPassOutput = 0;
+        double highPassOutput = 0;
+        for (int i = 0; i < 1000; i++) {
+            lowPassOutput = lowPass.process(9.81);
+            highPassOutput = highPass.process(9.81);
+        }
+        assertEquals(9.81, lowPassOutput, 1e-6);
+        assertEquals(0, highPassOutput, 1e-6);
+    }
+
+    @Test
+    public void blocksGiveSameResultAsSingleValues() {
+        Random random = new Random(1);
+        float[] block = new float[100];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = (float) (9.81 + random.nextGaussian());
+        }
+        Biquad single = new Biquad();
+        single.setHighPass(50, 0.5, Math.sqrt(0.5));
+        float[] expected = new float[block.length];
+        for (int i = 0; i < block.length; i++) {
+            expected[i] = (float) single.process(block[i]);
+        }
+
+        Biquad blockwise = new Biquad();
+        blockwise.setHighPass(50, 0.5, Math.sqrt(0.5));
+        blockwise.process(block, 0, 25);
+        blockwise.process(block, 25, 75);
+
+        assertArrayEquals(expected, block, 0f);
+    }
+
+    @Test
+    public void gravityRemovalStartsWithoutTransient() {
+        AccelerationFilter filter = new AccelerationFilter(FilterMode.GRAVITY_REMOVAL);
+
+        // device lying tilted, gravity spread over all axes
+        for (int i = 0; i < 100; i++) {
+            filter.filter(i * 20 * MS, 5.66f, 5.66f, 5.66f);
+            assertEquals(0, filter.getX(), 1e-3);
+            assertEquals(0, filter.getY(), 1e-3);
+            assertEquals(0, filter.getZ(), 1e-3);
+        }
+    }
+
+    @Test
+    public void bandPassSuppressesSingleNoiseSpike() {
+        assertEquals(1, countSteps(FilterMode.NONE));
+        assertEquals(0, countSteps(FilterMode.BAND_PASS));
+    }
+
+    /**
+     * Feeds one second at gravity, a single record spike to 18.81 and another second at gravity.
+     */
+    private static int countSteps(FilterMode pFilterMode) {
+        final int[] steps = new int[1];
+        StepDetector stepDetector = new StepDetector(DetectionMode.STREAMING, new TestClock());
+        stepDetector.setFilterMode(pFilterMode);
+        stepDetector.registerStepListener(new StepListener() {
+            @Override
+            public void step(AccelerationData accelerationData, StepType stepType) {
+                steps[0]++;
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            stepDetector.addSample(i * 20 * MS, 0, i == 50 ? 18.81f : 9.81f, 0);
+        }
+        return steps[0];
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.steppowergenerator;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit and stress tests for the ConcurrentStepDetector, its SampleQueue and its StepListenerList.
+ */
+public class ConcurrentStepDetectorTest {
+
+    private static final long MS = 1000000L;
+    private static final long UNIX_AT_BOOT = 1600000000000L;
+    // one peak every 25 records of 20 ms, i.e. one step every 500 ms
+    private static final int RECORDS_PER_STEP = 25;
+
+    private static final Clock CLOCK = new TestClock(UNIX_AT_BOOT);
+
+    @Test
+    public void queueWrapsAroundAndRejectsWhenFull() {
+        SampleQueue queue = new SampleQueue(6);
+        assertEquals(8, queue.capacity());
+        StepDetector stepDetector = new StepDetector(DetectionMode.STREAMING, CLOCK);
+        StepCollector steps = new StepCollector();
+        stepDetector.registerStepListener(steps);
+
+        int added = 0;
+        while (queue.offer(added * 20 * MS, 0, added % RECORDS_PER_STEP == 5 ? 20f : 9.81f, 0)) {
+            added++;
+        }
+        assertEquals(8, added);
+        assertEquals(3, queue.drainTo(stepDetector, 3));
+        assertEquals(5, queue.size());
+        // the remaining records wrap around the end of the arrays
+        for (int i = 0; i < 3; i++, added++) {
+            assertTrue(queue.offer(added * 20 * MS, 0, 9.81f, 0));
+        }
+        assertFalse(queue.offer(0, 0, 0, 0));
+        assertEquals(8, queue.drainTo(stepDetector, 100));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.drainTo(stepDetector, 100));
+        assertEquals(1, steps.count.get());
+    }
+
+    @Test
+    public void recordsAddedAfterStopAreDiscardedOnStart() throws InterruptedException {
+        ConcurrentStepDetector detector = new ConcurrentStepDetector(DetectionMode.STREAMING, CLOCK, 64);
+        StepCollector steps = new StepCollector();
+        detector.addStepListener(steps);
+        detector.start();
+        addSteps(detector, 0, 2);
+        detector.stop();
+        assertEquals(2, steps.count.get());
+
+        // nach stop, gehören zu keiner Messung
+        addSteps(detector, 2, 1);
+        assertEquals(RECORDS_PER_STEP, detector.getQueuedSamples());
+
+        detector.start();
+        assertEquals(0, detector.getQueuedSamples());
+        addSteps(detector, 10, 1);
+        detector.stop();
+        assertEquals(3, steps.count.get());
+    }
+
+    @Test
+    public void listenerListCopiesOnWrite() {
+        StepListenerList listeners = new StepListenerList();
+        StepCollector first = new StepCollector();
+        StepCollector second = new StepCollector();
+        listeners.add(first);
+        listeners.add(second);
+        listeners.step(step(0), StepType.WALKING);
+        assertTrue(listeners.remove(first));
+        assertFalse(listeners.remove(first));
+        listeners.step(step(500), StepType.WALKING);
+
+        assertEquals(1, first.count.get());
+        assertEquals(2, second.count.get());
+        assertEquals(1, listeners.size());
+    }
+
+    @Test
+    public void stressStreaming() throws Exception {
+        stress(DetectionMode.STREAMING, 5000000);
+    }
+
+    @Test
+    public void stressBatch() throws Exception {
+        stress(DetectionMode.BATCH, 2500000);
+    }
+
+    /**
+     * Adds pRecords synthetic records on a producer thread through a small queue, while a third thread keeps
+     * adding and removing a listener. Both permanent listeners must receive every step exactly once, in order.
+     */
+    private void stress(DetectionMode pDetectionMode, final int pRecords) throws Exception {
+        final ConcurrentStepDetector detector = new ConcurrentStepDetector(pDetectionMode, CLOCK, 1024);
+        StepCollector first = new StepCollector();
+        StepCollector second = new StepCollector();
+        detector.addStepListener(first);
+        detector.start();
+
+        final AtomicBoolean producing = new AtomicBoolean(true);
+        final AtomicLong fullQueue = new AtomicLong();
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < pRecords; i++) {
+                    float y = i % RECORDS_PER_STEP == 5 ? 20f : 9.81f;
+                    while (!detector.addSample(i * 20 * MS, 0, y, 0)) {
+                        fullQueue.incrementAndGet();
+                        Thread.yield();
+                    }
+                }
+                producing.set(false);
+            }
+        }, "Producer");
+        Thread subscriber = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                StepCollector temporary = new StepCollector();
+                while (producing.get()) {
+                    detector.addStepListener(temporary);
+                    Thread.yield();
+                    assertTrue(detector.removeStepListener(temporary));
+                }
+            }
+        }, "Subscriber");
+        detector.addStepListener(second);
+        // the second listener is added before the first record, so it must see every step as well
+        producer.start();
+        subscriber.start();
+        producer.join();
+        subscriber.join();
+        detector.stop();
+
+        long expectedSteps = (pRecords - 6) / RECORDS_PER_STEP + 1;
+        for (StepCollector collector : new StepCollector[]{first, second}) {
+            assertNull(collector.error, collector.error);
+            assertEquals(pDetectionMode + " steps", expectedSteps, collector.count.get());
+        }
+        assertEquals(fullQueue.get(), detector.getDroppedSamples());
+        assertEquals(0, detector.getQueuedSamples());
+        assertFalse(detector.isRunning());
+    }
+
+    /**
+     * Adds the records of pCount steps, starting with step number pFirstStep.
+     */
+    private static void addSteps(ConcurrentStepDetector pDetector, int pFirstStep, int pCount) {
+        for (int i = pFirstStep * RECORDS_PER_STEP; i < (pFirstStep + pCount) * RECORDS_PER_STEP; i++) {
+            assertTrue(pDetector.addSample(i * 20 * MS, 0, i % RECORDS_PER_STEP == 5 ? 20f : 9.81f, 0));
+        }
+    }
+
+    private static AccelerationData step(long pTime) {
+        AccelerationData accelerationData = new AccelerationData();
+        accelerationData.setTime(pTime);
+        return accelerationData;
+    }
+
+    /**
+     * Counts the steps and checks that each one is exactly one step interval (500 ms) after the previous one.
+     */
+    private static class StepCollector implements StepListener {
+
+        final AtomicLong count = new AtomicLong();
+        volatile String error;
+        private long lastTime = -1;
+
+        @Override
+        public void step(AccelerationData accelerationData, StepType stepType) {
+            long time = accelerationData.getTime();
+            if (lastTime >= 0 && time != lastTime + RECORDS_PER_STEP * 20 && error == null) {
+                error = "Step at " + time + " after " + lastTime;
+            }
+            lastTime = time;
+            count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.steppowergenerator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the plumbing of the HardwareStepSource on the reference traces: event timestamps, step counter
+ * deltas and their interpolation, Unix time conversion and step types. This is not a cross-validation of
+ * a real step sensor: the hardware events are simulated from the steps of the StepDetector
+ * (DetectionMode.STREAMING) itself, every step delayed by 50 to 250 ms for a step detector and the total
+ * every 2 seconds for a step counter, so detection differences can never show up here.
+ * Both sequences are matched step by step in time order (see compare): every simulated step must come out of
+ * the HardwareStepSource within the tolerance, without additional steps. The agreement of the step types is
+ * only checked for walking, where the cadence and the peak of a step belong to the same type; on the faster
+ * traces the StepDetector suppresses peaks less than 400 ms apart, so the cadence of its steps is not the
+ * cadence of the runner. Recorded events of a real step sensor, once available, can be compared with compare.
+ */
+@RunWith(Parameterized.class)
+public class HardwareStepSourcePlumbingTest {
+
+    private static final long MS = 1000000L;
+    private static final long UNIX_AT_BOOT = 1600000000000L;
+    private static final long COUNTER_BATCH_NS = 2000 * MS;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{{"walking_50hz"}, {"jogging_50hz"}, {"running_50hz"}});
+    }
+
+    private final String trace;
+
+    public HardwareStepSourcePlumbingTest(String pTrace) {
+        trace = pTrace;
+    }
+
+    @Test
+    public void simulatedStepDetectorEventsPassThrough() throws IOException {
+        StepSequence reference = detectReference();
+        Random random = new Random(trace.hashCode());
+        StepSequence hardware = new StepSequence();
+        HardwareStepSource stepSource = createStepSource(hardware);
+        for (int i = 0; i < reference.size(); i++) {
+            stepSource.addStepEvent(toTimestampNs(reference.times.get(i)) + (50 + random.nextInt(201)) * MS);
+        }
+
+        Comparison comparison = compare(reference, hardware, 300);
+        assertEquals(trace, reference.size(), comparison.matched);
+        assertEquals(trace, 0, comparison.extra);
+        assertTrue(trace + ": " + comparison, comparison.meanOffsetMs >= 50 && comparison.meanOffsetMs <= 250);
+        if (trace.startsWith("walking")) {
+            assertTrue(trace + ": " + comparison, comparison.getTypeAgreement() >= 0.9);
+        }
+    }
+
+    @Test
+    public void simulatedStepCounterEventsPassThrough() throws IOException {
+        StepSequence reference = detectReference();
+        StepSequence hardware = new StepSequence();
+        HardwareStepSource stepSource = createStepSource(hardware);
+        long endNs = toTimestampNs(reference.times.get(reference.size() - 1)) + COUNTER_BATCH_NS;
+        int counted = 0;
+        for (long timestampNs = 0; timestampNs <= endNs; timestampNs += COUNTER_BATCH_NS) {
+            while (counted < reference.size() && toTimestampNs(reference.times.get(counted)) <= timestampNs) {
+                counted++;
+            }
+            stepSource.addStepCount(timestampNs, 1000 + counted);
+        }
+
+        // the counter only knows the number of steps per batch, their times are interpolated
+        Comparison comparison = compare(reference, hardware, COUNTER_BATCH_NS / MS);
+        assertEquals(trace, reference.size(), hardware.size());
+        assertEquals(trace, reference.size(), comparison.matched);
+        assertTrue(trace + ": " + comparison, Math.abs(comparison.meanOffsetMs) < 1000);
+    }
+
+    private StepSequence detectReference() throws IOException {
+        StepSequence reference = new StepSequence();
+        for (String line : StepDetectorRegressionTest.detect(trace, DetectionMode.STREAMING)) {
+            String[] columns = line.split(",");
+            reference.add(Long.parseLong(columns[0]), StepType.valueOf(columns[2]));
+        }
+        assertTrue(reference.size() > 10);
+        return reference;
+    }
+
+    private static long toTimestampNs(long pUnixTime) {
+        return (pUnixTime - UNIX_AT_BOOT) * MS;
+    }
+
+    private static HardwareStepSource createStepSource(final StepSequence pSteps) {
+        HardwareStepSource stepSource = new HardwareStepSource(new TestClock(UNIX_AT_BOOT));
+        stepSource.registerStepListener(new StepListener() {
+            @Override
+            public void step(AccelerationData accelerationData, StepType stepType) {
+                pSteps.add(accelerationData.getTime(), stepType);
+            }
+        });
+        return stepSource;
+    }
+
+    /**
+     * Matches two step sequences in time order: a step of pActual belongs to the next unmatched reference step
+     * if it is at most pToleranceMs away; reference steps it has passed are missed, unmatched steps are extra.
+     */
+    static Comparison compare(StepSequence pReference, StepSequence pActual, long pToleranceMs) {
+        Comparison comparison = new Comparison();
+        long offsetSumMs = 0;
+        int r = 0;
+        for (int a = 0; a < pActual.size(); a++) {
+            long time = pActual.times.get(a);
+            while (r < pReference.size() && pReference.times.get(r) < time - pToleranceMs) {
+                comparison.missed++;
+                r++;
+            }
+            if (r < pReference.size() && pReference.times.get(r) <= time + pToleranceMs) {
+                comparison.matched++;
+                offsetSumMs += time - pReference.times.get(r);
+                if (pReference.types.get(r) == pActual.types.get(a)) {
+                    comparison.sameType++;
+                }
+                r++;
+            } else {
+                comparison.extra++;
+            }
+        }
+        comparison.missed += pReference.size() - r;
+        comparison.meanOffsetMs = comparison.matched > 0 ? (double) offsetSumMs / comparison.matched : 0;
+        return comparison;
+    }
+
+    static class StepSequence {
+        final List<Long> times = new ArrayList<>();
+        final List<StepType> types = new ArrayList<>();
+
+        void add(long pTime, StepType pStepType) {
+            times.add(pTime);
+            types.add(pStepType);
+        }
+
+        int size() {
+            return times.size();
+        }
+    }
+
+    static class Comparison {
+        int matched;
+        int missed;
+        int extra;
+        int sameType;
+        double meanOffsetMs;
+
+        double getTypeAgreement() {
+            return matched > 0 ? (double) sameType / matched : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "matched " + matched + ", missed " + missed + ", extra " + extra
+                    + ", mean offset " + meanOffsetMs + " ms, type agreement " + getTypeAgreement();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.steppowergenerator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the HardwareStepSource and the selection of the StepSource.
+ */
+public class HardwareStepSourceTest {
+
+    private static final long MS = 1000000L;
+    private static final long UNIX_AT_BOOT = 1600000000000L;
+
+    private HardwareStepSource stepSource;
+    private final List<Long> times = new ArrayList<>();
+    private final List<StepType> types = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        stepSource = new HardwareStepSource(new TestClock(UNIX_AT_BOOT));
+        stepSource.registerStepListener(new StepListener() {
+            @Override
+            public void step(AccelerationData accelerationData, StepType stepType) {
+                assertTrue(Double.isNaN(accelerationData.getValue()));
+                times.add(accelerationData.getTime());
+                types.add(stepType);
+            }
+        });
+    }
+
+    @Test
+    public void reportsEveryStepEvent() {
+        for (int i = 0; i < 8; i++) {
+            stepSource.addStepEvent((1000 + i * 550) * MS);
+        }
+
+        assertEquals(8, times.size());
+        assertEquals(UNIX_AT_BOOT + 1000, (long) times.get(0));
+        assertEquals(UNIX_AT_BOOT + 1550, (long) times.get(1));
+        assertEquals(StepType.WALKING, types.get(7));
+    }
+
+    @Test
+    public void spreadsCountedStepsOverInterval() {
+        stepSource.addStepCount(1000 * MS, 5000); // initial count, no steps
+        stepSource.addStepCount(3000 * MS, 5005);
+
+        assertEquals(5, times.size());
+        assertEquals(UNIX_AT_BOOT + 1400, (long) times.get(0));
+        assertEquals(UNIX_AT_BOOT + 3000, (long) times.get(4));
+        // 2.5 steps per second
+        assertEquals(StepType.JOGGING, types.get(4));
+    }
+
+    @Test
+    public void limitsIntervalOfCountedStepsAfterPause() {
+        stepSource.addStepCount(0, 100);
+        stepSource.addStepCount(60000 * MS, 102);
+        stepSource.addStepCount(61000 * MS, 90); // counter restarted
+
+        assertEquals(2, times.size());
+        assertEquals(UNIX_AT_BOOT + 58000, (long) times.get(0));
+        assertEquals(UNIX_AT_BOOT + 60000, (long) times.get(1));
+
+        stepSource.resetSession();
+        stepSource.addStepCount(62000 * MS, 95);
+        assertEquals(2, times.size());
+    }
+
+    @Test
+    public void usesAngularRateOfGyroscope() {
+        // walking cadence, but the device rotates like when running
+        for (int i = 0; i < 250; i++) {
+            stepSource.addRotation(i * 20 * MS, 0, 5f, 0);
+        }
+        for (int i = 0; i < 8; i++) {
+            stepSource.addStepEvent((1000 + i * 600) * MS);
+        }
+        assertEquals(StepType.JOGGING, types.get(7));
+    }
+
+    @Test
+    public void hardwareStepsGetNominalEnergy() {
+        assertEquals(0.47, PowerHarvestingModel.getStepEnergy(Double.NaN, StepType.JOGGING), 1e-9);
+    }
+
+    @Test
+    public void selectsCheapestSource() {
+        SensorCapabilities all = new SensorCapabilities(true, true, true, true);
+        SensorCapabilities counterOnly = new SensorCapabilities(true, false, true, false);
+        SensorCapabilities accelerometerOnly = new SensorCapabilities(true, false, false, false);
+
+        assertEquals(StepSource.STEP_DETECTOR, StepSource.select(all, false));
+        assertEquals(StepSource.STEP_COUNTER, StepSource.select(all, true));
+        assertEquals(StepSource.STEP_COUNTER, StepSource.select(counterOnly, false));
+        assertEquals(StepSource.ACCELEROMETER, StepSource.select(accelerometerOnly, true));
+        assertNull(StepSource.select(new SensorCapabilities(false, false, false, true), false));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.steppowergenerator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the MagnitudeChartBuffer.
+ */
+public class MagnitudeChartBufferTest {
+
+    private static final long MS = 1000000L;
+    private static final int COLUMNS = 10;
+
+    private MagnitudeChartBuffer buffer;
+    private final float[] minValues = new float[COLUMNS];
+    private final float[] maxValues = new float[COLUMNS];
+    private final boolean[] minFirst = new boolean[COLUMNS];
+    private final float[] lastValues = new float[COLUMNS];
+    private final float[] peakValues = new float[COLUMNS];
+
+    @Before
+    public void setUp() {
+        // 10 columns of 100 ms
+        buffer = new MagnitudeChartBuffer(1000 * MS, COLUMNS);
+    }
+
+    @Test
+    public void keepsMinimumAndMaximumOfColumn() {
+        buffer.magnitude(1000 * MS, 10);
+        buffer.magnitude(1020 * MS, 25);
+        buffer.magnitude(1040 * MS, 5);
+        buffer.magnitude(1060 * MS, 12);
+
+        assertEquals(10, buffer.copyColumns(minValues, maxValues, minFirst, lastValues, peakValues));
+        int newest = COLUMNS - 1;
+        assertEquals(5, minValues[newest], 0);
+        assertEquals(25, maxValues[newest], 0);
+        assertFalse(minFirst[newest]);
+        assertEquals(12, lastValues[newest], 0);
+        assertTrue(Float.isNaN(minValues[newest - 1]));
+    }
+
+    @Test
+    public void windowMovesWithNewestRecord() {
+        for (int i = 0; i < 30; i++) {
+            buffer.magnitude((1000 + i * 50) * MS, i);
+        }
+        buffer.magnitude(1000 * MS, 100); // older than the window, ignored
+
+        assertEquals(24, buffer.copyColumns(minValues, maxValues, minFirst, lastValues, peakValues));
+        for (int i = 0; i < COLUMNS; i++) {
+            assertEquals(10 + 2 * i, minValues[i], 0);
+            assertEquals(11 + 2 * i, maxValues[i], 0);
+        }
+    }
+
+    @Test
+    public void marksStepInColumnOfPeak() {
+        AccelerationData accelerationData = new AccelerationData();
+        buffer.magnitude(1000 * MS, 20);
+        buffer.magnitude(1120 * MS, 18);
+        buffer.magnitude(1250 * MS, 12);
+        // erst gemeldet, wenn der Wert wieder unter der Schwelle liegt
+        accelerationData.setValue(20);
+        accelerationData.setTimestampNs(1000 * MS);
+        buffer.step(accelerationData, StepType.WALKING);
+
+        assertTrue(buffer.hasChanged());
+        buffer.copyColumns(minValues, maxValues, minFirst, lastValues, peakValues);
+        assertFalse(buffer.hasChanged());
+        assertEquals(20, peakValues[COLUMNS - 3], 0);
+        assertEquals(maxValues[COLUMNS - 3], peakValues[COLUMNS - 3], 0);
+        assertTrue(Float.isNaN(peakValues[COLUMNS - 1]));
+
+        accelerationData.setTimestampNs(0); // älter als das Fenster
+        buffer.step(accelerationData, StepType.WALKING);
+        buffer.copyColumns(minValues, maxValues, minFirst, lastValues, peakValues);
+        for (int i = 0; i < COLUMNS; i++) {
+            assertEquals(i == COLUMNS - 3, !Float.isNaN(peakValues[i]));
+        }
+    }
+
+    @Test
+    public void longPauseClearsAllColumns() {
+        buffer.magnitude(1000 * MS, 20);
+        buffer.magnitude(5000 * MS, 9);
+
+        buffer.copyColumns(minValues, maxValues, minFirst, lastValues, peakValues);
+        for (int i = 0; i < COLUMNS - 1; i++) {
+            assertTrue(Float.isNaN(maxValues[i]));
+        }
+        assertEquals(9, maxValues[COLUMNS - 1], 0);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.steppowergenerator;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the P2QuantileEstimator.
+ */
+public class P2QuantileEstimatorTest {
+
+    @Test
+    public void firstValuesAreExact() {
+        P2QuantileEstimator estimator = new P2QuantileEstimator(0.5);
+        assertTrue(Double.isNaN(estimator.getQuantile()));
+        estimator.add(3);
+        estimator.add(1);
+        estimator.add(Double.NaN);
+        estimator.add(2);
+        assertEquals(3, estimator.getCount());
+        assertEquals(2, estimator.getQuantile(), 0);
+    }
+
+    @Test
+    public void estimatesQuantilesOfSkewedStream() {
+        Random random = new Random(42);
+        double[] values = new double[20000];
+        P2QuantileEstimator lower = new P2QuantileEstimator(0.25);
+        P2QuantileEstimator median = new P2QuantileEstimator(0.5);
+        P2QuantileEstimator upper = new P2QuantileEstimator(0.9);
+        for (int i = 0; i < values.length; i++) {
+            // Schritte mit leichtem Gehen und einigen Sprints
+            values[i] = i % 5 == 0 ? 30 + 3 * random.nextGaussian() : 20 + 2 * random.nextGaussian();
+            lower.add(values[i]);
+            median.add(values[i]);
+            upper.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values[values.length / 4], lower.getQuantile(), 0.2);
+        assertEquals(values[values.length / 2], median.getQuantile(), 0.2);
+        assertEquals(values[values.length * 9 / 10], upper.getQuantile(), 0.5);
+    }
+
+    @Test
+    public void resetForgetsValues() {
+        P2QuantileEstimator estimator = new P2QuantileEstimator(0.25);
+        for (int i = 0; i < 100; i++) {
+            estimator.add(i);
+        }
+        estimator.reset();
+        estimator.add(7);
+        assertEquals(1, estimator.getCount());
+        assertEquals(7, estimator.getQuantile(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void quantileMustBeBetweenZeroAndOne() {
+        new P2QuantileEstimator(1);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.steppowergenerator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the PowerHarvestingModel and its PowerSeries.
+ */
+public class PowerHarvestingModelTest {
+
+    private static final double DELTA = 1e-6;
+    private static final long START = 1599999960000L; // start of a minute
+
+    private PowerHarvestingModel model;
+    private final AccelerationData accelerationData = new AccelerationData();
+
+    @Before
+    public void setUp() {
+        model = new PowerHarvestingModel();
+    }
+
+    @Test
+    public void stepEnergyGrowsWithPeakAndIsLimited() {
+        assertEquals(0.4542, PowerHarvestingModel.getStepEnergy(20, StepType.WALKING), DELTA);
+        assertTrue(PowerHarvestingModel.getStepEnergy(18, StepType.WALKING) < 0.4542);
+        assertEquals(0, PowerHarvestingModel.getStepEnergy(5, StepType.WALKING), DELTA);
+        assertEquals(2 * 0.51, PowerHarvestingModel.getStepEnergy(100, StepType.RUNNING), DELTA);
+    }
+
+    @Test
+    public void integratesEnergyAndPower() {
+        step(START, 20, StepType.WALKING);
+        step(START + 500, 20, StepType.WALKING);
+
+        assertEquals(2 * 0.4542, model.getTotalEnergy(), DELTA);
+        assertEquals(0.4542 / 0.5, model.getCurrentPower(), DELTA);
+    }
+
+    @Test
+    public void downsampleKeepsEnergy() {
+        // two walking steps per second for 10 minutes
+        for (int i = 0; i < 1200; i++) {
+            step(START + i * 500L, 20, StepType.WALKING);
+        }
+        long[] times = new long[10];
+        float[] powers = new float[10];
+        model.downsample(START, START + 600 * 1000L, 10, times, powers);
+
+        double energy = 0;
+        for (int i = 0; i < 10; i++) {
+            assertEquals(START + i * 60 * 1000L, times[i]);
+            assertEquals(2 * 0.4542, powers[i], 1e-4);
+            energy += powers[i] * 60;
+        }
+        assertEquals(model.getTotalEnergy(), energy, 1e-2);
+    }
+
+    @Test
+    public void dayLongSessionUsesBoundedSeries() {
+        // one step every 10 seconds for 25 hours
+        for (long t = 0; t < 25 * 3600 * 1000L; t += 10 * 1000L) {
+            step(START + t, 20, StepType.WALKING);
+        }
+        assertEquals(25 * 360 * 0.4542, model.getTotalEnergy(), 1e-3);
+
+        long end = START + 25 * 3600 * 1000L;
+        long[] times = new long[24];
+        float[] powers = new float[24];
+        model.downsample(end - 24 * 3600 * 1000L, end, 24, times, powers);
+        for (int i = 0; i < 24; i++) {
+            assertEquals(0.04542, powers[i], 1e-4);
+        }
+    }
+
+    @Test
+    public void seriesDropsOldBinsAndFillsGaps() {
+        PowerSeries series = new PowerSeries(1000, 4);
+        series.add(START, 1);
+        series.add(START + 2500, 2);
+        assertEquals(3, series.size());
+        assertEquals(0, series.getEnergy(1), DELTA);
+        assertEquals(START + 2000, series.getBinStart(2));
+
+        series.add(START + 4000, 3);
+        series.add(START + 100, 5); // older than the oldest bin, ignored
+        assertEquals(4, series.size());
+        assertEquals(START + 1000, series.getStartTime());
+        assertEquals(3, series.getPower(3), DELTA);
+
+        series.add(START + 100000, 1);
+        assertEquals(1, series.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void downsampleRejectsPointsShorterThanOneMillisecond() {
+        step(START, 20, StepType.WALKING);
+        model.downsample(START, START + 5, 10, new long[10], new float[10]);
+    }
+
+    @Test
+    public void downsampleToOneMillisecondPoints() {
+        step(START, 20, StepType.WALKING);
+        long[] times = new long[10];
+        float[] powers = new float[10];
+        model.downsample(START, START + 10, 10, times, powers);
+        assertEquals(START + 9, times[9]);
+        assertEquals(0.4542 * 1000, powers[0], 1e-2);
+        assertEquals(0, powers[9], DELTA);
+    }
+
+    private void step(long pTime, double pPeak, StepType pStepType) {
+        accelerationData.setTime(pTime);
+        accelerationData.setValue(pPeak);
+        model.step(accelerationData, pStepType);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.steppowergenerator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SampleBatch.
+ */
+public class SampleBatchTest {
+
+    @Test
+    public void magnitudesMatchStepDetector() {
+        SampleBatch batch = new SampleBatch(8);
+        batch.add(0, 1.5f, 9.7f, -0.3f);
+        batch.add(20, 3f, 4f, 12f);
+
+        double[] magnitudes = batch.computeMagnitudes(0);
+        assertEquals(StepDetector.calculateValue(1.5f, 9.7f, -0.3f), magnitudes[0], 0);
+        assertEquals(13, magnitudes[1], 0);
+
+        // only the new record is calculated, a different offset calculates all again
+        batch.add(40, 0f, 0f, 2f);
+        assertEquals(2, batch.computeMagnitudes(0)[2], 0);
+        assertEquals(13 + AccelerationFilter.GRAVITY, batch.computeMagnitudes(AccelerationFilter.GRAVITY)[1], 0);
+    }
+
+    @Test
+    public void listenerReceivesNewMagnitudes() {
+        SampleBatch batch = new SampleBatch(8);
+        final StringBuilder received = new StringBuilder();
+        MagnitudeListener listener = new MagnitudeListener() {
+            @Override
+            public void magnitude(long timestampNs, double value) {
+                received.append(timestampNs).append('=').append(value).append(' ');
+            }
+        };
+        batch.add(0, 3f, 4f, 0f);
+        batch.computeMagnitudes(1, listener);
+        batch.add(20, 0f, 0f, 2f);
+        double[] magnitudes = batch.computeMagnitudes(1, listener);
+
+        assertEquals("0=6.0 20=3.0 ", received.toString());
+        assertEquals(6, magnitudes[0], 0);
+        assertEquals(3, magnitudes[1], 0);
+    }
+
+    @Test
+    public void copiesColumnsUpToCapacity() {
+        SampleBatch batch = new SampleBatch(4);
+        long[] times = {10, 20, 30, 40, 50, 60};
+        float[] x = {1, 2, 3, 4, 5, 6};
+        float[] y = new float[6];
+        float[] z = new float[6];
+
+        batch.add(0, 0f, 0f, 0f);
+        assertEquals(3, batch.add(times, x, y, z, 1, 5));
+        assertTrue(batch.isFull());
+        assertEquals(20, batch.getTimestamp(1));
+        assertEquals(4, batch.getX(3), 0);
+
+        batch.clear();
+        assertEquals(0, batch.size());
+        assertEquals(2, batch.add(times, x, y, z, 4, 2));
+        assertEquals(6, batch.computeMagnitudes(0)[1], 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsRecordWhenFull() {
+        SampleBatch batch = new SampleBatch(1);
+        batch.add(0, 0f, 0f, 0f);
+        batch.add(1, 0f, 0f, 0f);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.steppowergenerator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SamplingRateController, fed by a StepDetector in DetectionMode.STREAMING.
+ */
+public class SamplingRateControllerTest {
+
+    private static final long MS = 1000000L;
+
+    private SamplingRateController controller;
+    private StepDetector stepDetector;
+    private final List<SamplingRate> changes = new ArrayList<>();
+    private long timeNs;
+
+    @Before
+    public void setUp() {
+        controller = new SamplingRateController();
+        controller.registerSamplingRateListener(new SamplingRateListener() {
+            @Override
+            public void samplingRateChanged(SamplingRate samplingRate) {
+                changes.add(samplingRate);
+            }
+        });
+        stepDetector = new StepDetector(DetectionMode.STREAMING, new TestClock());
+        stepDetector.registerMagnitudeListener(controller);
+        stepDetector.registerStepListener(controller);
+    }
+
+    @Test
+    public void staysIdleWhileNotMoving() {
+        rest(10000);
+
+        assertEquals(SamplingRate.IDLE, controller.getSamplingRate());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void raisesToFastForJoggingSteps() {
+        rest(1000);
+        steps(26f, 10);
+
+        assertEquals(SamplingRate.FAST, controller.getSamplingRate());
+        assertEquals(SamplingRate.FAST, changes.get(changes.size() - 1));
+    }
+
+    @Test
+    public void walkingStepsUseModerateRate() {
+        steps(20f, 10);
+
+        assertEquals(SamplingRate.MODERATE, controller.getSamplingRate());
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    public void lowersOnlyAfterHoldTime() {
+        steps(26f, 10);
+        assertEquals(SamplingRate.FAST, controller.getSamplingRate());
+
+        rest(SamplingRateController.STEP_WINDOW_NS / MS + SamplingRateController.LOWER_HOLD_NS / MS - 500);
+        assertEquals(SamplingRate.FAST, controller.getSamplingRate());
+
+        rest(20000);
+        assertEquals(SamplingRate.IDLE, controller.getSamplingRate());
+    }
+
+    @Test
+    public void alternatingStepTypesDoNotToggleRate() {
+        for (int i = 0; i < 20; i++) {
+            steps(i % 2 == 0 ? 26f : 20f, 2);
+        }
+
+        assertEquals(SamplingRate.FAST, controller.getSamplingRate());
+        // IDLE -> MODERATE or FAST -> FAST, but never back
+        assertTrue(changes.size() <= 2);
+    }
+
+    /**
+     * Adds records at gravity every 200 ms, as at SamplingRate.IDLE.
+     */
+    private void rest(long pDurationMs) {
+        long endNs = timeNs + pDurationMs * MS;
+        while (timeNs < endNs) {
+            stepDetector.addSample(timeNs, 0, 9.81f, 0);
+            timeNs += 200 * MS;
+        }
+    }
+
+    /**
+     * Adds steps 500 ms apart, each a short peak within records at gravity every 20 ms.
+     */
+    private void steps(float pPeak, int pCount) {
+        for (int step = 0; step < pCount; step++) {
+            for (int i = 0; i < 25; i++) {
+                stepDetector.addSample(timeNs, 0, i == 5 || i == 6 ? pPeak : 9.81f, 0);
+                timeNs += 20 * MS;
+            }
+        }
+    }
+}
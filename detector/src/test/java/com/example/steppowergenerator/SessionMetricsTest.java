@@ -0,0 +1,71 @@
+package com.example.steppowergenerator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SessionMetrics.
+ */
+public class SessionMetricsTest {
+
+    private static final double DELTA = 1e-9;
+
+    private SessionMetrics metrics;
+    private final AccelerationData accelerationData = new AccelerationData();
+
+    @Before
+    public void setUp() {
+        metrics = new SessionMetrics();
+    }
+
+    @Test
+    public void firstStepCountsNominalDuration() {
+        step(10000, StepType.WALKING);
+
+        assertEquals(1, metrics.getStepCount());
+        assertEquals(0.5, metrics.getDistance(), DELTA);
+        assertEquals(1000, metrics.getMovingTime());
+        assertEquals(0.5, metrics.getAverageSpeed(), DELTA);
+    }
+
+    @Test
+    public void movingTimeUsesIntervalsBetweenSteps() {
+        step(10000, StepType.RUNNING);
+        step(10400, StepType.RUNNING);
+        step(10800, StepType.RUNNING);
+
+        assertEquals(500 + 400 + 400, metrics.getMovingTime());
+        assertEquals(4.5, metrics.getDistance(), DELTA);
+        assertEquals(4.5 / 1.3, metrics.getAverageSpeed(), DELTA);
+        assertEquals(1.5 / 0.4, metrics.getCurrentSpeed(), DELTA);
+        assertEquals(0.6, metrics.getCalories(), DELTA);
+    }
+
+    @Test
+    public void pauseIsNotMovingTime() {
+        step(10000, StepType.WALKING);
+        step(10800, StepType.WALKING);
+        step(60000, StepType.JOGGING);
+
+        assertEquals(1000 + 800 + 750, metrics.getMovingTime());
+    }
+
+    @Test
+    public void resetStartsNewMeasurement() {
+        step(10000, StepType.JOGGING);
+        step(10500, StepType.JOGGING);
+        metrics.reset();
+        step(10900, StepType.WALKING);
+
+        assertEquals(1, metrics.getStepCount());
+        assertEquals(1000, metrics.getMovingTime());
+        assertEquals(0.05, metrics.getCalories(), DELTA);
+    }
+
+    private void step(long pTime, StepType pStepType) {
+        accelerationData.setTime(pTime);
+        metrics.step(accelerationData, pStepType);
+    }
+}
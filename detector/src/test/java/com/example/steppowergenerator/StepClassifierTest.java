@@ -0,0 +1,107 @@
+package com.example.steppowergenerator;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the StepClassifier implementations and the StepFeatures calculated by the StepDetector.
+ */
+public class StepClassifierTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void thresholdClassifierUsesPeakOnly() {
+        StepClassifier classifier = new ThresholdStepClassifier();
+
+        assertEquals(StepType.WALKING, classifier.classify(features(24, 100)));
+        assertEquals(StepType.JOGGING, classifier.classify(features(24.5, 0)));
+        assertEquals(StepType.JOGGING, classifier.classify(features(30, 0)));
+        assertEquals(StepType.RUNNING, classifier.classify(features(30.5, 0)));
+    }
+
+    @Test
+    public void decisionTreeUsesVarianceNearThresholds() {
+        StepClassifier classifier = DecisionTreeStepClassifier.createDefault();
+
+        assertEquals(StepType.WALKING, classifier.classify(features(20, 50)));
+        assertEquals(StepType.WALKING, classifier.classify(features(23, 10)));
+        assertEquals(StepType.JOGGING, classifier.classify(features(23, 25)));
+        assertEquals(StepType.WALKING, classifier.classify(features(27, 5)));
+        assertEquals(StepType.JOGGING, classifier.classify(features(27, 25)));
+        assertEquals(StepType.JOGGING, classifier.classify(features(33, 10)));
+        assertEquals(StepType.RUNNING, classifier.classify(features(33, 50)));
+    }
+
+    @Test
+    public void cadenceClassifierUsesAngularRateOnlyOnStrongDisagreement() {
+        StepClassifier classifier = new CadenceStepClassifier();
+
+        assertEquals(StepType.WALKING, classifier.classify(cadence(1.8, 0)));
+        assertEquals(StepType.JOGGING, classifier.classify(cadence(2.6, 0)));
+        assertEquals(StepType.RUNNING, classifier.classify(cadence(3.0, 0)));
+        assertEquals(StepType.WALKING, classifier.classify(cadence(1.8, 2.5)));
+        assertEquals(StepType.JOGGING, classifier.classify(cadence(1.8, 4.0)));
+        assertEquals(StepType.JOGGING, classifier.classify(cadence(3.0, 1.0)));
+        assertEquals(StepType.RUNNING, classifier.classify(cadence(3.0, 2.5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decisionTreeRejectsCycles() {
+        new DecisionTreeStepClassifier(
+                new int[]{StepFeatures.PEAK, StepFeatures.PEAK},
+                new double[]{20, 20},
+                new int[]{1, 0},
+                new int[]{1, 1});
+    }
+
+    @Test
+    public void detectorCalculatesIntervalAndCadence() {
+        final List<StepFeatures> features = new ArrayList<>();
+        StepDetector stepDetector = new StepDetector(DetectionMode.STREAMING, new TestClock());
+        stepDetector.setStepClassifier(new StepClassifier() {
+            @Override
+            public StepType classify(StepFeatures stepFeatures) {
+                features.add(stepFeatures.copy());
+                return StepType.WALKING;
+            }
+        });
+        stepDetector.registerStepListener(new StepListener() {
+            @Override
+            public void step(AccelerationData accelerationData, StepType stepType) {
+            }
+        });
+
+        // six steps, 500 ms apart
+        for (int i = 0; i < 150; i++) {
+            stepDetector.addSample(i * 20 * MS, 0, i % 25 == 5 ? 20f : 9.81f, 0);
+        }
+
+        assertEquals(6, features.size());
+        assertEquals(0, features.get(0).get(StepFeatures.INTERVAL), 1e-9);
+        assertEquals(0, features.get(0).get(StepFeatures.CADENCE), 1e-9);
+        assertEquals(0.5, features.get(1).get(StepFeatures.INTERVAL), 1e-9);
+        assertEquals(2.0, features.get(5).get(StepFeatures.CADENCE), 1e-9);
+        assertEquals(20.0, features.get(5).get(StepFeatures.PEAK), 1e-6);
+        assertTrue(features.get(5).get(StepFeatures.VARIANCE) > 0);
+    }
+
+    private static StepFeatures features(double pPeak, double pVariance) {
+        StepFeatures features = new StepFeatures();
+        features.set(StepFeatures.PEAK, pPeak);
+        features.set(StepFeatures.VARIANCE, pVariance);
+        return features;
+    }
+
+    private static StepFeatures cadence(double pCadence, double pAngularRate) {
+        StepFeatures features = new StepFeatures();
+        features.set(StepFeatures.PEAK, Double.NaN);
+        features.set(StepFeatures.CADENCE, pCadence);
+        features.set(StepFeatures.ANGULAR_RATE, pAngularRate);
+        return features;
+    }
+}
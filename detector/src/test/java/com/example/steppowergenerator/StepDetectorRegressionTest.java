@@ -0,0 +1,136 @@
+package com.example.steppowergenerator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pins the output of the StepDetector on the reference traces in src/test/resources/traces.
+ * Each trace "name.csv" (timestamp in ns, x, y, z) has one expected file per DetectionMode,
+ * "name.batch.expected" and "name.streaming.expected", with one line "unix time (ms),value,step type" per step.
+ * If the detection is changed on purpose, the expected files have to be updated with the new output.
+ */
+@RunWith(Parameterized.class)
+public class StepDetectorRegressionTest {
+
+    private static final long UNIX_AT_BOOT = 1600000000000L;
+
+    private static final String[] TRACES = {"walking_50hz", "jogging_50hz", "running_50hz", "mixed_5hz"};
+
+    @Parameterized.Parameters(name = "{0} {1}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (String trace : TRACES) {
+            for (DetectionMode detectionMode : DetectionMode.values()) {
+                parameters.add(new Object[]{trace, detectionMode});
+            }
+        }
+        return parameters;
+    }
+
+    private final String trace;
+    private final DetectionMode detectionMode;
+
+    public StepDetectorRegressionTest(String pTrace, DetectionMode pDetectionMode) {
+        trace = pTrace;
+        detectionMode = pDetectionMode;
+    }
+
+    @Test
+    public void outputMatchesReference() throws IOException {
+        List<String> expected = readLines(trace + "." + detectionMode.name().toLowerCase(Locale.ROOT) + ".expected");
+        List<String> actual = detect(trace, detectionMode);
+
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            assertEquals("Step " + i + " of " + trace, expected.get(i), actual.get(i));
+        }
+        assertEquals("Number of steps in " + trace, expected.size(), actual.size());
+    }
+
+    @Test
+    public void burstOutputMatchesReference() throws IOException {
+        List<String> expected = readLines(trace + "." + detectionMode.name().toLowerCase(Locale.ROOT) + ".expected");
+        // bursts which do not line up with the batches of 25 records
+        assertEquals(expected, detect(trace, detectionMode, 37));
+    }
+
+    /**
+     * Runs the trace through a new StepDetector and returns one line per reported step.
+     */
+    static List<String> detect(String pTrace, DetectionMode pDetectionMode) throws IOException {
+        return detect(pTrace, pDetectionMode, 1);
+    }
+
+    /**
+     * Like detect(String, DetectionMode), but passes the records in bursts of pBurstSize with addSamples.
+     */
+    static List<String> detect(String pTrace, DetectionMode pDetectionMode, int pBurstSize) throws IOException {
+        final List<String> steps = new ArrayList<>();
+        StepDetector stepDetector = new StepDetector(pDetectionMode, new TestClock(UNIX_AT_BOOT));
+        stepDetector.registerStepListener(new StepListener() {
+            @Override
+            public void step(AccelerationData accelerationData, StepType stepType) {
+                steps.add(String.format(Locale.ROOT, "%d,%.4f,%s",
+                        accelerationData.getTime(), accelerationData.getValue(), stepType));
+            }
+        });
+
+        List<String> lines = readLines(pTrace + ".csv");
+        if (pBurstSize == 1) {
+            for (String line : lines) {
+                String[] columns = line.split(",");
+                stepDetector.addSample(Long.parseLong(columns[0]), Float.parseFloat(columns[1]),
+                        Float.parseFloat(columns[2]), Float.parseFloat(columns[3]));
+            }
+            return steps;
+        }
+
+        long[] times = new long[lines.size()];
+        float[] x = new float[lines.size()];
+        float[] y = new float[lines.size()];
+        float[] z = new float[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            String[] columns = lines.get(i).split(",");
+            times[i] = Long.parseLong(columns[0]);
+            x[i] = Float.parseFloat(columns[1]);
+            y[i] = Float.parseFloat(columns[2]);
+            z[i] = Float.parseFloat(columns[3]);
+        }
+        for (int offset = 0; offset < times.length; offset += pBurstSize) {
+            stepDetector.addSamples(times, x, y, z, offset, Math.min(pBurstSize, times.length - offset));
+        }
+        return steps;
+    }
+
+    /**
+     * Reads a file from the traces directory, without empty lines and comments starting with #.
+     */
+    static List<String> readLines(String pFileName) throws IOException {
+        InputStream inputStream = StepDetectorRegressionTest.class.getResourceAsStream("/traces/" + pFileName);
+        assertNotNull("Missing reference file " + pFileName, inputStream);
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.steppowergenerator;
+
+import com.example.steppowergenerator.metrics.DetectorMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the StepDetector, run on the JVM with a manually controlled clock.
+ */
+public class StepDetectorTest {
+
+    private static final long MS = 1000000L;
+    private static final long UNIX_AT_BOOT = 1600000000000L;
+
+    private TestClock clock;
+    private RecordingStepListener stepListener;
+
+    @Before
+    public void setUp() {
+        clock = new TestClock(UNIX_AT_BOOT);
+        stepListener = new RecordingStepListener();
+    }
+
+    @Test
+    public void streaming_reportsStepWhenValueDropsBelowThreshold() {
+        StepDetector stepDetector = createStepDetector(DetectionMode.STREAMING);
+
+        stepDetector.addSample(0, 0, 9.81f, 0);
+        stepDetector.addSample(20 * MS, 0, 20f, 0);
+        stepDetector.addSample(40 * MS, 0, 26f, 0);
+        assertEquals(0, stepListener.times.size());
+
+        stepDetector.addSample(60 * MS, 0, 9.81f, 0);
+        assertEquals(1, stepListener.times.size());
+        assertEquals(UNIX_AT_BOOT + 40, (long) stepListener.times.get(0));
+        assertEquals(26.0, stepListener.values.get(0), 1e-6);
+        assertEquals(StepType.JOGGING, stepListener.types.get(0));
+    }
+
+    @Test
+    public void streaming_ignoresHighPointWithin400Milliseconds() {
+        StepDetector stepDetector = createStepDetector(DetectionMode.STREAMING);
+
+        addPeak(stepDetector, 0, 20f);
+        addPeak(stepDetector, 300 * MS, 22f);
+        addPeak(stepDetector, 800 * MS, 18f);
+
+        assertEquals(2, stepListener.times.size());
+        assertEquals(UNIX_AT_BOOT + 20, (long) stepListener.times.get(0));
+        assertEquals(UNIX_AT_BOOT + 820, (long) stepListener.times.get(1));
+    }
+
+    @Test
+    public void batch_reportsStepsAfter25Records() {
+        StepDetector stepDetector = createStepDetector(DetectionMode.BATCH);
+
+        for (int i = 0; i < 24; i++) {
+            stepDetector.addSample(i * 20 * MS, 0, i == 5 ? 25f : 9.81f, 0);
+        }
+        assertEquals(0, stepListener.times.size());
+
+        stepDetector.addSample(24 * 20 * MS, 0, 9.81f, 0);
+        assertEquals(1, stepListener.times.size());
+        assertEquals(StepType.JOGGING, stepListener.types.get(0));
+    }
+
+    @Test
+    public void batch_removesLowerOfTwoNearHighPoints() {
+        StepDetector stepDetector = createStepDetector(DetectionMode.BATCH);
+        for (int i = 0; i < 25; i++) {
+            float y = 9.81f;
+            if (i == 5) y = 32f;
+            if (i == 10) y = 20f;
+            if (i == 20) y = 22f;
+            stepDetector.addSample(i * 20 * MS, 0, y, 0);
+        }
+
+        // 5 and 10 are 100 ms apart, the lower one (10) is removed; 20 is 200 ms after 10 and higher than 10
+        assertEquals(2, stepListener.times.size());
+        assertEquals(UNIX_AT_BOOT + 5 * 20, (long) stepListener.times.get(0));
+        assertEquals(StepType.RUNNING, stepListener.types.get(0));
+        assertEquals(UNIX_AT_BOOT + 20 * 20, (long) stepListener.times.get(1));
+    }
+
+    @Test
+    public void metrics_countFoundAndSuppressedHighPoints() {
+        DetectorMetrics metrics = new DetectorMetrics();
+        metrics.setRecordTimingInterval(1);
+        StepDetector batchDetector = createStepDetector(DetectionMode.BATCH);
+        batchDetector.setMetrics(metrics);
+        for (int i = 0; i < 25; i++) {
+            float y = 9.81f;
+            if (i == 5) y = 32f;
+            if (i == 10) y = 20f;
+            if (i == 20) y = 22f;
+            batchDetector.addSample(i * 20 * MS, 0, y, 0);
+        }
+
+        assertEquals(25, metrics.getSamples().get());
+        assertEquals(1, metrics.getBatches().get());
+        assertEquals(3, metrics.getPeaksFound().get());
+        assertEquals(1, metrics.getPeaksSuppressed().get());
+        assertEquals(2, metrics.getSteps().get());
+        assertEquals(2, metrics.getStageTime(DetectorMetrics.Stage.LISTENER).getCount());
+        assertEquals(25, metrics.getStageTime(DetectorMetrics.Stage.FILTER).getCount());
+
+        metrics.reset();
+        StepDetector streamingDetector = createStepDetector(DetectionMode.STREAMING);
+        streamingDetector.setMetrics(metrics);
+        addPeak(streamingDetector, 0, 20f);
+        addPeak(streamingDetector, 300 * MS, 22f);
+        addPeak(streamingDetector, 800 * MS, 18f);
+
+        assertEquals(3, metrics.getPeaksFound().get());
+        assertEquals(1, metrics.getPeaksSuppressed().get());
+        assertEquals(2, metrics.getSteps().get());
+        assertEquals(metrics.getSamples().get(), metrics.getStageTime(DetectorMetrics.Stage.DETECT).getCount());
+    }
+
+    @Test
+    public void clockIsOnlyReadOncePerSession() {
+        StepDetector stepDetector = createStepDetector(DetectionMode.STREAMING);
+        int readsAfterCreation = clock.unixReads;
+
+        for (int i = 0; i < 100; i++) {
+            addPeak(stepDetector, i * 500 * MS, 20f);
+        }
+        assertEquals(100, stepListener.times.size());
+        assertEquals(readsAfterCreation, clock.unixReads);
+
+        stepDetector.resetSession();
+        assertEquals(readsAfterCreation + 1, clock.unixReads);
+    }
+
+    @Test
+    public void burstOfSamplesKeepsSensorTimestamps() {
+        StepDetector stepDetector = createStepDetector(DetectionMode.STREAMING);
+        long[] times = new long[100];
+        float[] x = new float[100];
+        float[] y = new float[100];
+        float[] z = new float[100];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = i * 20 * MS;
+            y[i] = i % 25 == 10 ? 21f : 9.81f;
+        }
+
+        // the whole burst arrives 10 seconds after the first record was measured
+        clock.elapsedNanos = 10000 * MS;
+        stepDetector.addSamples(times, x, y, z, 0, times.length);
+
+        assertEquals(4, stepListener.times.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(UNIX_AT_BOOT + (i * 25 + 10) * 20, (long) stepListener.times.get(i));
+        }
+        assertEquals(10000 * MS - 10 * 20 * MS, stepDetector.getMaxStepLatencyNanos());
+    }
+
+    private StepDetector createStepDetector(DetectionMode pDetectionMode) {
+        StepDetector stepDetector = new StepDetector(pDetectionMode, clock);
+        stepDetector.registerStepListener(stepListener);
+        return stepDetector;
+    }
+
+    /**
+     * Adds one record at gravity, one above the threshold and one at gravity again, 20 ms apart.
+     */
+    private void addPeak(StepDetector pStepDetector, long pStartNs, float pPeak) {
+        pStepDetector.addSample(pStartNs, 0, 9.81f, 0);
+        pStepDetector.addSample(pStartNs + 20 * MS, 0, pPeak, 0);
+        pStepDetector.addSample(pStartNs + 40 * MS, 0, 9.81f, 0);
+    }
+
+    private static class RecordingStepListener implements StepListener {
+
+        final List<Long> times = new ArrayList<>();
+        final List<Double> values = new ArrayList<>();
+        final List<StepType> types = new ArrayList<>();
+
+        @Override
+        public void step(AccelerationData accelerationData, StepType stepType) {
+            times.add(accelerationData.getTime());
+            values.add(accelerationData.getValue());
+            types.add(stepType);
+        }
+    }
+}
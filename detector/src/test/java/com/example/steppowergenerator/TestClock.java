@@ -0,0 +1,40 @@
+package com.example.steppowergenerator;
+
+/**
+ * Clock for tests: the device has just started at a fixed Unix time, and the time since device start
+ * (used for the step latency) is set by the test.
+ */
+class TestClock implements Clock {
+
+    private final long unixAtBoot;
+
+    int unixReads;
+    long elapsedNanos;
+
+    TestClock() {
+        this(0);
+    }
+
+    /**
+     * @param unixAtBoot Unix time in milliseconds returned by currentTimeMillis.
+     */
+    TestClock(long unixAtBoot) {
+        this.unixAtBoot = unixAtBoot;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        unixReads++;
+        return unixAtBoot;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return 0;
+    }
+
+    @Override
+    public long elapsedRealtimeNanos() {
+        return elapsedNanos;
+    }
+}
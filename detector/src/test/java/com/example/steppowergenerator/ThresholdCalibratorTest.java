@@ -0,0 +1,136 @@
+package com.example.steppowergenerator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the ThresholdCalibrator on the walking reference trace, as recorded and with the peaks damped
+ * as for a device in a bag, and on the jogging and running traces, which must not change the calibration.
+ * The traces are repeated with shifted timestamps until the calibrator has seen several windows of peaks.
+ */
+public class ThresholdCalibratorTest {
+
+    private static final double DELTA = 1e-9;
+    private static final long TRACE_NS = 100 * 1000 * 1000000L;
+    private static final int REPETITIONS = 30;
+
+    private StepDetector stepDetector;
+    private ThresholdStepClassifier stepClassifier;
+    private ThresholdCalibrator calibrator;
+    private int stepCount;
+    private long timeOffsetNs;
+
+    @Before
+    public void setUp() {
+        stepDetector = new StepDetector(DetectionMode.STREAMING, new TestClock(1600000000000L));
+        stepClassifier = new ThresholdStepClassifier();
+        stepDetector.setStepClassifier(stepClassifier);
+        calibrator = new ThresholdCalibrator(stepDetector, stepClassifier);
+        stepDetector.registerMagnitudeListener(calibrator);
+        stepDetector.registerStepListener(new StepListener() {
+            @Override
+            public void step(AccelerationData accelerationData, StepType stepType) {
+                stepCount++;
+            }
+        });
+    }
+
+    @Test
+    public void referenceWalkKeepsNominalThresholds() throws IOException {
+        feed("walking_50hz", 1, REPETITIONS);
+
+        assertTrue(calibrator.getWindowCount() > 0);
+        assertEquals(1, calibrator.getGain(), 0.05);
+        assertEquals(StepDetector.WALKINGTHRESHOLD, stepDetector.getWalkingThreshold(), 0.5);
+        assertEquals(ThresholdStepClassifier.JOGGINGTHRESHOLD, stepClassifier.getJoggingThreshold(), 1);
+    }
+
+    @Test
+    public void dampedWalkLowersThresholdsAndFindsAllSteps() throws IOException {
+        int referenceSteps = StepDetectorRegressionTest.readLines("walking_50hz.streaming.expected").size();
+
+        // ohne Kalibrierung werden viele der gedämpften Schritte verpasst
+        feed("walking_50hz", 0.65, 1);
+        assertTrue(stepCount < referenceSteps / 2);
+
+        feed("walking_50hz", 0.65, REPETITIONS);
+        assertEquals(0.65, calibrator.getGain(), 0.05);
+        assertEquals(calibrator.getWalkingThreshold(), stepDetector.getWalkingThreshold(), DELTA);
+        assertTrue(stepDetector.getWalkingThreshold() < 16);
+
+        stepCount = 0;
+        feed("walking_50hz", 0.65, 1);
+        assertEquals(referenceSteps, stepCount);
+    }
+
+    @Test
+    public void joggingAndRunningDoNotCalibrate() throws IOException {
+        feed("jogging_50hz", 1, REPETITIONS);
+        feed("running_50hz", 1, REPETITIONS);
+
+        assertEquals(0, calibrator.getWindowCount());
+        assertEquals(1, calibrator.getGain(), DELTA);
+        assertEquals(StepDetector.WALKINGTHRESHOLD, stepDetector.getWalkingThreshold(), DELTA);
+    }
+
+    @Test
+    public void runningKeepsWalkingCalibration() throws IOException {
+        feed("walking_50hz", 0.65, REPETITIONS);
+        int windowCount = calibrator.getWindowCount();
+        double gain = calibrator.getGain();
+
+        feed("running_50hz", 1, REPETITIONS);
+        assertEquals(windowCount, calibrator.getWindowCount());
+        assertEquals(gain, calibrator.getGain(), DELTA);
+    }
+
+    @Test
+    public void standingStillDoesNotCalibrate() {
+        for (int i = 0; i < 100000; i++) {
+            stepDetector.addSample(i * 20 * 1000000L, 0.01f * (i % 3), 9.8f, 0.02f * (i % 5));
+        }
+        assertEquals(0, calibrator.getWindowCount());
+        assertEquals(StepDetector.WALKINGTHRESHOLD, stepDetector.getWalkingThreshold(), DELTA);
+    }
+
+    @Test
+    public void restoreAppliesSavedCalibration() {
+        calibrator.restore(1.2, 3);
+        double expected = ThresholdCalibrator.GRAVITY + 1.2 * (ThresholdStepClassifier.RUNNINGTHRESHOLD - ThresholdCalibrator.GRAVITY);
+        assertEquals(expected, stepClassifier.getRunningThreshold(), DELTA);
+        assertEquals(calibrator.getWalkingThreshold(), stepDetector.getWalkingThreshold(), DELTA);
+        assertEquals(3, calibrator.getWindowCount());
+
+        calibrator.restore(5, 3);
+        assertEquals(ThresholdCalibrator.MAX_GAIN, calibrator.getGain(), DELTA);
+
+        calibrator.reset();
+        assertEquals(StepDetector.WALKINGTHRESHOLD, stepDetector.getWalkingThreshold(), DELTA);
+        assertEquals(ThresholdStepClassifier.RUNNINGTHRESHOLD, stepClassifier.getRunningThreshold(), DELTA);
+    }
+
+    /**
+     * Passes the trace pRepetitions times to the StepDetector, each time after the previous one.
+     * The deviation of the total acceleration from gravity is multiplied by pScale, the direction is kept.
+     */
+    private void feed(String pTrace, double pScale, int pRepetitions) throws IOException {
+        List<String> lines = StepDetectorRegressionTest.readLines(pTrace + ".csv");
+        for (int r = 0; r < pRepetitions; r++) {
+            for (String line : lines) {
+                String[] columns = line.split(",");
+                float x = Float.parseFloat(columns[1]);
+                float y = Float.parseFloat(columns[2]);
+                float z = Float.parseFloat(columns[3]);
+                double value = StepDetector.calculateValue(x, y, z);
+                float factor = (float) ((ThresholdCalibrator.GRAVITY + pScale * (value - ThresholdCalibrator.GRAVITY)) / value);
+                stepDetector.addSample(Long.parseLong(columns[0]) + timeOffsetNs, x * factor, y * factor, z * factor);
+            }
+            timeOffsetNs += TRACE_NS;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.steppowergenerator.metrics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the Histogram and the DetectorMetrics.
+ */
+public class DetectorMetricsTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void histogramCountsValuesInBuckets() {
+        Histogram histogram = new Histogram("test", new long[]{10, 20, 40});
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(4, histogram.getBucketCount());
+        assertEquals(10, histogram.getBucketValue(0));
+        assertEquals(10, histogram.getBucketValue(1));
+        assertEquals(20, histogram.getBucketValue(2));
+        assertEquals(60, histogram.getBucketValue(3));
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(10, histogram.getPercentile(10));
+        assertEquals(40, histogram.getPercentile(40));
+        assertEquals(100, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void exponentialHistogramDoublesBounds() {
+        Histogram histogram = Histogram.exponential("test", 256, 4);
+        assertEquals(2048, histogram.getUpperBound(3));
+        assertEquals(Long.MAX_VALUE, histogram.getUpperBound(4));
+
+        histogram.record(300);
+        assertEquals(1, histogram.getBucketValue(1));
+        assertEquals(300, histogram.getPercentile(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogramRejectsUnorderedBounds() {
+        new Histogram("test", new long[]{20, 10});
+    }
+
+    @Test
+    public void gapsInTimestampsCountDroppedAndLateSamples() {
+        DetectorMetrics metrics = new DetectorMetrics();
+        metrics.setNominalSamplePeriod(20 * MS);
+
+        metrics.recordSample(0);
+        metrics.recordSample(20 * MS);
+        metrics.recordSample(45 * MS); // jitter, not dropped
+        metrics.recordSample(105 * MS); // two records missing
+        metrics.recordSample(100 * MS); // out of order
+
+        assertEquals(5, metrics.getSamples().get());
+        assertEquals(2, metrics.getDroppedSamples().get());
+        assertEquals(1, metrics.getLateSamples().get());
+        assertEquals(3, metrics.getSampleInterval().getCount());
+    }
+
+    @Test
+    public void onlyEveryNthRecordIsTimed() {
+        DetectorMetrics metrics = new DetectorMetrics();
+        metrics.setRecordTimingInterval(4);
+
+        int timed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (metrics.recordSample(i * 20 * MS)) {
+                timed++;
+            }
+        }
+        assertEquals(3, timed);
+        assertEquals(10, metrics.getSamples().get());
+    }
+
+    @Test
+    public void dumpWritesAllValues() throws IOException {
+        DetectorMetrics metrics = new DetectorMetrics();
+        metrics.recordPeak(true);
+        metrics.recordStep(3 * MS);
+
+        StringBuilder dump = new StringBuilder();
+        metrics.dump(dump);
+        assertTrue(dump.toString().contains("peaks.suppressed 1\n"));
+        assertTrue(dump.toString().contains("step.latency_ns count=1 mean=3000000"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getStepLatency().getCount());
+        assertEquals(0, metrics.getPeaksFound().get());
+    }
+}
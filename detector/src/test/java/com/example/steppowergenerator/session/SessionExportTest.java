@@ -0,0 +1,170 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.AccelerationData;
+import com.example.steppowergenerator.StepListener;
+import com.example.steppowergenerator.StepType;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trip tests for SessionExporter and SessionExportReader.
+ */
+public class SessionExportTest {
+
+    private static final int SAMPLES = 100000;
+    private static final int STEPS = 600;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void samplesAndStepsAreReadBackUnchanged() throws IOException {
+        File file = export(SAMPLES, STEPS, 1000);
+
+        try (SessionExportReader reader = new SessionExportReader(file)) {
+            assertEquals(1600000000000L, reader.getTimeOffsetToUnix());
+            // Anzahl der gelesenen Datensätze und Schritte
+            final int[] counts = new int[2];
+            long count = reader.read(new SampleConsumer() {
+                @Override
+                public void accept(long timestampNs, float x, float y, float z) {
+                    int i = counts[0]++;
+                    assertEquals(time(i), timestampNs);
+                    assertEquals(i * 0.5f, x, 0f);
+                    assertEquals(-i, y, 0f);
+                    assertEquals(9.81f, z, 0f);
+                }
+            }, new StepListener() {
+                @Override
+                public void step(AccelerationData accelerationData, StepType stepType) {
+                    int i = counts[1]++;
+                    assertEquals(1600000005000L + i * 500L, accelerationData.getTime());
+                    assertEquals(17 + i % 10, accelerationData.getValue(), 1e-6);
+                    assertEquals(StepType.values()[i % 3], stepType);
+                }
+            });
+            assertEquals(SAMPLES + STEPS, count);
+            assertEquals(SAMPLES, counts[0]);
+            assertEquals(STEPS, counts[1]);
+        }
+    }
+
+    @Test
+    public void columnsAreSmallerThanSessionLog() throws IOException {
+        File export = export(SAMPLES, 0, SessionExporter.DEFAULT_CHUNK_SIZE);
+        File log = temporaryFolder.newFile();
+        try (SessionRecorder recorder = new SessionRecorder(log, SessionLogFormat.COMPACT, 1600000000000L)) {
+            for (int i = 0; i < SAMPLES; i++) {
+                recorder.append(time(i), i * 0.5f, -i, 9.81f);
+            }
+        }
+
+        assertTrue(export.length() < log.length() / 2);
+    }
+
+    @Test
+    public void incompleteLastChunkIsIgnored() throws IOException {
+        File file = export(10000, 0, 1000);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(file.length() - 5);
+        }
+
+        try (SessionExportReader reader = new SessionExportReader(file)) {
+            assertEquals(9000, reader.read(new SampleConsumer() {
+                @Override
+                public void accept(long timestampNs, float x, float y, float z) {
+                }
+            }, null));
+        }
+    }
+
+    @Test
+    public void csvHasOneLinePerRecordAndStep() throws IOException {
+        File file = export(10, 2, 4);
+        StringBuilder samples = new StringBuilder();
+        StringBuilder steps = new StringBuilder();
+
+        try (SessionExportReader reader = new SessionExportReader(file)) {
+            reader.writeCsv(samples, steps);
+        }
+
+        String[] sampleLines = samples.toString().split("\n");
+        assertEquals(10, sampleLines.length);
+        assertEquals(time(1) + ",0.5,-1.0,9.81", sampleLines[1]);
+        assertEquals("1600000005000,17.0000,WALKING\n1600000005500,18.0000,JOGGING\n", steps.toString());
+    }
+
+    @Test
+    public void busyChunksDropRecordsInsteadOfWaiting() throws IOException {
+        File file = temporaryFolder.newFile();
+        long exported;
+        long dropped;
+        // the records arrive much faster than the chunks of 10 records are written
+        try (SessionExporter exporter = new SessionExporter(file, 1600000000000L, 10,
+                SessionExporter.DEFAULT_COMPRESSION_LEVEL, false)) {
+            for (int i = 0; i < SAMPLES; i++) {
+                exporter.accept(time(i), i * 0.5f, -i, 9.81f);
+            }
+            exported = exporter.getSampleCount();
+            dropped = exporter.getDroppedSamples();
+        }
+        assertEquals(SAMPLES, exported + dropped);
+        assertTrue(dropped > 0);
+
+        try (SessionExportReader reader = new SessionExportReader(file)) {
+            // the records written are still in order
+            final long[] previous = {Long.MIN_VALUE};
+            assertEquals(exported, reader.read(new SampleConsumer() {
+                @Override
+                public void accept(long timestampNs, float x, float y, float z) {
+                    assertTrue(timestampNs > previous[0]);
+                    previous[0] = timestampNs;
+                }
+            }, null));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        File file = temporaryFolder.newFile();
+        try (SessionRecorder recorder = new SessionRecorder(file, SessionLogFormat.FIXED, 0)) {
+            recorder.append(1, 0, 0, 0);
+        }
+        new SessionExportReader(file).close();
+    }
+
+    private File export(int pSamples, int pSteps, int pChunkSize) throws IOException {
+        File file = temporaryFolder.newFile();
+        AccelerationData accelerationData = new AccelerationData();
+        try (SessionExporter exporter = new SessionExporter(file, 1600000000000L, pChunkSize,
+                SessionExporter.DEFAULT_COMPRESSION_LEVEL, true)) {
+            for (int i = 0; i < pSamples; i++) {
+                exporter.accept(time(i), i * 0.5f, -i, 9.81f);
+            }
+            for (int i = 0; i < pSteps; i++) {
+                accelerationData.setTime(1600000005000L + i * 500L);
+                accelerationData.setValue(17 + i % 10);
+                exporter.step(accelerationData, StepType.values()[i % 3]);
+            }
+            assertEquals(pSamples, exporter.getSampleCount());
+            assertEquals(0, exporter.getDroppedSamples());
+            assertEquals(pSteps, exporter.getStepCount());
+        }
+        return file;
+    }
+
+    /**
+     * Timestamps about 20 ms apart with jitter and an occasional longer pause.
+     */
+    private static long time(int pIndex) {
+        return 5000000000L + pIndex * 20000000L + (pIndex % 7) * 13000L + (pIndex / 5000) * 3000000000L;
+    }
+}
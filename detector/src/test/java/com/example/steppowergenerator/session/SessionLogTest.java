@@ -0,0 +1,137 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.StepDetector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trip tests for SessionRecorder and SessionLogReader.
+ */
+public class SessionLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void fixedRecordsAreReadBackUnchanged() throws IOException {
+        assertRoundTrip(SessionLogFormat.FIXED);
+    }
+
+    @Test
+    public void compactRecordsAreReadBackUnchanged() throws IOException {
+        assertRoundTrip(SessionLogFormat.COMPACT);
+    }
+
+    @Test
+    public void compactRecordsAreSmallerThanFixedRecords() throws IOException {
+        File fixed = write(SessionLogFormat.FIXED, 10000);
+        File compact = write(SessionLogFormat.COMPACT, 10000);
+
+        assertEquals(SessionLogFormat.HEADER_SIZE + 10000 * SessionLogFormat.FIXED_RECORD_SIZE, fixed.length());
+        assertTrue(compact.length() < fixed.length() * 0.85);
+    }
+
+    @Test
+    public void incompleteLastRecordIsIgnored() throws IOException {
+        File file = write(SessionLogFormat.COMPACT, 100);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(file.length() - 5);
+        }
+
+        try (SessionLogReader reader = new SessionLogReader(file)) {
+            assertEquals(99, reader.toRecordedSession().size());
+        }
+    }
+
+    @Test
+    public void walkingThresholdIsStoredInHeader() throws IOException {
+        File file = temporaryFolder.newFile();
+        try (SessionRecorder recorder = new SessionRecorder(file, SessionLogFormat.FIXED, 0, 13.5)) {
+            recorder.append(time(0), 1, 2, 3);
+        }
+
+        try (SessionLogReader reader = new SessionLogReader(file)) {
+            assertEquals(13.5, reader.getWalkingThreshold(), 0);
+            RecordedSession session = reader.toRecordedSession();
+            assertEquals(13.5, session.getWalkingThreshold(), 0);
+            assertEquals(1, session.size());
+        }
+    }
+
+    @Test
+    public void version1FilesUseNominalWalkingThreshold() throws IOException {
+        File file = temporaryFolder.newFile();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            ByteBuffer buffer = ByteBuffer.allocate(SessionLogFormat.VERSION_1_HEADER_SIZE + SessionLogFormat.FIXED_RECORD_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(SessionLogFormat.MAGIC).put((byte) 1).put((byte) SessionLogFormat.FIXED.ordinal())
+                    .putShort((short) 0).putLong(1600000000000L);
+            buffer.putLong(time(0)).putFloat(1).putFloat(2).putFloat(3);
+            randomAccessFile.write(buffer.array());
+        }
+
+        try (SessionLogReader reader = new SessionLogReader(file)) {
+            assertEquals(StepDetector.WALKINGTHRESHOLD, reader.getWalkingThreshold(), 0);
+            assertEquals(1600000000000L, reader.getTimeOffsetToUnix());
+            RecordedSession session = reader.toRecordedSession();
+            assertEquals(1, session.size());
+            assertEquals(time(0), session.getTime(0));
+            assertEquals(3f, session.getZ(0), 0f);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        File file = temporaryFolder.newFile();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.writeLong(42);
+            randomAccessFile.writeLong(42);
+        }
+        new SessionLogReader(file).close();
+    }
+
+    private void assertRoundTrip(SessionLogFormat pFormat) throws IOException {
+        File file = write(pFormat, 100000);
+
+        try (SessionLogReader reader = new SessionLogReader(file)) {
+            assertEquals(pFormat, reader.getFormat());
+            assertEquals(1600000000000L, reader.getTimeOffsetToUnix());
+            RecordedSession session = reader.toRecordedSession();
+            assertEquals(100000, session.size());
+            for (int i = 0; i < session.size(); i++) {
+                assertEquals(time(i), session.getTime(i));
+                assertEquals(i * 0.5f, session.getX(i), 0f);
+                assertEquals(-i, session.getY(i), 0f);
+                assertEquals(9.81f, session.getZ(i), 0f);
+            }
+        }
+    }
+
+    private File write(SessionLogFormat pFormat, int pCount) throws IOException {
+        File file = temporaryFolder.newFile();
+        try (SessionRecorder recorder = new SessionRecorder(file, pFormat, 1600000000000L)) {
+            for (int i = 0; i < pCount; i++) {
+                recorder.append(time(i), i * 0.5f, -i, 9.81f);
+            }
+            assertEquals(pCount, recorder.getRecordCount());
+        }
+        return file;
+    }
+
+    /**
+     * Timestamps about 20 ms apart with jitter and an occasional longer pause.
+     */
+    private static long time(int pIndex) {
+        return 5000000000L + pIndex * 20000000L + (pIndex % 7) * 13000L + (pIndex / 5000) * 3000000000L;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.steppowergenerator.session;
+
+import com.example.steppowergenerator.StepDetector;
+import com.example.steppowergenerator.StepType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the parallel replay gives exactly the same steps as the sequential one.
+ */
+public class SessionReplayEngineTest {
+
+    private static final long SAMPLE_INTERVAL_NS = 20000000L; // 50 Hz
+
+    @Test
+    public void parallelReplayMatchesSequentialReplay() {
+        RecordedSession session = createSession(200000, 1);
+        SessionReplayEngine engine = new SessionReplayEngine(new ForkJoinPool(4), 1000);
+
+        ReplayResult sequential = SessionReplayEngine.replaySequential(session);
+        ReplayResult parallel = engine.replay(session);
+
+        assertTrue(sequential.size() > 1000);
+        assertTrue(sequential.count(StepType.WALKING) > 0);
+        assertTrue(sequential.count(StepType.RUNNING) > 0);
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void replayAllKeepsOrderOfSessions() {
+        List<RecordedSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            sessions.add(createSession(20000 + i * 1000, i));
+        }
+        SessionReplayEngine engine = new SessionReplayEngine(new ForkJoinPool(4), 500);
+
+        List<ReplayResult> results = engine.replayAll(sessions);
+
+        assertEquals(sessions.size(), results.size());
+        for (int i = 0; i < sessions.size(); i++) {
+            assertEquals(SessionReplayEngine.replaySequential(sessions.get(i)), results.get(i));
+        }
+    }
+
+    @Test
+    public void replayUsesRecordedWalkingThreshold() {
+        RecordedSession nominal = createSession(50000, 3, 1);
+        RecordedSession damped = createSession(50000, 3, 0.4);
+        RecordedSession calibrated = createSession(50000, 3, 0.4, 12);
+        SessionReplayEngine engine = new SessionReplayEngine(new ForkJoinPool(4), 1000);
+
+        ReplayResult nominalResult = SessionReplayEngine.replaySequential(nominal);
+        ReplayResult calibratedResult = SessionReplayEngine.replaySequential(calibrated);
+        assertTrue(SessionReplayEngine.replaySequential(damped).size() < nominalResult.size() * 3 / 4);
+        assertTrue(calibratedResult.size() > nominalResult.size() * 95 / 100);
+        assertEquals(calibratedResult, engine.replay(calibrated));
+    }
+
+    @Test
+    public void splitIndexLiesAfterTheRecordEndingTheHighPoint() {
+        RecordedSession session = new RecordedSession(0);
+        float[] values = {9.81f, 20f, 21f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f,
+                9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 9.81f, 22f, 9.81f};
+        for (int i = 0; i < values.length; i++) {
+            session.add(i * SAMPLE_INTERVAL_NS, 0, values[i], 0);
+        }
+
+        assertEquals(4, SessionReplayEngine.findSplitIndex(session, 0, session.size()));
+        assertEquals(-1, SessionReplayEngine.findSplitIndex(session, 3, session.size()));
+    }
+
+    /**
+     * Creates a session in which walking, jogging and running phases alternate with pauses,
+     * with half sine impacts on the y axis and gaussian noise on all axes.
+     */
+    private static RecordedSession createSession(int pSampleCount, long pSeed) {
+        return createSession(pSampleCount, pSeed, 1, StepDetector.WALKINGTHRESHOLD);
+    }
+
+    private static RecordedSession createSession(int pSampleCount, long pSeed, double pImpactScale) {
+        return createSession(pSampleCount, pSeed, pImpactScale, StepDetector.WALKINGTHRESHOLD);
+    }
+
+    /**
+     * @param pImpactScale Factor for the height of the impacts, e.g. below 1 for a device in a bag.
+     * @param pWalkingThreshold The walking threshold stored with the session.
+     */
+    private static RecordedSession createSession(int pSampleCount, long pSeed, double pImpactScale, double pWalkingThreshold) {
+        Random random = new Random(pSeed);
+        RecordedSession session = new RecordedSession(1600000000000L, pWalkingThreshold);
+        double[] stepsPerSecond = {1.8, 2.6, 3.2, 0};
+        double[] peaks = {20, 27, 33, 0};
+
+        int phase = 0;
+        int phaseEnd = 0;
+        double phaseTime = 0;
+        for (int i = 0; i < pSampleCount; i++) {
+            if (i == phaseEnd) {
+                phase = random.nextInt(stepsPerSecond.length);
+                phaseEnd = i + 500 + random.nextInt(3000);
+                phaseTime = 0;
+            }
+            double impact = 0;
+            if (stepsPerSecond[phase] > 0) {
+                double stepDuration = 1 / stepsPerSecond[phase];
+                double impactDuration = stepDuration / 4;
+                double t = phaseTime % stepDuration;
+                if (t < impactDuration) {
+                    impact = pImpactScale * (peaks[phase] - 9.81) * Math.sin(Math.PI * t / impactDuration);
+                }
+            }
+            phaseTime += SAMPLE_INTERVAL_NS / 1e9;
+            session.add(i * SAMPLE_INTERVAL_NS,
+                    (float) (random.nextGaussian() * 0.5),
+                    (float) (9.81 + impact + random.nextGaussian() * 0.5),
+                    (float) (random.nextGaussian() * 0.5));
+        }
+        return session;
+    }
+}